@@ -0,0 +1,64 @@
+package com.reandroid.benchmark;
+
+import com.reandroid.apk.ApkModule;
+import com.reandroid.apk.ApkModuleXmlDecoder;
+import com.reandroid.apk.ApkModuleXmlEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ApkModuleBenchmark {
+
+    @Param({"2000", "20000"})
+    public int entryCount;
+
+    private File workDir;
+    private File apkFile;
+    private File decodedDir;
+
+    @Setup
+    public void setup() throws IOException {
+        workDir = BenchmarkFixtures.createTempDir("bench-module");
+        apkFile = new File(workDir, "input.apk");
+        BenchmarkFixtures.createApkModule(entryCount, 2, 100, 500).writeApk(apkFile);
+        decodedDir = new File(workDir, "decoded");
+        decode(decodedDir);
+    }
+    @TearDown
+    public void tearDown() {
+        BenchmarkFixtures.delete(workDir);
+    }
+
+    @Benchmark
+    public File decode() throws IOException {
+        File dir = new File(workDir, "decode");
+        BenchmarkFixtures.delete(dir);
+        return decode(dir);
+    }
+    @Benchmark
+    public long encode() throws IOException {
+        ApkModuleXmlEncoder encoder = new ApkModuleXmlEncoder();
+        encoder.scanDirectory(decodedDir);
+        File file = new File(workDir, "encoded.apk");
+        ApkModule apkModule = encoder.getApkModule();
+        apkModule.writeApk(file);
+        apkModule.close();
+        return file.length();
+    }
+    private File decode(File dir) throws IOException {
+        ApkModule apkModule = ApkModule.loadApkFile(apkFile);
+        apkModule.setLoadDefaultFramework(false);
+        ApkModuleXmlDecoder decoder = new ApkModuleXmlDecoder(apkModule);
+        decoder.decode(dir);
+        apkModule.close();
+        return dir;
+    }
+}
@@ -0,0 +1,72 @@
+package com.reandroid.benchmark;
+
+import com.reandroid.archive.ArchiveFile;
+import com.reandroid.archive.InputSource;
+import com.reandroid.archive.ZipEntryMap;
+import com.reandroid.archive.writer.ApkFileWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ArchiveBenchmark {
+
+    @Param({"200", "2000"})
+    public int layoutCount;
+
+    private File workDir;
+    private File apkFile;
+    private ZipEntryMap zipEntryMap;
+
+    @Setup
+    public void setup() throws IOException {
+        workDir = BenchmarkFixtures.createTempDir("bench-archive");
+        apkFile = new File(workDir, "input.apk");
+        BenchmarkFixtures.createApkModule(2000, 2, layoutCount, 500).writeApk(apkFile);
+        ArchiveFile archiveFile = new ArchiveFile(apkFile);
+        zipEntryMap = archiveFile.createZipEntryMap();
+    }
+    @TearDown
+    public void tearDown() {
+        BenchmarkFixtures.delete(workDir);
+    }
+
+    @Benchmark
+    public int open() throws IOException {
+        ArchiveFile archiveFile = new ArchiveFile(apkFile);
+        int size = archiveFile.size();
+        archiveFile.close();
+        return size;
+    }
+    @Benchmark
+    public int openLazy() throws IOException {
+        ArchiveFile archiveFile = new ArchiveFile(apkFile, true);
+        int size = archiveFile.size();
+        archiveFile.close();
+        return size;
+    }
+    @Benchmark
+    public int extractAll() throws IOException {
+        File dir = new File(workDir, "extract");
+        ArchiveFile archiveFile = new ArchiveFile(apkFile);
+        int count = archiveFile.extractAll(dir);
+        archiveFile.close();
+        BenchmarkFixtures.delete(dir);
+        return count;
+    }
+    @Benchmark
+    public long write() throws IOException {
+        File file = new File(workDir, "output.apk");
+        InputSource[] sources = zipEntryMap.toArray();
+        ApkFileWriter writer = new ApkFileWriter(file, sources);
+        writer.write();
+        return file.length();
+    }
+}
@@ -0,0 +1,66 @@
+package com.reandroid.benchmark;
+
+import com.reandroid.apk.ApkModule;
+import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.arsc.chunk.xml.ResXmlDocument;
+import com.reandroid.dex.model.DexFile;
+import com.reandroid.test.SyntheticApkGenerator;
+import com.reandroid.utils.io.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Builds benchmark inputs with SyntheticApkGenerator, thus benchmarks run offline
+ * and the same sizes always give the same bytes.
+ * */
+public class BenchmarkFixtures {
+
+    public static TableBlock createTableBlock(int entryCount, int configCount){
+        SyntheticApkGenerator generator = new SyntheticApkGenerator();
+        generator.setTypeCount(TYPE_COUNT);
+        generator.setEntriesPerType(Math.max(1, entryCount / TYPE_COUNT));
+        generator.setConfigCount(configCount);
+        return generator.createTableBlock();
+    }
+    public static ResXmlDocument createLayout(int viewCount){
+        return new SyntheticApkGenerator().createLayout(viewCount);
+    }
+    public static DexFile createDexFile(int classCount, int methodsPerClass){
+        SyntheticApkGenerator generator = new SyntheticApkGenerator();
+        generator.setClassCount(classCount);
+        generator.setMethodsPerClass(methodsPerClass);
+        generator.setDexIdLimit(Integer.MAX_VALUE);
+        return generator.createDexFiles().get(0);
+    }
+    /**
+     * Module with manifest, resource table of the given entries and configs, one layout
+     * per layoutCount and classes on as many dex files as needed
+     * */
+    public static ApkModule createApkModule(int entryCount, int configCount,
+                                            int layoutCount, int classCount) throws IOException {
+        SyntheticApkGenerator generator = new SyntheticApkGenerator();
+        generator.setTypeCount(TYPE_COUNT);
+        generator.setEntriesPerType(Math.max(1, entryCount / TYPE_COUNT));
+        generator.setConfigCount(configCount);
+        generator.setLayoutCount(layoutCount);
+        generator.setClassCount(classCount);
+        return generator.createApkModule();
+    }
+    public static File createTempDir(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix).toFile();
+    }
+    public static void delete(File dirOrFile){
+        if(dirOrFile == null){
+            return;
+        }
+        if(dirOrFile.isDirectory()){
+            FileUtil.deleteDirectory(dirOrFile);
+        }else {
+            dirOrFile.delete();
+        }
+    }
+
+    private static final int TYPE_COUNT = 4;
+}
@@ -0,0 +1,65 @@
+package com.reandroid.benchmark;
+
+import com.reandroid.arsc.io.BlockReader;
+import com.reandroid.dex.model.DexFile;
+import com.reandroid.dex.smali.SmaliWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DexFileBenchmark {
+
+    @Param({"500", "5000"})
+    public int classCount;
+
+    private byte[] dexBytes;
+    private DexFile dexFile;
+    private File smaliDir;
+    private File writeDir;
+
+    @Setup
+    public void setup() throws IOException {
+        dexFile = BenchmarkFixtures.createDexFile(classCount, 4);
+        dexBytes = dexFile.getBytes();
+        smaliDir = BenchmarkFixtures.createTempDir("bench-smali");
+        dexFile.writeSmali(new SmaliWriter(), smaliDir);
+        writeDir = BenchmarkFixtures.createTempDir("bench-smali-out");
+    }
+    @TearDown
+    public void tearDown() {
+        BenchmarkFixtures.delete(smaliDir);
+        BenchmarkFixtures.delete(writeDir);
+    }
+
+    @Benchmark
+    public DexFile read() throws IOException {
+        return DexFile.read(dexBytes);
+    }
+    @Benchmark
+    public DexFile readLazyCode() throws IOException {
+        return DexFile.read(new BlockReader(dexBytes), true);
+    }
+    @Benchmark
+    public byte[] getBytes() {
+        return dexFile.getBytes();
+    }
+    @Benchmark
+    public File writeSmali() throws IOException {
+        dexFile.writeSmali(new SmaliWriter(), writeDir);
+        return writeDir;
+    }
+    @Benchmark
+    public DexFile parseSmali() throws IOException {
+        DexFile parsed = DexFile.createDefault();
+        parsed.parseSmaliDirectory(smaliDir);
+        return parsed;
+    }
+}
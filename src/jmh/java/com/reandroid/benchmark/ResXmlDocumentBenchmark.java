@@ -0,0 +1,47 @@
+package com.reandroid.benchmark;
+
+import com.reandroid.arsc.chunk.xml.ResXmlDocument;
+import com.reandroid.xml.XMLDocument;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResXmlDocumentBenchmark {
+
+    @Param({"16", "512"})
+    public int viewCount;
+
+    private byte[] documentBytes;
+    private ResXmlDocument document;
+
+    @Setup
+    public void setup() {
+        document = BenchmarkFixtures.createLayout(viewCount);
+        documentBytes = document.getBytes();
+        // references are decoded against a package
+        document.setPackageBlock(BenchmarkFixtures.createTableBlock(16, 0).pickOne());
+    }
+
+    @Benchmark
+    public ResXmlDocument read() throws IOException {
+        ResXmlDocument resXmlDocument = new ResXmlDocument();
+        resXmlDocument.readBytes(new ByteArrayInputStream(documentBytes));
+        return resXmlDocument;
+    }
+    @Benchmark
+    public byte[] writeBytes() {
+        return document.getBytes();
+    }
+    @Benchmark
+    public XMLDocument decodeToXml() {
+        return document.decodeToXml();
+    }
+}
@@ -0,0 +1,65 @@
+package com.reandroid.benchmark;
+
+import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.arsc.pool.TableStringPool;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TableBlockBenchmark {
+
+    @Param({"1000", "20000"})
+    public int entryCount;
+    @Param({"4"})
+    public int configCount;
+
+    private byte[] tableBytes;
+    private TableBlock tableBlock;
+    private String[] strings;
+
+    @Setup
+    public void setup() {
+        tableBlock = BenchmarkFixtures.createTableBlock(entryCount, configCount);
+        tableBytes = tableBlock.getBytes();
+        String[] strings = new String[entryCount];
+        for(int i = 0; i < strings.length; i++){
+            strings[i] = "String value " + (i % (entryCount / 2 + 1));
+        }
+        this.strings = strings;
+    }
+
+    @Benchmark
+    public TableBlock load() throws IOException {
+        return TableBlock.load(new ByteArrayInputStream(tableBytes));
+    }
+    @Benchmark
+    public byte[] writeBytes() {
+        return tableBlock.getBytes();
+    }
+    @Benchmark
+    public void decodeStringPool(Blackhole blackhole) throws IOException {
+        TableStringPool stringPool = TableBlock.load(new ByteArrayInputStream(tableBytes))
+                .getStringPool();
+        int count = stringPool.countStrings();
+        for(int i = 0; i < count; i++){
+            blackhole.consume(stringPool.get(i).get());
+        }
+    }
+    @Benchmark
+    public TableStringPool stringPoolGetOrCreate() {
+        TableStringPool stringPool = new TableStringPool(true);
+        for(String str : strings){
+            stringPool.getOrCreate(str);
+        }
+        return stringPool;
+    }
+}
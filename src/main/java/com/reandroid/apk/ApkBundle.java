@@ -21,19 +21,37 @@ import com.reandroid.archive.block.ApkSignatureBlock;
 import com.reandroid.arsc.chunk.TableBlock;
 import com.reandroid.arsc.pool.TableStringPool;
 import com.reandroid.arsc.pool.builder.StringPoolMerger;
+import com.reandroid.utils.concurrent.WorkerPool;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 public class ApkBundle {
     private final Map<String, ApkModule> mModulesMap;
     private APKLogger apkLogger;
+    private int threadCount = 1;
     public ApkBundle(){
         this.mModulesMap=new HashMap<>();
     }
 
+    public int getThreadCount() {
+        return threadCount;
+    }
+    /**
+     * Sets number of threads used to load split modules and to merge their
+     * string pools, zero or negative value uses available processors.
+     * Default is 1 i.e. serial loading
+     * */
+    public void setThreadCount(int threadCount) {
+        if(threadCount <= 0){
+            threadCount = WorkerPool.defaultThreadCount();
+        }
+        this.threadCount = threadCount;
+    }
+
     public ApkModule mergeModules() throws IOException {
         List<ApkModule> moduleList=getApkModuleList();
         if(moduleList.size()==0){
@@ -87,15 +105,19 @@ public class ApkBundle {
 
         StringPoolMerger poolMerger = new StringPoolMerger();
 
+        List<Callable<TableStringPool>> tasks = new ArrayList<>();
         for(ApkModule apkModule:getModules()){
             if(!apkModule.hasTableBlock()){
                 continue;
             }
-            TableStringPool stringPool = apkModule.getVolatileTableStringPool();
-            poolMerger.add(stringPool);
+            tasks.add(apkModule::getVolatileTableStringPool);
+        }
+        try(WorkerPool workerPool = new WorkerPool(getThreadCount())){
+            for(TableStringPool stringPool : workerPool.invokeAll(tasks)){
+                poolMerger.add(stringPool);
+            }
+            poolMerger.mergeTo(createdTable.getTableStringPool(), workerPool);
         }
-
-        poolMerger.mergeTo(createdTable.getTableStringPool());
 
         logMessage("Merged string pools="+poolMerger.getMergedPools()
                 +", style="+poolMerger.getMergedStyleStrings()
@@ -156,6 +178,10 @@ public class ApkBundle {
             throw new FileNotFoundException("No '*.apk' files in directory: "+dir);
         }
         logMessage("Found apk files: "+apkList.size());
+        if(getThreadCount() > 1 && apkList.size() > 1){
+            loadApkFilesConcurrent(apkList);
+            return;
+        }
         for(File file:apkList){
             logVerbose("Loading: "+file.getName());
             String name = ApkUtil.toModuleName(file);
@@ -164,6 +190,45 @@ public class ApkBundle {
             addModule(module);
         }
     }
+    /**
+     * Opens archives and parses manifest, resource table and dex list of each
+     * module on worker threads, modules are added in the same order as the given files.
+     * If any module fails to load, all modules opened so far are closed.
+     * */
+    private void loadApkFilesConcurrent(List<File> apkList) throws IOException {
+        logMessage("Loading modules, threads = " + getThreadCount());
+        OpenedModules openedModules = new OpenedModules();
+        List<Callable<ApkModule>> tasks = new ArrayList<>(apkList.size());
+        for(File file : apkList){
+            tasks.add(() -> preloadModule(file, openedModules));
+        }
+        List<ApkModule> moduleList;
+        try(WorkerPool workerPool = new WorkerPool(getThreadCount())){
+            moduleList = workerPool.invokeAll(tasks);
+        }catch (IOException | RuntimeException | Error exception){
+            openedModules.closeAll(exception);
+            throw exception;
+        }
+        for(ApkModule module : moduleList){
+            logVerbose("Loaded: " + module.getModuleName());
+            module.setAPKLogger(apkLogger);
+            addModule(module);
+        }
+    }
+    private static ApkModule preloadModule(File file, OpenedModules openedModules) throws IOException {
+        String name = ApkUtil.toModuleName(file);
+        ApkModule module = ApkModule.loadApkFile(file, name);
+        openedModules.add(module);
+        module.setLoadDefaultFramework(false);
+        if(module.hasAndroidManifest()){
+            module.getAndroidManifest();
+        }
+        if(module.hasTableBlock()){
+            module.getTableBlock();
+        }
+        module.listDexFiles();
+        return module;
+    }
     public void addModule(ApkModule apkModule){
         apkModule.setLoadDefaultFramework(false);
         String name = apkModule.getModuleName();
@@ -214,4 +279,34 @@ public class ApkBundle {
             apkLogger.logVerbose(msg);
         }
     }
+
+    /**
+     * Tracks modules opened by concurrent loading tasks, once closed any module
+     * opened later by a still running task is closed immediately.
+     * */
+    static class OpenedModules {
+        private final List<ApkModule> moduleList;
+        private boolean mClosed;
+        OpenedModules(){
+            this.moduleList = new ArrayList<>();
+        }
+        synchronized void add(ApkModule module) throws IOException {
+            if(mClosed){
+                module.close();
+                throw new IOException("Loading cancelled: " + module.getModuleName());
+            }
+            moduleList.add(module);
+        }
+        synchronized void closeAll(Throwable failure){
+            mClosed = true;
+            for(ApkModule module : moduleList){
+                try {
+                    module.close();
+                } catch (IOException exception) {
+                    failure.addSuppressed(exception);
+                }
+            }
+            moduleList.clear();
+        }
+    }
 }
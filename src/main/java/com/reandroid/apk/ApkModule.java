@@ -20,13 +20,13 @@ import com.reandroid.archive.block.ApkSignatureBlock;
 import com.reandroid.archive.io.ArchiveFileEntrySource;
 import com.reandroid.archive.writer.ApkByteWriter;
 import com.reandroid.archive.writer.ApkFileWriter;
+import com.reandroid.archive.writer.ApkPatchWriter;
 import com.reandroid.archive.writer.ApkStreamWriter;
 import com.reandroid.arsc.ApkFile;
 import com.reandroid.arsc.array.PackageArray;
 import com.reandroid.arsc.chunk.Chunk;
 import com.reandroid.arsc.chunk.PackageBlock;
 import com.reandroid.arsc.chunk.TableBlock;
-import com.reandroid.arsc.chunk.TypeBlock;
 import com.reandroid.arsc.chunk.xml.AndroidManifestBlock;
 import com.reandroid.arsc.chunk.xml.ResXmlDocument;
 import com.reandroid.arsc.container.SpecTypePair;
@@ -34,18 +34,16 @@ import com.reandroid.arsc.group.StringGroup;
 import com.reandroid.arsc.item.TableString;
 import com.reandroid.arsc.pool.TableStringPool;
 import com.reandroid.utils.collection.ArrayCollection;
-import com.reandroid.utils.collection.CollectionUtil;
-import com.reandroid.utils.collection.EmptyList;
 import com.reandroid.arsc.model.FrameworkTable;
 import com.reandroid.arsc.value.Entry;
 import com.reandroid.arsc.value.ResConfig;
 import com.reandroid.identifiers.PackageIdentifier;
 import com.reandroid.xml.XMLDocument;
 import com.reandroid.xml.XMLElement;
+import com.reandroid.utils.metrics.Metrics;
 
 import java.io.*;
 import java.util.*;
-import java.util.function.Predicate;
 import java.util.zip.ZipEntry;
 
 public class ApkModule implements ApkFile, Closeable {
@@ -64,6 +62,7 @@ public class ApkModule implements ApkFile, Closeable {
     private Integer preferredFramework;
     private Closeable mCloseable;
     private final List<TableBlock> mExternalFrameworks;
+    private ResFileIndex mResFileIndex;
 
     private final Map<Object, Object> mTagMaps;
 
@@ -500,6 +499,33 @@ public class ApkModule implements ApkFile, Closeable {
         writer.setArchiveInfo(zipEntryMap.getArchiveInfo());
         return writer;
     }
+    /**
+     * Writes changes back to the apk file this module was loaded from, see ApkPatchWriter.
+     * Sources of this module are stale afterwards, the file should be loaded again.
+     * */
+    public void patchApk() throws IOException {
+        patchApk(null);
+    }
+    public void patchApk(WriteProgress progress) throws IOException {
+        ApkPatchWriter writer = createApkPatchWriter();
+        writer.setWriteProgress(progress);
+        writer.write();
+    }
+    public ApkPatchWriter createApkPatchWriter() throws IOException {
+        Closeable closeable = this.mCloseable;
+        if(!(closeable instanceof ArchiveFile)){
+            throw new IOException("Module not loaded from apk file: " + getModuleName());
+        }
+        ZipEntryMap zipEntryMap = getZipEntryMap();
+        UncompressedFiles uf = getUncompressedFiles();
+        uf.apply(zipEntryMap);
+        ApkPatchWriter writer = new ApkPatchWriter((ArchiveFile) closeable,
+                zipEntryMap.toArray(true));
+        writer.setAPKLogger(getApkLogger());
+        writer.setApkSignatureBlock(getApkSignatureBlock());
+        writer.setArchiveInfo(zipEntryMap.getArchiveInfo());
+        return writer;
+    }
     public ApkByteWriter createApkByteWriter() {
         ZipEntryMap zipEntryMap = getZipEntryMap();
         UncompressedFiles uf = getUncompressedFiles();
@@ -597,6 +623,7 @@ public class ApkModule implements ApkFile, Closeable {
         if (tableBlock==null){
             return results;
         }
+        ResFileIndex resFileIndex = getResFileIndex();
         TableStringPool stringPool= tableBlock.getStringPool();
         for(InputSource inputSource : getInputSources()){
             String name=inputSource.getAlias();
@@ -606,7 +633,7 @@ public class ApkModule implements ApkFile, Closeable {
             }
             for(TableString tableString:groupTableString.listItems()){
                 List<Entry> entryList = filterResFileEntries(
-                        tableString, resourceId, resConfig);
+                        resFileIndex.getEntries(tableString.getIndex()), resourceId, resConfig);
                 if(entryList.size()==0){
                     continue;
                 }
@@ -622,29 +649,35 @@ public class ApkModule implements ApkFile, Closeable {
         if (tableBlock == null){
             return new ArrayList<>();
         }
-        TableStringPool stringPool = tableBlock.getStringPool();
-        StringGroup<TableString> stringGroup = stringPool.get(path);
-        if(stringGroup == null){
-            return EmptyList.of();
-        }
-        TableString tableString = stringPool.get(0);
-        return tableString.listReferencedResValueEntries();
-    }
-    private List<Entry> filterResFileEntries(TableString tableString, int resourceId, ResConfig resConfig){
-        Iterator<Entry> itr = tableString.getEntries(new Predicate<Entry>() {
-            @Override
-            public boolean test(Entry item) {
-                if(!item.isScalar() ||
-                        !TypeBlock.canHaveResourceFile(item.getTypeName())){
-                    return false;
-                }
-                if(resourceId != 0 && resourceId != item.getResourceId()){
-                    return false;
-                }
-                return resConfig == null || resConfig.equals(item.getResConfig());
+        return new ArrayCollection<>(getResFileIndex().getEntries(path));
+    }
+    /**
+     * Returns reverse index of res file path to referencing entries, the index is
+     * re-built whenever table block is replaced or its string values change.
+     * */
+    public ResFileIndex getResFileIndex(){
+        TableBlock tableBlock = getTableBlock();
+        if(tableBlock == null){
+            return null;
+        }
+        ResFileIndex resFileIndex = this.mResFileIndex;
+        if(resFileIndex == null || resFileIndex.getTableBlock() != tableBlock){
+            resFileIndex = new ResFileIndex(tableBlock);
+            this.mResFileIndex = resFileIndex;
+        }
+        return resFileIndex;
+    }
+    private List<Entry> filterResFileEntries(List<Entry> entryList, int resourceId, ResConfig resConfig){
+        List<Entry> results = new ArrayCollection<>(entryList.size());
+        for(Entry item : entryList){
+            if(resourceId != 0 && resourceId != item.getResourceId()){
+                continue;
+            }
+            if(resConfig == null || resConfig.equals(item.getResConfig())){
+                results.add(item);
             }
-        });
-        return CollectionUtil.toList(itr);
+        }
+        return results;
     }
     public String getPackageName(){
         if(hasAndroidManifest()){
@@ -709,6 +742,7 @@ public class ApkModule implements ApkFile, Closeable {
             tableBlock.destroy();
             this.mTableBlock = null;
         }
+        this.mResFileIndex = null;
         try {
             close();
         } catch (IOException ignored) {
@@ -976,9 +1010,11 @@ public class ApkModule implements ApkFile, Closeable {
             tableBlock = (TableBlock) block;
         }else {
             setTableOriginalSource(inputSource);
+            Metrics.Span span = Metrics.start(Metrics.TABLE_LOAD);
             InputStream inputStream = inputSource.openStream();
             tableBlock = TableBlock.load(inputStream);
             inputStream.close();
+            span.end();
         }
         BlockInputSource<TableBlock> blockInputSource=new BlockInputSource<>(inputSource.getName(), tableBlock);
         blockInputSource.setMethod(inputSource.getMethod());
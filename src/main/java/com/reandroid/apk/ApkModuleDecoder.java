@@ -27,6 +27,7 @@ import com.reandroid.identifiers.PackageIdentifier;
 import com.reandroid.identifiers.TableIdentifier;
 import com.reandroid.json.JSONArray;
 import com.reandroid.json.JSONObject;
+import com.reandroid.utils.metrics.Metrics;
 
 import java.io.File;
 import java.io.IOException;
@@ -55,9 +56,13 @@ public abstract class ApkModuleDecoder extends ApkModuleCoder{
         // For next release
         // decodeDexInfo(mainDirectory);
 
+        Metrics.Span span = Metrics.start(Metrics.RES_DECODE);
         decodeAndroidManifest(mainDirectory);
         decodeResourceTable(mainDirectory);
+        span.end();
+        span = Metrics.start(Metrics.DEX_DECODE);
         decodeDexFiles(mainDirectory);
+        span.end();
         extractRootFiles(mainDirectory);
         decodePathMap(mainDirectory);
         dumpSignatures(mainDirectory);
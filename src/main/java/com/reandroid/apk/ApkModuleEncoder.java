@@ -25,6 +25,7 @@ import com.reandroid.arsc.chunk.TableBlock;
 import com.reandroid.arsc.chunk.xml.AndroidManifestBlock;
 import com.reandroid.arsc.chunk.xml.ResXmlElement;
 import com.reandroid.json.JSONArray;
+import com.reandroid.utils.metrics.Metrics;
 
 import java.io.File;
 import java.io.IOException;
@@ -32,20 +33,51 @@ import java.util.List;
 
 public abstract class ApkModuleEncoder extends ApkModuleCoder{
     private DexEncoder mDexEncoder;
+    private boolean mIncremental;
+    private BuildCache mBuildCache;
     public ApkModuleEncoder(){
         super();
     }
 
+    /**
+     * When enabled, unchanged files (compared by content hash against BuildCache of
+     * the main directory) are copied raw from the previously built apk instead of
+     * being encoded and compressed again. Call saveBuildCache(File) after writing
+     * the apk to record it for the next build.
+     * */
+    public void setIncremental(boolean incremental) {
+        this.mIncremental = incremental;
+    }
+    public boolean isIncremental() {
+        return mIncremental;
+    }
+    public BuildCache getBuildCache() {
+        return mBuildCache;
+    }
+    public void saveBuildCache(File builtApk) throws IOException {
+        BuildCache buildCache = this.mBuildCache;
+        if(buildCache == null){
+            return;
+        }
+        logMessage("Saving build cache ...");
+        buildCache.save(builtApk);
+    }
+
     public void scanDirectory(File mainDirectory) throws IOException{
         logMessage("Scanning: " + mainDirectory.getName());
         encodeBinaryManifest(mainDirectory);
         loadArchiveInfo(mainDirectory);
         loadUncompressedFiles(mainDirectory);
+        Metrics.Span span = Metrics.start(Metrics.RES_ENCODE);
         buildResources(mainDirectory);
+        span.end();
+        span = Metrics.start(Metrics.DEX_ENCODE);
         encodeDexFiles(mainDirectory);
+        span.end();
         scanRootDir(mainDirectory);
         restorePathMap(mainDirectory);
         restoreSignatures(mainDirectory);
+        applyBuildCache(mainDirectory);
         sortFiles();
         refreshTable();
         dropEmptyManifest();
@@ -94,6 +126,28 @@ public abstract class ApkModuleEncoder extends ApkModuleCoder{
             logMessage("Removed null: " + TableBlock.FILE_NAME);
         }
     }
+    private void applyBuildCache(File mainDirectory) throws IOException {
+        if(!isIncremental()){
+            return;
+        }
+        BuildCache buildCache = this.mBuildCache;
+        if(buildCache != null){
+            buildCache.close();
+        }
+        buildCache = new BuildCache(mainDirectory);
+        this.mBuildCache = buildCache;
+        buildCache.load();
+        ApkModule apkModule = getApkModule();
+        if(apkModule.hasTableBlock()){
+            buildCache.setResourceSignature(apkModule.getTableBlock());
+        }
+        // methods are otherwise set only on write, previous entries must match them
+        apkModule.getUncompressedFiles().apply(apkModule.getZipEntryMap());
+        int reused = buildCache.apply(apkModule.getZipEntryMap());
+        if(buildCache.isLoaded()){
+            logMessage("Reused unchanged files: " + reused);
+        }
+    }
     private void sortFiles(){
         logMessage("Sorting files ...");
         ZipEntryMap archive = getApkModule().getZipEntryMap();
@@ -19,7 +19,7 @@ import com.reandroid.archive.InputSource;
 import com.reandroid.arsc.chunk.TableBlock;
 import com.reandroid.arsc.chunk.xml.AndroidManifestBlock;
 import com.reandroid.arsc.chunk.xml.ResXmlDocument;
-import com.reandroid.json.JSONObject;
+import com.reandroid.json.JSONWriter;
 
 import java.io.File;
 import java.io.IOException;
@@ -58,8 +58,7 @@ public class ApkModuleJsonDecoder extends ApkModuleDecoder{
         File file = toResJson(mainDirectory, path);
         ResXmlDocument resXmlDocument = new ResXmlDocument();
         resXmlDocument.readBytes(inputSource.openStream());
-        JSONObject jsonObject = resXmlDocument.toJson();
-        jsonObject.write(file);
+        JSONWriter.write(file, resXmlDocument::writeJson);
         addDecodedPath(path);
     }
     private void decodeTable(File dir) throws IOException {
@@ -88,7 +87,7 @@ public class ApkModuleJsonDecoder extends ApkModuleDecoder{
         TableBlock tableBlock = apkModule.getTableBlock();
         File file = new File(mainDirectory, TableBlock.DIRECTORY_NAME);
         file = new File(file, TableBlock.FILE_NAME_JSON);
-        tableBlock.toJson().write(file);
+        JSONWriter.write(file, tableBlock::writeJson);
         addDecodedPath(TableBlock.FILE_NAME);
     }
     void decodeAndroidManifest(File mainDirectory) throws IOException {
@@ -98,7 +97,7 @@ public class ApkModuleJsonDecoder extends ApkModuleDecoder{
         }
         AndroidManifestBlock manifest = apkModule.getAndroidManifest();
         File file = new File(mainDirectory, AndroidManifestBlock.FILE_NAME_JSON);
-        manifest.toJson().write(file);
+        JSONWriter.write(file, manifest::writeJson);
         addDecodedPath(AndroidManifestBlock.FILE_NAME);
     }
     private File toResJson(File mainDirectory, String path){
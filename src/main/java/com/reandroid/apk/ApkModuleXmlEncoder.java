@@ -50,6 +50,13 @@ public class ApkModuleXmlEncoder extends ApkModuleEncoder{
     public ApkModule getApkModule(){
         return tableBlockEncoder.getApkModule();
     }
+    /**
+     * Number of threads to parse values xml files
+     * @see XMLTableBlockEncoder#setThreadCount(int)
+     * */
+    public void setThreadCount(int threadCount){
+        tableBlockEncoder.setThreadCount(threadCount);
+    }
 
     private void buildTableBlock(File mainDirectory) throws IOException {
         XMLTableBlockEncoder tableBlockEncoder = this.tableBlockEncoder;
@@ -128,7 +135,11 @@ public class ApkModuleXmlEncoder extends ApkModuleEncoder{
         }
     }
     private Entry getEntry(String path){
-        List<Entry> entryList = getApkModule().listReferencedEntries(path);
+        ResFileIndex resFileIndex = getApkModule().getResFileIndex();
+        if(resFileIndex == null){
+            return null;
+        }
+        List<Entry> entryList = resFileIndex.getEntries(path);
         if(entryList.size() > 0){
             return entryList.get(0);
         }
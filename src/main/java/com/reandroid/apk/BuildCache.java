@@ -0,0 +1,251 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.apk;
+
+import com.reandroid.apk.xmlencoder.XMLEncodeSource;
+import com.reandroid.archive.ArchiveFile;
+import com.reandroid.archive.FileInputSource;
+import com.reandroid.archive.InputSource;
+import com.reandroid.archive.ZipEntryMap;
+import com.reandroid.arsc.chunk.PackageBlock;
+import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.arsc.model.ResourceEntry;
+import com.reandroid.arsc.value.Entry;
+import com.reandroid.json.JSONObject;
+import com.reandroid.xml.source.XMLFileParserSource;
+import com.reandroid.xml.source.XMLParserSource;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Content-hash manifest of a decoded project directory, stored next to path-map
+ * and archive-info files. Each archive path maps to the hash of the source file it
+ * was built from, and a copy of the last built apk is kept so that payloads of
+ * unchanged files (encoded binary xml and compressed bytes) can be written raw
+ * on the next build instead of being encoded and compressed again.
+ * Encoded xml files additionally depend on resource ids and attribute
+ * definitions, thus they are reused only if the resource signature is unchanged.
+ * */
+public class BuildCache implements Closeable {
+    private final File mainDirectory;
+    private final Map<String, String> mPreviousHashes;
+    private final Map<String, String> mCurrentHashes;
+    private String mPreviousSignature;
+    private String mCurrentSignature;
+    private ArchiveFile mArchive;
+    private Map<String, InputSource> mPreviousSources;
+
+    public BuildCache(File mainDirectory){
+        this.mainDirectory = mainDirectory;
+        this.mPreviousHashes = new HashMap<>();
+        this.mCurrentHashes = new HashMap<>();
+    }
+
+    public File getMainDirectory() {
+        return mainDirectory;
+    }
+    public boolean isLoaded(){
+        return mPreviousSources != null;
+    }
+    public void load() throws IOException {
+        close();
+        mPreviousHashes.clear();
+        mPreviousSignature = null;
+        File jsonFile = new File(mainDirectory, JSON_FILE);
+        File apkFile = new File(mainDirectory, APK_FILE);
+        if(!jsonFile.isFile() || !apkFile.isFile()){
+            return;
+        }
+        JSONObject jsonObject = new JSONObject(jsonFile);
+        if(jsonObject.optInt(NAME_version, 0) != VERSION){
+            return;
+        }
+        mPreviousSignature = jsonObject.optString(NAME_resource_signature, null);
+        JSONObject files = jsonObject.optJSONObject(NAME_files);
+        if(files != null){
+            for(String path : files.keySet()){
+                mPreviousHashes.put(path, files.getString(path));
+            }
+        }
+        ArchiveFile archive = new ArchiveFile(apkFile);
+        this.mArchive = archive;
+        this.mPreviousSources = archive.mapEntrySource();
+    }
+    public void setResourceSignature(TableBlock tableBlock){
+        mCurrentSignature = computeResourceSignature(tableBlock);
+    }
+    /**
+     * Replaces sources of unchanged files with the entries of previously built apk,
+     * every hashed source is recorded for the next save(File)
+     * @return number of reused entries
+     * */
+    public int apply(ZipEntryMap zipEntryMap) throws IOException {
+        mCurrentHashes.clear();
+        int result = 0;
+        for(InputSource inputSource : zipEntryMap.listInputSources()){
+            File file = getSourceFile(inputSource);
+            if(file == null || !file.isFile()){
+                continue;
+            }
+            String path = inputSource.getAlias();
+            String hash = hashFile(file);
+            mCurrentHashes.put(path, hash);
+            InputSource previous = getReusable(inputSource, hash);
+            if(previous == null){
+                continue;
+            }
+            previous.setSort(inputSource.getSort());
+            zipEntryMap.add(previous);
+            result ++;
+        }
+        return result;
+    }
+    private InputSource getReusable(InputSource inputSource, String hash){
+        Map<String, InputSource> previousSources = this.mPreviousSources;
+        if(previousSources == null){
+            return null;
+        }
+        String path = inputSource.getAlias();
+        if(!hash.equals(mPreviousHashes.get(path))){
+            return null;
+        }
+        if(inputSource instanceof XMLEncodeSource){
+            if(mCurrentSignature == null || !mCurrentSignature.equals(mPreviousSignature)){
+                return null;
+            }
+        }
+        InputSource previous = previousSources.get(path);
+        if(previous == null || previous.getMethod() != inputSource.getMethod()){
+            return null;
+        }
+        return previous;
+    }
+    /**
+     * Records hashes of the last apply(ZipEntryMap) together with a copy of the
+     * written apk, call this after the apk is fully written.
+     * */
+    public void save(File builtApk) throws IOException {
+        close();
+        File apkFile = new File(mainDirectory, APK_FILE);
+        Files.copy(builtApk.toPath(), apkFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        JSONObject files = new JSONObject();
+        for(Map.Entry<String, String> entry : mCurrentHashes.entrySet()){
+            files.put(entry.getKey(), entry.getValue());
+        }
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put(NAME_version, VERSION);
+        jsonObject.put(NAME_resource_signature, mCurrentSignature);
+        jsonObject.put(NAME_files, files);
+        jsonObject.write(new File(mainDirectory, JSON_FILE));
+    }
+    @Override
+    public void close() throws IOException {
+        ArchiveFile archive = this.mArchive;
+        this.mArchive = null;
+        this.mPreviousSources = null;
+        if(archive != null){
+            archive.close();
+        }
+    }
+
+    private static File getSourceFile(InputSource inputSource){
+        if(inputSource instanceof FileInputSource){
+            return ((FileInputSource) inputSource).getFile();
+        }
+        if(inputSource instanceof XMLEncodeSource){
+            XMLParserSource parserSource = ((XMLEncodeSource) inputSource).getParserSource();
+            if(parserSource instanceof XMLFileParserSource){
+                return ((XMLFileParserSource) parserSource).getFile();
+            }
+        }
+        return null;
+    }
+    static String computeResourceSignature(TableBlock tableBlock){
+        if(tableBlock == null){
+            return null;
+        }
+        MessageDigest digest = newDigest();
+        Iterator<PackageBlock> packages = tableBlock.getAllPackages();
+        while (packages.hasNext()){
+            PackageBlock packageBlock = packages.next();
+            update(digest, packageBlock.getId() + ":" + packageBlock.getName());
+            Iterator<ResourceEntry> iterator = packageBlock.getResources();
+            while (iterator.hasNext()){
+                ResourceEntry resourceEntry = iterator.next();
+                String type = resourceEntry.getType();
+                update(digest, resourceEntry.getResourceId() + "/" + type
+                        + "/" + resourceEntry.getName());
+                if(!"attr".equals(type)){
+                    continue;
+                }
+                Entry entry = resourceEntry.any();
+                if(entry != null){
+                    digest.update(entry.getBytes());
+                }
+            }
+        }
+        return toHex(digest.digest());
+    }
+    static String hashFile(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream inputStream = new FileInputStream(file)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer, 0, buffer.length)) > 0){
+                digest.update(buffer, 0, read);
+            }
+        }
+        return toHex(digest.digest());
+    }
+    private static void update(MessageDigest digest, String text){
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+    private static MessageDigest newDigest(){
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+    private static String toHex(byte[] bytes){
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for(byte b : bytes){
+            int i = b & 0xff;
+            builder.append(HEX_CHARS[i >> 4]);
+            builder.append(HEX_CHARS[i & 0x0f]);
+        }
+        return builder.toString();
+    }
+
+    private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+
+    private static final int VERSION = 1;
+    private static final String NAME_version = "version";
+    private static final String NAME_resource_signature = "resource_signature";
+    private static final String NAME_files = "files";
+
+    public static final String JSON_FILE = "build-cache.json";
+    public static final String APK_FILE = "build-cache.apk";
+}
@@ -17,6 +17,7 @@ package com.reandroid.apk;
 
 import com.reandroid.arsc.chunk.PackageBlock;
 import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.arsc.chunk.TypeBlock;
 import com.reandroid.arsc.pool.SpecStringPool;
 import com.reandroid.arsc.pool.TableStringPool;
 import com.reandroid.arsc.value.ValueHeader;
@@ -24,9 +25,9 @@ import com.reandroid.arsc.value.ValueType;
 import com.reandroid.json.JSONArray;
 import com.reandroid.json.JSONException;
 import com.reandroid.json.JSONObject;
+import com.reandroid.json.JSONStreamReader;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.*;
 
@@ -72,16 +73,24 @@ public class JsonStringPoolBuilder {
         }
     }
     public void scanFile(File jsonFile) throws IOException {
+        JSONStreamReader reader = new JSONStreamReader(jsonFile);
         try{
-            JSONObject jsonObject = new JSONObject(jsonFile);
-            build(jsonObject);
+            build(reader);
         }catch (JSONException ex){
             throw new IOException(jsonFile+": "+ex.getMessage());
+        }finally {
+            reader.close();
         }
     }
     public void build(JSONObject jsonObject){
         scan(jsonObject);
     }
+    /**
+     * Streaming equivalent of build(JSONObject), only one entry is held in memory at a time
+     * */
+    public void build(JSONStreamReader reader){
+        scan(reader);
+    }
     public Set<String> getTableString(){
         return mTableStrings;
     }
@@ -118,6 +127,50 @@ public class JsonStringPoolBuilder {
             }
         }
     }
+    private void scan(JSONStreamReader reader){
+        if(reader.isNextObject()){
+            scanObject(reader);
+        }else if(reader.isNextArray()){
+            reader.beginArray();
+            while (reader.hasNext()){
+                scan(reader);
+            }
+            reader.endArray();
+        }else {
+            reader.skipValue();
+        }
+    }
+    private void scanObject(JSONStreamReader reader){
+        reader.beginObject();
+        while (reader.hasNext()){
+            String key = reader.nextName();
+            if(TypeBlock.NAME_entries.equals(key) && reader.isNextArray()){
+                scanEntries(reader);
+            }else if(TableBlock.NAME_styled_strings.equals(key) && reader.isNextArray()){
+                this.mStyledStrings = reader.nextJSONArray();
+            }else if(PackageBlock.NAME_package_id.equals(key)
+                    && !reader.isNextObject() && !reader.isNextArray()){
+                Object value = reader.nextValue();
+                if(value instanceof Number){
+                    mCurrentPackageId = ((Number) value).intValue();
+                }
+            }else {
+                scan(reader);
+            }
+        }
+        reader.endObject();
+    }
+    private void scanEntries(JSONStreamReader reader){
+        reader.beginArray();
+        while (reader.hasNext()){
+            if(reader.isNextObject()){
+                scan(reader.nextJSONObject());
+            }else {
+                scan(reader);
+            }
+        }
+        reader.endArray();
+    }
     private void scan(JSONArray jsonArray){
         if(jsonArray==null){
             return;
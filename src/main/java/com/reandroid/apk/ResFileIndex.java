@@ -0,0 +1,168 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.apk;
+
+import com.reandroid.arsc.chunk.PackageBlock;
+import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.arsc.chunk.TypeBlock;
+import com.reandroid.arsc.container.SpecTypePair;
+import com.reandroid.arsc.group.StringGroup;
+import com.reandroid.arsc.item.TableString;
+import com.reandroid.arsc.pool.TableStringPool;
+import com.reandroid.arsc.value.Entry;
+import com.reandroid.arsc.value.ResValue;
+import com.reandroid.arsc.value.ValueType;
+import com.reandroid.utils.collection.ArrayCollection;
+import com.reandroid.utils.collection.EmptyList;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reverse index of resource file paths to the scalar entries referencing them,
+ * keyed by table string index. The index is built in a single pass over all
+ * entries without linking table strings, so lookups cost a hash access instead
+ * of scanning the referencing users of each string. The index is re-built once
+ * string pool reference mod count changes (string values edited or strings
+ * re-indexed) and each hit is re-validated, thus it never needs invalidating by
+ * callers.
+ * */
+public class ResFileIndex {
+    private final TableBlock tableBlock;
+    private final Map<Integer, List<Entry>> mEntryMap;
+    private int mReferenceModCount;
+    private boolean mBuilt;
+
+    public ResFileIndex(TableBlock tableBlock){
+        this.tableBlock = tableBlock;
+        this.mEntryMap = new HashMap<>();
+    }
+
+    public TableBlock getTableBlock() {
+        return tableBlock;
+    }
+    public List<Entry> getEntries(String path){
+        TableStringPool stringPool = tableBlock.getStringPool();
+        StringGroup<TableString> group = stringPool.get(path);
+        if(group == null){
+            return EmptyList.of();
+        }
+        List<Entry> results = null;
+        for(TableString tableString : group.listItems()){
+            List<Entry> entryList = getEntries(tableString.getIndex());
+            if(entryList.isEmpty()){
+                continue;
+            }
+            if(results == null){
+                results = entryList;
+            }else {
+                results = new ArrayCollection<>(results);
+                results.addAll(entryList);
+            }
+        }
+        if(results == null){
+            return EmptyList.of();
+        }
+        return results;
+    }
+    public List<Entry> getEntries(int stringIndex){
+        ensureBuilt();
+        List<Entry> entryList = mEntryMap.get(stringIndex);
+        if(entryList == null){
+            return EmptyList.of();
+        }
+        int size = entryList.size();
+        List<Entry> results = null;
+        for(int i = 0; i < size; i++){
+            Entry entry = entryList.get(i);
+            if(isReferencing(entry, stringIndex)){
+                if(results != null){
+                    results.add(entry);
+                }
+                continue;
+            }
+            if(results == null){
+                results = new ArrayCollection<>(size);
+                results.addAll(entryList.subList(0, i));
+            }
+        }
+        if(results != null){
+            mEntryMap.put(stringIndex, results);
+            return results;
+        }
+        return entryList;
+    }
+    public boolean isBuilt(){
+        return mBuilt && mReferenceModCount == tableBlock.getStringPool().getReferenceModCount();
+    }
+    public void build(){
+        Map<Integer, List<Entry>> entryMap = this.mEntryMap;
+        entryMap.clear();
+        int modCount = tableBlock.getStringPool().getReferenceModCount();
+        for(PackageBlock packageBlock : tableBlock.listPackages()){
+            Iterator<SpecTypePair> iterator = packageBlock.getSpecTypePairs();
+            while (iterator.hasNext()){
+                SpecTypePair specTypePair = iterator.next();
+                if(!TypeBlock.canHaveResourceFile(specTypePair.getTypeName())){
+                    continue;
+                }
+                Iterator<TypeBlock> typeBlocks = specTypePair.getTypeBlocks();
+                while (typeBlocks.hasNext()){
+                    addAll(entryMap, typeBlocks.next());
+                }
+            }
+        }
+        mReferenceModCount = modCount;
+        mBuilt = true;
+    }
+    private void ensureBuilt(){
+        if(!isBuilt()){
+            build();
+        }
+    }
+    private void addAll(Map<Integer, List<Entry>> entryMap, TypeBlock typeBlock){
+        Iterator<Entry> iterator = typeBlock.getEntries();
+        while (iterator.hasNext()){
+            Entry entry = iterator.next();
+            int index = getFileStringIndex(entry);
+            if(index < 0){
+                continue;
+            }
+            List<Entry> entryList = entryMap.get(index);
+            if(entryList == null){
+                entryList = new ArrayCollection<>(1);
+                entryMap.put(index, entryList);
+            }
+            entryList.add(entry);
+        }
+    }
+    private static boolean isReferencing(Entry entry, int stringIndex){
+        return getFileStringIndex(entry) == stringIndex
+                && entry.getTypeBlock() != null;
+    }
+    private static int getFileStringIndex(Entry entry){
+        if(entry == null || entry.isNull() || !entry.isScalar()){
+            return -1;
+        }
+        ResValue resValue = entry.getResValue();
+        if(resValue == null || resValue.getValueType() != ValueType.STRING){
+            return -1;
+        }
+        return resValue.getData();
+    }
+}
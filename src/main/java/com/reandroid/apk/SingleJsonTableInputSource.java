@@ -19,7 +19,7 @@ import com.reandroid.archive.FileInputSource;
 import com.reandroid.archive.InputSource;
 import com.reandroid.arsc.chunk.TableBlock;
 import com.reandroid.json.JSONException;
-import com.reandroid.json.JSONObject;
+import com.reandroid.json.JSONStreamReader;
 
 import java.io.*;
 
@@ -57,15 +57,21 @@ public class SingleJsonTableInputSource extends InputSource {
         }
         logMessage("Building resources table: " + inputSource.getAlias());
         TableBlock tableBlock=newInstance();
-        InputStream inputStream = inputSource.openStream();
+        JSONStreamReader reader = null;
         try{
             JsonStringPoolBuilder poolBuilder = new JsonStringPoolBuilder();
-            JSONObject jsonObject = new JSONObject(inputStream);
-            poolBuilder.build(jsonObject);
+            reader = new JSONStreamReader(inputSource.openStream());
+            poolBuilder.build(reader);
+            reader.close();
             poolBuilder.apply(tableBlock);
-            tableBlock.fromJson(jsonObject);
+            reader = new JSONStreamReader(inputSource.openStream());
+            tableBlock.fromJson(reader);
         }catch (JSONException ex){
             throw new IOException(inputSource.getAlias(), ex);
+        }finally {
+            if(reader != null){
+                reader.close();
+            }
         }
         mCache = tableBlock;
         return tableBlock;
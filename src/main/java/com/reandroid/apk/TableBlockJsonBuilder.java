@@ -21,7 +21,9 @@ import com.reandroid.arsc.chunk.TableBlock;
 import com.reandroid.arsc.chunk.TypeBlock;
 import com.reandroid.arsc.value.ResConfig;
 import com.reandroid.json.JSONArray;
+import com.reandroid.json.JSONException;
 import com.reandroid.json.JSONObject;
+import com.reandroid.json.JSONStreamReader;
 
 import java.io.File;
 import java.io.IOException;
@@ -74,13 +76,20 @@ public class TableBlockJsonBuilder {
         packageBlock.sortTypes();
     }
     private void loadType(PackageBlock packageBlock, File typeJsonFile) throws IOException{
-        JSONObject jsonObject = new JSONObject(typeJsonFile);
-        ResConfig resConfig = new ResConfig();
-        resConfig.fromJson(jsonObject.getJSONObject(TypeBlock.NAME_config));
-        TypeBlock typeBlock=packageBlock.getSpecTypePairArray()
-                .getOrCreate(
-                        ((byte)(0xff & jsonObject.getInt(TypeBlock.NAME_id)))
-                        , resConfig);
-        typeBlock.fromJson(jsonObject);
+        JSONStreamReader reader = new JSONStreamReader(typeJsonFile);
+        try{
+            TypeBlock.fromJson(reader, header -> {
+                ResConfig resConfig = new ResConfig();
+                resConfig.fromJson(header.getJSONObject(TypeBlock.NAME_config));
+                return packageBlock.getSpecTypePairArray()
+                        .getOrCreate(
+                                ((byte)(0xff & header.getInt(TypeBlock.NAME_id)))
+                                , resConfig);
+            });
+        }catch (JSONException ex){
+            throw new IOException(typeJsonFile + ": " + ex.getMessage(), ex);
+        }finally {
+            reader.close();
+        }
     }
 }
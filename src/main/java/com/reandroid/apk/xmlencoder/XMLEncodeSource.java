@@ -25,6 +25,9 @@ public class XMLEncodeSource extends ByteInputSource {
         this.packageBlock = packageBlock;
         this.parserSource = parserSource;
     }
+    public XMLParserSource getParserSource() {
+        return parserSource;
+    }
     @Override
     public long getLength() throws IOException {
         return getArray().length;
@@ -24,6 +24,7 @@ import com.reandroid.arsc.chunk.xml.AndroidManifestBlock;
 import com.reandroid.arsc.coder.ReferenceString;
 import com.reandroid.arsc.coder.xml.XmlCoder;
 import com.reandroid.utils.HexUtil;
+import com.reandroid.utils.concurrent.WorkerPool;
 import com.reandroid.utils.io.IOUtil;
 import com.reandroid.json.JSONObject;
 import com.reandroid.xml.XMLDocument;
@@ -35,6 +36,7 @@ import org.xmlpull.v1.XmlPullParserException;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.zip.ZipEntry;
 
 public class XMLTableBlockEncoder {
@@ -43,6 +45,7 @@ public class XMLTableBlockEncoder {
     private final Set<File> parsedFiles = new HashSet<>();
     private final ApkModule apkModule;
     private Integer mMainPackageId;
+    private int threadCount = 1;
 
     public XMLTableBlockEncoder(ApkModule apkModule, TableBlock tableBlock){
         this.apkModule = apkModule;
@@ -62,6 +65,20 @@ public class XMLTableBlockEncoder {
                 new ZipEntryMap()), new TableBlock());
     }
 
+    public int getThreadCount() {
+        return threadCount;
+    }
+    /**
+     * Sets number of threads used to parse values xml files, zero or negative value
+     * uses available processors. Parsed entries are always encoded in directory
+     * and file order, thus the resulting table is the same as serial encoding.
+     * */
+    public void setThreadCount(int threadCount) {
+        if(threadCount <= 0){
+            threadCount = WorkerPool.defaultThreadCount();
+        }
+        this.threadCount = threadCount;
+    }
     public Integer getMainPackageId() {
         return mMainPackageId;
     }
@@ -273,22 +290,69 @@ public class XMLTableBlockEncoder {
     }
     private void encodeResDir(File resDir) throws IOException, XmlPullParserException {
         List<File> valuesDirList = ApkUtil.listValuesDirectory(resDir);
+        if(getThreadCount() > 1){
+            encodeValuesDirs(valuesDirList);
+            return;
+        }
         for(File valuesDir : valuesDirList){
             encodeValuesDir(valuesDir);
         }
     }
     private void encodeValuesDir(File valuesDir) throws IOException, XmlPullParserException {
+        List<File> xmlFiles = listValuesXmlToEncode(valuesDir);
+        for(File file:xmlFiles){
+            logVerbose("Encoding: " + IOUtil.shortPath(file, 4));
+            XmlCoder xmlCoder = XmlCoder.getInstance();
+            xmlCoder.VALUES_XML.encode(file, getTableBlock().getCurrentPackage());
+        }
+    }
+    /**
+     * Two phase encoding of values directories, all files are parsed concurrently
+     * then the parsed entries are encoded serially to the current package
+     * */
+    private void encodeValuesDirs(List<File> valuesDirList) throws IOException {
+        List<File> xmlFiles = new ArrayList<>();
+        for(File valuesDir : valuesDirList){
+            xmlFiles.addAll(listValuesXmlToEncode(valuesDir));
+        }
+        logVerbose("Parsing values xml files: " + xmlFiles.size()
+                + ", threads = " + getThreadCount());
+        XmlCoder.ValuesXml valuesXml = XmlCoder.getInstance().VALUES_XML;
+        List<Callable<List<XMLElement>>> tasks = new ArrayList<>(xmlFiles.size());
+        for(File file : xmlFiles){
+            tasks.add(() -> parseValuesXml(valuesXml, file));
+        }
+        List<List<XMLElement>> parsedList;
+        try(WorkerPool workerPool = new WorkerPool(getThreadCount())){
+            parsedList = workerPool.invokeAll(tasks);
+        }
+        PackageBlock packageBlock = getTableBlock().getCurrentPackage();
+        int size = xmlFiles.size();
+        for(int i = 0; i < size; i++){
+            File file = xmlFiles.get(i);
+            logVerbose("Encoding: " + IOUtil.shortPath(file, 4));
+            valuesXml.encode(file, parsedList.get(i), packageBlock);
+        }
+    }
+    private static List<XMLElement> parseValuesXml(XmlCoder.ValuesXml valuesXml, File file) throws IOException {
+        try {
+            return valuesXml.parseEntries(file);
+        } catch (XmlPullParserException ex) {
+            throw new IOException("Failed to parse: " + file, ex);
+        }
+    }
+    private List<File> listValuesXmlToEncode(File valuesDir){
         List<File> xmlFiles = ApkUtil.listFiles(valuesDir, ".xml");
         EncodeUtil.sortValuesXml(xmlFiles);
+        List<File> results = new ArrayList<>(xmlFiles.size());
         for(File file:xmlFiles){
             if(isAlreadyParsed(file)){
                 continue;
             }
             addParsedFiles(file);
-            logVerbose("Encoding: " + IOUtil.shortPath(file, 4));
-            XmlCoder xmlCoder = XmlCoder.getInstance();
-            xmlCoder.VALUES_XML.encode(file, getTableBlock().getCurrentPackage());
+            results.add(file);
         }
+        return results;
     }
     private File toAndroidManifest(File pubXmlFile){
         File resDirectory = toResDirectory(pubXmlFile);
@@ -20,18 +20,20 @@ import com.reandroid.archive.block.*;
 import com.reandroid.archive.io.*;
 import com.reandroid.archive.model.CentralFileDirectory;
 import com.reandroid.archive.model.LocalFileDirectory;
+import com.reandroid.archive.model.LocalFileResolver;
 import com.reandroid.utils.ObjectsUtil;
 import com.reandroid.utils.collection.ArrayIterator;
 import com.reandroid.utils.collection.CollectionUtil;
 import com.reandroid.utils.collection.ComputeIterator;
+import com.reandroid.utils.io.BufferPool;
 import com.reandroid.utils.io.FileUtil;
 import com.reandroid.utils.io.IOUtil;
+import com.reandroid.utils.io.PooledInflaterInputStream;
+import com.reandroid.utils.metrics.Metrics;
 
 import java.io.*;
 import java.util.*;
 import java.util.function.Predicate;
-import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 
 public abstract class Archive<T extends ZipInput> implements Closeable {
 
@@ -39,16 +41,55 @@ public abstract class Archive<T extends ZipInput> implements Closeable {
     private final ArchiveEntry[] entryList;
     private final EndRecord endRecord;
     private final ApkSignatureBlock apkSignatureBlock;
+    private final LocalFileResolver localFileResolver;
 
     public Archive(T zipInput) throws IOException {
+        this(zipInput, false);
+    }
+    /**
+     * @param lazyLocalFiles when true only central directory is read, local file
+     *                       header of each entry is read on first access to its data
+     *                       or in batch by prefetchLocalFiles. Listing entries and
+     *                       reading few of them then costs no scattered reads.
+     * */
+    public Archive(T zipInput, boolean lazyLocalFiles) throws IOException {
         this.zipInput = zipInput;
+        Metrics.Span span = Metrics.start(Metrics.ARCHIVE_OPEN);
         CentralFileDirectory cfd = new CentralFileDirectory();
-        cfd.visit(zipInput);
+        cfd.visit(zipInput, true);
         this.endRecord = cfd.getEndRecord();
         LocalFileDirectory lfd = new LocalFileDirectory(cfd);
-        lfd.visit(zipInput);
+        lfd.visit(zipInput, lazyLocalFiles);
         this.entryList  = lfd.buildArchiveEntryList();
         this.apkSignatureBlock = lfd.getApkSigBlock();
+        this.localFileResolver = lfd.getLocalFileResolver();
+        span.end();
+        Metrics.count(Metrics.ARCHIVE_ENTRIES, entryList.length);
+    }
+
+    public boolean isLazyLocalFiles(){
+        return localFileResolver != null;
+    }
+    public void prefetchLocalFiles() throws IOException {
+        prefetchLocalFiles(null);
+    }
+    /**
+     * Reads local file headers of entries matching the filter (all when null) in one
+     * forward pass, does nothing unless opened with lazy local files.
+     * */
+    public void prefetchLocalFiles(Predicate<? super ArchiveEntry> filter) throws IOException {
+        LocalFileResolver resolver = this.localFileResolver;
+        if(resolver == null){
+            return;
+        }
+        List<LocalFileHeader> headerList = new ArrayList<>(entryList.length);
+        for(ArchiveEntry entry : entryList){
+            if(entry.isResolved() || (filter != null && !filter.test(entry))){
+                continue;
+            }
+            headerList.add(entry.getLocalFileHeaderInternal());
+        }
+        resolver.prefetch(headerList);
     }
 
     public ZipEntryMap createZipEntryMap(){
@@ -116,8 +157,7 @@ public abstract class Archive<T extends ZipInput> implements Closeable {
         if(!archiveEntry.isCompressed()){
             return rawInputStream;
         }
-        return new InflaterInputStream(rawInputStream,
-                new Inflater(true), 1024*1000);
+        return new PooledInflaterInputStream(rawInputStream, BufferPool.COPY_BUFFER_SIZE);
     }
     public Iterator<ArchiveEntry> getFiles() {
         return iterator(ArchiveEntry::isFile);
@@ -178,7 +218,9 @@ public abstract class Archive<T extends ZipInput> implements Closeable {
     abstract void extractStored(File file, ArchiveEntry archiveEntry) throws IOException;
     private void extractCompressed(File file, ArchiveEntry archiveEntry) throws IOException {
         FileOutputStream outputStream = new FileOutputStream(file);
-        IOUtil.writeAll(openInputStream(archiveEntry), outputStream);
+        InputStream inputStream = openInputStream(archiveEntry);
+        IOUtil.writeAll(inputStream, outputStream);
+        inputStream.close();
         outputStream.close();
     }
     private File toFile(File dir, ArchiveEntry archiveEntry){
@@ -17,12 +17,40 @@ package com.reandroid.archive;
 
 import com.reandroid.archive.block.CentralEntryHeader;
 import com.reandroid.archive.block.LocalFileHeader;
+import com.reandroid.archive.model.CentralDirectoryTable;
+import com.reandroid.archive.model.LocalFileResolver;
 import com.reandroid.utils.HexUtil;
 
+import java.io.IOException;
+
 public class ArchiveEntry {
-    private final LocalFileHeader localFileHeader;
+    private final CentralDirectoryTable table;
+    private final int tableIndex;
+    private volatile LocalFileHeader localFileHeader;
+    private volatile LocalFileResolver localFileResolver;
     public ArchiveEntry(LocalFileHeader lfh){
+        this(lfh, null);
+    }
+    /**
+     * @param resolver when not null, lfh is a copy of central entry header and the
+     *                 actual local file header is read on first access of file
+     *                 offset or local file header, setters also read it first.
+     * */
+    public ArchiveEntry(LocalFileHeader lfh, LocalFileResolver resolver){
+        this.table = null;
+        this.tableIndex = -1;
         this.localFileHeader = lfh;
+        this.localFileResolver = resolver;
+    }
+    /**
+     * Entry of a plain record of the table, values are read from the table until
+     * header objects are accessed, then its local file header is created from the
+     * table and read by the resolver same as above.
+     * */
+    public ArchiveEntry(CentralDirectoryTable table, int index, LocalFileResolver resolver){
+        this.table = table;
+        this.tableIndex = index;
+        this.localFileResolver = resolver;
     }
     public long getDataSize(){
         if(getMethod() == Archive.STORED){
@@ -35,48 +63,81 @@ public class ArchiveEntry {
         return getMethod() != Archive.STORED;
     }
     public int getMethod(){
-        return localFileHeader.getMethod();
+        LocalFileHeader lfh = this.localFileHeader;
+        if(lfh == null){
+            return table.getMethod(tableIndex);
+        }
+        return lfh.getMethod();
     }
     public void setMethod(int method){
-        localFileHeader.setMethod(method);
+        getLocalFileHeader().setMethod(method);
         getCentralEntryHeader().setMethod(method);
     }
     public long getSize() {
-        return localFileHeader.getSize();
+        LocalFileHeader lfh = this.localFileHeader;
+        if(lfh == null){
+            return table.getSize(tableIndex);
+        }
+        return lfh.getSize();
     }
     public void setSize(long size) {
-        localFileHeader.setSize(size);
+        getLocalFileHeader().setSize(size);
         getCentralEntryHeader().setSize(size);
     }
     public long getCrc() {
-        return localFileHeader.getCrc();
+        LocalFileHeader lfh = this.localFileHeader;
+        if(lfh == null){
+            return table.getCrc(tableIndex);
+        }
+        return lfh.getCrc();
     }
     public void setCrc(long crc) {
-        localFileHeader.setCrc(crc);
+        getLocalFileHeader().setCrc(crc);
         getCentralEntryHeader().setCrc(crc);
     }
     public long getCompressedSize() {
-        return localFileHeader.getCompressedSize();
+        LocalFileHeader lfh = this.localFileHeader;
+        if(lfh == null){
+            return table.getCompressedSize(tableIndex);
+        }
+        return lfh.getCompressedSize();
     }
     public void setCompressedSize(long csize) {
-        localFileHeader.setCompressedSize(csize);
+        getLocalFileHeader().setCompressedSize(csize);
         getCentralEntryHeader().setCompressedSize(csize);
     }
     public long getFileOffset() {
-        return localFileHeader.getFileOffset();
+        if(this.localFileHeader == null){
+            long offset = table.getDataOffset(tableIndex);
+            if(offset != 0){
+                return offset;
+            }
+        }
+        return getLocalFileHeader().getFileOffset();
     }
     public String getName(){
-        return localFileHeader.getFileName();
+        LocalFileHeader lfh = this.localFileHeader;
+        if(lfh == null){
+            return table.getName(tableIndex);
+        }
+        return lfh.getFileName();
     }
     public String getSanitizedName(){
-        String name = ArchiveUtil.sanitizePath(localFileHeader.getFileName());
+        String name = ArchiveUtil.sanitizePath(getName());
         if(name == null){
-            name = ".error_file_path_" + localFileHeader.getIndex();
+            int index;
+            LocalFileHeader lfh = this.localFileHeader;
+            if(lfh == null){
+                index = tableIndex;
+            }else {
+                index = lfh.getIndex();
+            }
+            name = ".error_file_path_" + index;
         }
         return name;
     }
     public void setName(String name){
-        localFileHeader.setFileName(name);
+        getLocalFileHeader().setFileName(name);
         getCentralEntryHeader().setFileName(name);
     }
     public String getComment(){
@@ -92,17 +153,62 @@ public class ArchiveEntry {
         return this.getName().endsWith("/");
     }
     public CentralEntryHeader getCentralEntryHeader(){
-        CentralEntryHeader ceh = localFileHeader.getCentralEntryHeader();
+        LocalFileHeader lfh = getLocalFileHeaderInternal();
+        CentralEntryHeader ceh = lfh.getCentralEntryHeader();
         if(ceh == null){
-            ceh = CentralEntryHeader.fromLocalFileHeader(localFileHeader);
-            localFileHeader.setCentralEntryHeader(ceh);
+            ceh = CentralEntryHeader.fromLocalFileHeader(lfh);
+            lfh.setCentralEntryHeader(ceh);
         }
         return ceh;
     }
     public LocalFileHeader getLocalFileHeader() {
-        return localFileHeader;
+        resolve();
+        return getLocalFileHeaderInternal();
+    }
+    /**
+     * @return local file header without reading it, created from table if needed
+     * */
+    LocalFileHeader getLocalFileHeaderInternal() {
+        LocalFileHeader lfh = this.localFileHeader;
+        if(lfh != null){
+            return lfh;
+        }
+        synchronized (this){
+            lfh = this.localFileHeader;
+            if(lfh == null){
+                lfh = table.createLocalFileHeader(tableIndex);
+                this.localFileHeader = lfh;
+            }
+            return lfh;
+        }
+    }
+    /**
+     * @return true if local file header is read, either on access or by prefetch
+     * */
+    public boolean isResolved(){
+        if(localFileResolver == null){
+            return true;
+        }
+        LocalFileHeader lfh = this.localFileHeader;
+        return lfh != null && LocalFileResolver.isResolved(lfh);
+    }
+    private void resolve(){
+        LocalFileResolver resolver = this.localFileResolver;
+        if(resolver == null){
+            return;
+        }
+        try {
+            resolver.resolve(getLocalFileHeaderInternal());
+        } catch (IOException exception) {
+            throw new IllegalStateException("Failed to read local file header: "
+                    + getName(), exception);
+        }
+        this.localFileResolver = null;
     }
     public long getDosTime(){
+        if(this.localFileHeader == null){
+            return table.getDosTime(tableIndex);
+        }
         return getCentralEntryHeader().getDosTime();
     }
     public void setDosTime(long dosTime){
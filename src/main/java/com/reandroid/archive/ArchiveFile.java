@@ -29,9 +29,15 @@ public class ArchiveFile extends Archive<ZipFileInput>{
     public ArchiveFile(ZipFileInput zipInput) throws IOException {
         super(zipInput);
     }
+    public ArchiveFile(ZipFileInput zipInput, boolean lazyLocalFiles) throws IOException {
+        super(zipInput, lazyLocalFiles);
+    }
     public ArchiveFile(File file) throws IOException {
         this(new ZipFileInput(file));
     }
+    public ArchiveFile(File file, boolean lazyLocalFiles) throws IOException {
+        this(new ZipFileInput(file), lazyLocalFiles);
+    }
 
     @Override
     InputSource createInputSource(ArchiveEntry entry) {
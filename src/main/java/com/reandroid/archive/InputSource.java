@@ -18,6 +18,7 @@ package com.reandroid.archive;
 import com.reandroid.arsc.chunk.TableBlock;
 import com.reandroid.arsc.chunk.xml.AndroidManifestBlock;
 import com.reandroid.utils.StringsUtil;
+import com.reandroid.utils.io.BufferPool;
 
 import java.io.*;
 import java.util.Comparator;
@@ -106,11 +107,15 @@ public abstract class InputSource {
     }
     private long write(OutputStream outputStream, InputStream inputStream) throws IOException {
         long result=0;
-        byte[] buffer=new byte[1024 * 1000];
-        int len;
-        while ((len=inputStream.read(buffer))>0){
-            outputStream.write(buffer, 0, len);
-            result+=len;
+        byte[] buffer = BufferPool.obtain(BufferPool.COPY_BUFFER_SIZE);
+        try {
+            int len;
+            while ((len=inputStream.read(buffer))>0){
+                outputStream.write(buffer, 0, len);
+                result+=len;
+            }
+        }finally {
+            BufferPool.release(buffer);
         }
         close(inputStream);
         return result;
@@ -154,11 +159,15 @@ public abstract class InputSource {
         InputStream inputStream=openStream();
         long length=0;
         CRC32 crc = new CRC32();
-        int bytesRead;
-        byte[] buffer = new byte[1024*64];
-        while((bytesRead = inputStream.read(buffer)) != -1) {
-            crc.update(buffer, 0, bytesRead);
-            length+=bytesRead;
+        byte[] buffer = BufferPool.obtain(BufferPool.COPY_BUFFER_SIZE);
+        try {
+            int bytesRead;
+            while((bytesRead = inputStream.read(buffer)) != -1) {
+                crc.update(buffer, 0, bytesRead);
+                length+=bytesRead;
+            }
+        }finally {
+            BufferPool.release(buffer);
         }
         close(inputStream);
         mCrc=crc.getValue();
@@ -18,11 +18,10 @@ package com.reandroid.archive.io;
 import com.reandroid.archive.InputSource;
 import com.reandroid.archive.ArchiveEntry;
 import com.reandroid.archive.block.LocalFileHeader;
+import com.reandroid.utils.io.PooledInflaterInputStream;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 
 public class ArchiveEntrySource<T extends ZipInput> extends InputSource {
 
@@ -51,8 +50,7 @@ public class ArchiveEntrySource<T extends ZipInput> extends InputSource {
         if(lfh.getSize() == lfh.getCompressedSize()){
             return inputStream;
         }
-        return new InflaterInputStream(inputStream,
-                new Inflater(true), 512);
+        return new PooledInflaterInputStream(inputStream);
     }
     @Override
     public long getLength() throws IOException{
@@ -76,6 +76,18 @@ public class ZipByteInput extends ZipInput{
         return new BytesInputStream(this.array, (int)(offset + this.offset), (int)length);
     }
     @Override
+    public int read(long offset, byte[] bytes, int start, int length) {
+        long available = this.length - offset;
+        if(available <= 0){
+            return 0;
+        }
+        if(length > available){
+            length = (int) available;
+        }
+        System.arraycopy(array, (int) (offset + this.offset), bytes, start, length);
+        return length;
+    }
+    @Override
     public byte[] getFooter(int minLength) {
         if(minLength <= 0){
             return new byte[0];
@@ -59,6 +59,20 @@ public class ZipFileInput extends ZipInput {
         return mCurrentInputStream;
     }
 
+    @Override
+    public int read(long offset, byte[] bytes, int start, int length) throws IOException {
+        FileChannel fileChannel = getFileChannel();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, start, length);
+        int result = 0;
+        while (buffer.hasRemaining()){
+            int read = fileChannel.read(buffer, offset + result);
+            if(read < 0){
+                break;
+            }
+            result += read;
+        }
+        return result;
+    }
     @Override
     public byte[] getFooter(int minLength) throws IOException {
         long position = getLength();
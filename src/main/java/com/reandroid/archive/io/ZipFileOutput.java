@@ -15,7 +15,11 @@
  */
 package com.reandroid.archive.io;
 
+import com.reandroid.utils.io.BufferPool;
+
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
@@ -27,19 +31,68 @@ public class ZipFileOutput extends ZipOutput{
     private FileChannel fileChannel;
     private FileChannelOutputStream outputStream;
     public ZipFileOutput(File file) throws IOException {
-        initFile(file);
+        this(file, false);
+    }
+    /**
+     * @param keepContent if true the existing file is opened for update, writing starts
+     *                    at position zero unless positioned, otherwise any existing file
+     *                    is replaced by an empty one
+     * */
+    public ZipFileOutput(File file, boolean keepContent) throws IOException {
+        if(!keepContent){
+            initFile(file);
+        }else if(!file.isFile()){
+            throw new FileNotFoundException("No such file: " + file);
+        }
         this.file = file;
     }
     public File getFile() {
         return file;
     }
     public void write(FileChannel input, long length) throws IOException{
+        long offset = input.position();
+        transfer(input, offset, length);
+        input.position(offset + length);
+    }
+    /**
+     * Copies bytes of input at the given offset to current position. Uses transferTo,
+     * which the platform maps to a kernel copy (sendfile / copy_file_range) where
+     * available, thus data never enters java heap. Position of input is not used nor
+     * changed, a single input channel may be shared by positional readers.
+     * */
+    public void transfer(FileChannel input, long offset, long length) throws IOException{
         FileChannel fileChannel = getFileChannel();
         long pos = fileChannel.position();
-        length = fileChannel.transferFrom(input, pos, length);
+        long transferred = 0;
+        while (transferred < length){
+            long count = input.transferTo(offset + transferred,
+                    length - transferred, fileChannel);
+            if(count <= 0){
+                throw new EOFException("Unexpected end of input at "
+                        + (offset + transferred) + ", remaining = " + (length - transferred));
+            }
+            transferred += count;
+        }
         fileChannel.position(pos + length);
     }
 
+    /**
+     * Writes bytes at the given offset, current position is not changed
+     * */
+    public void write(long offset, byte[] bytes) throws IOException {
+        FileChannel fileChannel = getFileChannel();
+        ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+        while (byteBuffer.hasRemaining()){
+            fileChannel.write(byteBuffer, offset + byteBuffer.position());
+        }
+    }
+    /**
+     * Discards content after current position
+     * */
+    public void truncate() throws IOException {
+        FileChannel fileChannel = getFileChannel();
+        fileChannel.truncate(fileChannel.position());
+    }
     @Override
     public long position() throws IOException {
         return getFileChannel().position();
@@ -79,14 +132,19 @@ public class ZipFileOutput extends ZipOutput{
     public void write(InputStream inputStream) throws IOException {
         FileChannel fileChannel = getFileChannel();
         long pos = fileChannel.position();
-        int bufferLength = 1024 * 1000 * 100;
-        byte[] buffer = new byte[bufferLength];
+        byte[] buffer = BufferPool.obtain(BufferPool.COPY_BUFFER_SIZE);
         long result = 0;
-        int read;
-        while ((read = inputStream.read(buffer, 0, bufferLength)) > 0){
-            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
-            fileChannel.write(byteBuffer);
-            result += read;
+        try {
+            int read;
+            while ((read = inputStream.read(buffer, 0, buffer.length)) > 0){
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                while (byteBuffer.hasRemaining()){
+                    fileChannel.write(byteBuffer);
+                }
+                result += read;
+            }
+        }finally {
+            BufferPool.release(buffer);
         }
         inputStream.close();
         fileChannel.position(pos + result);
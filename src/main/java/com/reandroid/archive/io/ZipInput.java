@@ -16,7 +16,26 @@
 package com.reandroid.archive.io;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 public abstract class ZipInput implements ReadOnlyStream {
     public abstract byte[] getFooter(int minLength) throws IOException;
+    /**
+     * Reads bytes at the given offset. Subclasses read without disturbing the stream
+     * opened last by getInputStream, this default implementation does not.
+     * @return number of bytes read
+     * */
+    public int read(long offset, byte[] bytes, int start, int length) throws IOException {
+        InputStream inputStream = getInputStream(offset, length);
+        int result = 0;
+        while (result < length){
+            int read = inputStream.read(bytes, start + result, length - result);
+            if(read < 0){
+                break;
+            }
+            result += read;
+        }
+        inputStream.close();
+        return result;
+    }
 }
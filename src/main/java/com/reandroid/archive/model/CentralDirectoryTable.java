@@ -0,0 +1,261 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.archive.model;
+
+import com.reandroid.archive.ArchiveException;
+import com.reandroid.archive.ZipSignature;
+import com.reandroid.archive.block.CentralEntryHeader;
+import com.reandroid.archive.block.LocalFileHeader;
+import com.reandroid.archive.io.ZipInput;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Flat view of central directory: the whole directory is read once into a single
+ * array and parsed to primitive arrays of offsets, sizes, crc and method, names are
+ * slices of the directory decoded on first use. Header objects are created only on
+ * demand by createCentralEntryHeader / createLocalFileHeader, thus opening a giant
+ * archive allocates a few arrays instead of several objects per entry.
+ * Records having ZIP64 placeholder values are not plain, their values need header
+ * objects to be read the same way as before.
+ * */
+public class CentralDirectoryTable {
+    private final byte[] directory;
+    private int size;
+    private int[] recordOffsets;
+    private long[] localOffsets;
+    private long[] compressedSizes;
+    private long[] sizes;
+    private int[] crcs;
+    private int[] methods;
+    private long[] dataOffsets;
+    private String[] names;
+
+    private CentralDirectoryTable(byte[] directory, int capacity){
+        this.directory = directory;
+        this.recordOffsets = new int[capacity];
+        this.localOffsets = new long[capacity];
+        this.compressedSizes = new long[capacity];
+        this.sizes = new long[capacity];
+        this.crcs = new int[capacity];
+        this.methods = new int[capacity];
+    }
+
+    public int size(){
+        return size;
+    }
+    public boolean isPlain(int index){
+        return localOffsets[index] != ZIP64_VALUE
+                && compressedSizes[index] != ZIP64_VALUE
+                && sizes[index] != ZIP64_VALUE;
+    }
+    public long getLocalOffset(int index){
+        return localOffsets[index];
+    }
+    /**
+     * @return offset of data or zero if local header is not read yet
+     * */
+    public long getDataOffset(int index){
+        long[] dataOffsets = this.dataOffsets;
+        if(dataOffsets != null){
+            return dataOffsets[index];
+        }
+        return 0;
+    }
+    public long getCompressedSize(int index){
+        return compressedSizes[index];
+    }
+    public long getSize(int index){
+        return sizes[index];
+    }
+    public long getCrc(int index){
+        return crcs[index] & 0xffffffffL;
+    }
+    public int getMethod(int index){
+        return methods[index];
+    }
+    public long getDosTime(int index){
+        return getInteger(recordOffsets[index] + OFFSET_dos_time) & 0xffffffffL;
+    }
+    public String getName(int index){
+        String[] names = this.names;
+        if(names == null){
+            names = new String[size];
+            this.names = names;
+        }
+        String name = names[index];
+        if(name == null){
+            int offset = recordOffsets[index];
+            name = new String(directory, offset + OFFSET_fileName,
+                    getShort(offset + OFFSET_fileNameLength), StandardCharsets.UTF_8);
+            names[index] = name;
+        }
+        return name;
+    }
+    public CentralEntryHeader createCentralEntryHeader(int index){
+        int offset = recordOffsets[index];
+        CentralEntryHeader ceh = new CentralEntryHeader();
+        try {
+            ceh.readBytes(new ByteArrayInputStream(directory, offset, recordLength(offset)));
+        } catch (IOException exception) {
+            // never thrown by array stream
+            throw new IllegalStateException(exception);
+        }
+        return ceh;
+    }
+    /**
+     * Same as headers of lazily read archives: local file header copied from its
+     * central entry header, to be read in place by LocalFileResolver
+     * */
+    public LocalFileHeader createLocalFileHeader(int index){
+        CentralEntryHeader ceh = createCentralEntryHeader(index);
+        LocalFileHeader lfh = LocalFileHeader.fromCentralEntryHeader(ceh);
+        lfh.setCentralEntryHeader(ceh);
+        lfh.setIndex(index);
+        return lfh;
+    }
+    /**
+     * Reads fixed part of local file header of each plain record to find offset of its
+     * data, records ordered by offset (the usual layout) are read in one forward pass
+     * */
+    public void readDataOffsets(ZipInput zipInput) throws IOException {
+        int size = this.size;
+        long[] dataOffsets = new long[size];
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long bufferOffset = 0;
+        int bufferLength = 0;
+        for(int i = 0; i < size; i++){
+            if(!isPlain(i)){
+                continue;
+            }
+            long offset = localOffsets[i];
+            if(offset < bufferOffset || offset + LFH_LENGTH > bufferOffset + bufferLength){
+                bufferOffset = offset;
+                bufferLength = zipInput.read(offset, buffer, 0, buffer.length);
+            }
+            int position = (int) (offset - bufferOffset);
+            if(bufferLength - position < LFH_LENGTH
+                    || getInteger(buffer, position) != ZipSignature.LOCAL_FILE.getValue()){
+                throw new ArchiveException("Error reading LFH at "
+                        + offset + ", for CEH = " + getName(i));
+            }
+            dataOffsets[i] = offset + LFH_LENGTH
+                    + getShort(buffer, position + LFH_OFFSET_fileNameLength)
+                    + getShort(buffer, position + LFH_OFFSET_extraLength);
+        }
+        this.dataOffsets = dataOffsets;
+    }
+
+    private void parse(){
+        byte[] directory = this.directory;
+        int length = directory.length;
+        int offset = 0;
+        while (offset + MIN_LENGTH <= length
+                && getInteger(offset) == ZipSignature.CENTRAL_FILE.getValue()){
+            int recordLength = recordLength(offset);
+            if(offset + recordLength > length){
+                break;
+            }
+            add(offset);
+            offset += recordLength;
+        }
+    }
+    private void add(int offset){
+        int index = this.size;
+        if(index == recordOffsets.length){
+            grow();
+        }
+        recordOffsets[index] = offset;
+        localOffsets[index] = getInteger(offset + OFFSET_localRelativeOffset) & 0xffffffffL;
+        compressedSizes[index] = getInteger(offset + OFFSET_compressed_size) & 0xffffffffL;
+        sizes[index] = getInteger(offset + OFFSET_size) & 0xffffffffL;
+        crcs[index] = getInteger(offset + OFFSET_crc);
+        methods[index] = getShort(offset + OFFSET_method);
+        this.size = index + 1;
+    }
+    private void grow(){
+        int capacity = recordOffsets.length;
+        capacity = capacity + (capacity >> 1) + 16;
+        recordOffsets = Arrays.copyOf(recordOffsets, capacity);
+        localOffsets = Arrays.copyOf(localOffsets, capacity);
+        compressedSizes = Arrays.copyOf(compressedSizes, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        crcs = Arrays.copyOf(crcs, capacity);
+        methods = Arrays.copyOf(methods, capacity);
+    }
+    private int recordLength(int offset){
+        return MIN_LENGTH
+                + getShort(offset + OFFSET_fileNameLength)
+                + getShort(offset + OFFSET_extraLength)
+                + getShort(offset + OFFSET_commentLength);
+    }
+    private int getShort(int offset){
+        return getShort(directory, offset);
+    }
+    private int getInteger(int offset){
+        return getInteger(directory, offset);
+    }
+    private static int getShort(byte[] bytes, int offset){
+        return (bytes[offset] & 0xff) | ((bytes[offset + 1] & 0xff) << 8);
+    }
+    private static int getInteger(byte[] bytes, int offset){
+        return (bytes[offset] & 0xff)
+                | ((bytes[offset + 1] & 0xff) << 8)
+                | ((bytes[offset + 2] & 0xff) << 16)
+                | ((bytes[offset + 3] & 0xff) << 24);
+    }
+
+    /**
+     * @return table of the given directory region or null if it does not fit in a
+     *         single array
+     * */
+    public static CentralDirectoryTable read(ZipInput zipInput, long offset, long length, int capacity) throws IOException {
+        if(length > MAX_DIRECTORY_LENGTH){
+            return null;
+        }
+        byte[] directory = new byte[(int) length];
+        int read = zipInput.read(offset, directory, 0, directory.length);
+        if(read != directory.length){
+            directory = Arrays.copyOf(directory, Math.max(read, 0));
+        }
+        CentralDirectoryTable table = new CentralDirectoryTable(directory, capacity);
+        table.parse();
+        return table;
+    }
+
+    private static final long ZIP64_VALUE = 0xffffffffL;
+    private static final long MAX_DIRECTORY_LENGTH = Integer.MAX_VALUE - 8;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int OFFSET_method = 10;
+    private static final int OFFSET_dos_time = 12;
+    private static final int OFFSET_crc = 16;
+    private static final int OFFSET_compressed_size = 20;
+    private static final int OFFSET_size = 24;
+    private static final int OFFSET_fileNameLength = 28;
+    private static final int OFFSET_extraLength = 30;
+    private static final int OFFSET_commentLength = 32;
+    private static final int OFFSET_localRelativeOffset = 42;
+    private static final int OFFSET_fileName = 46;
+    private static final int MIN_LENGTH = OFFSET_fileName;
+
+    private static final int LFH_OFFSET_fileNameLength = 26;
+    private static final int LFH_OFFSET_extraLength = 28;
+    private static final int LFH_LENGTH = 30;
+}
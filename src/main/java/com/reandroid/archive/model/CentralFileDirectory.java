@@ -25,17 +25,40 @@ import java.util.List;
 
 public class CentralFileDirectory {
     private List<CentralEntryHeader> headerList;
+    private CentralDirectoryTable table;
     private EndRecord endRecord;
     private SignatureFooter signatureFooter;
     public CentralFileDirectory(){
         this.headerList = new ArrayList<>();
     }
     public int count(){
+        CentralDirectoryTable table = this.table;
+        if(table != null){
+            return table.size();
+        }
         return headerList.size();
     }
+    /**
+     * When visited as flat table, headers are created from the table on first call
+     * */
     public List<CentralEntryHeader> getHeaderList() {
+        CentralDirectoryTable table = this.table;
+        if(table != null && headerList.size() != table.size()){
+            int size = table.size();
+            List<CentralEntryHeader> headerList = new ArrayList<>(size);
+            for(int i = 0; i < size; i++){
+                headerList.add(table.createCentralEntryHeader(i));
+            }
+            this.headerList = headerList;
+        }
         return headerList;
     }
+    /**
+     * @return flat table of central directory, or null unless visited as flat table
+     * */
+    public CentralDirectoryTable getTable() {
+        return table;
+    }
 
     public SignatureFooter getSignatureFooter() {
         return signatureFooter;
@@ -44,12 +67,28 @@ public class CentralFileDirectory {
         return endRecord;
     }
     public void visit(ZipInput zipInput) throws IOException {
+        visit(zipInput, false);
+    }
+    /**
+     * @param flat when true central directory is read as CentralDirectoryTable and
+     *             no header object is created, unless it is too large for a table
+     * */
+    public void visit(ZipInput zipInput, boolean flat) throws IOException {
         EndRecord endRecord = new EndRecord();
         endRecord.findEndRecord(zipInput);
-        InputStream inputStream = zipInput.getInputStream(endRecord.getOffsetOfCentralDirectory(),
-                endRecord.getLengthOfCentralDirectory());
         this.endRecord = endRecord;
-        this.headerList = loadCentralFileHeaders(inputStream, endRecord.getTotalNumberOfDirectories());
+        long offset = endRecord.getOffsetOfCentralDirectory();
+        long length = endRecord.getLengthOfCentralDirectory();
+        int capacity = endRecord.getTotalNumberOfDirectories();
+        CentralDirectoryTable table = null;
+        if(flat){
+            table = CentralDirectoryTable.read(zipInput, offset, length, capacity);
+        }
+        this.table = table;
+        if(table == null){
+            InputStream inputStream = zipInput.getInputStream(offset, length);
+            this.headerList = loadCentralFileHeaders(inputStream, capacity);
+        }
         this.signatureFooter = tryFindSignatureFooter(zipInput, endRecord);
     }
     private List<CentralEntryHeader> loadCentralFileHeaders(InputStream inputStream, int capacity) throws IOException {
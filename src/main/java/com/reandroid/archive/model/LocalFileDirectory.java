@@ -25,20 +25,80 @@ import com.reandroid.arsc.io.BlockReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 public class LocalFileDirectory {
     private final CentralFileDirectory centralFileDirectory;
     private final List<LocalFileHeader> headerList;
     private ApkSignatureBlock apkSignatureBlock;
+    private LocalFileResolver localFileResolver;
+    private LocalFileResolver tableResolver;
     public LocalFileDirectory(CentralFileDirectory centralFileDirectory){
         this.centralFileDirectory = centralFileDirectory;
-        this.headerList = new ArrayList<>(centralFileDirectory.count() + 2);
+        if(centralFileDirectory.getTable() != null){
+            this.headerList = new ArrayList<>();
+        }else {
+            this.headerList = new ArrayList<>(centralFileDirectory.count() + 2);
+        }
     }
     public void visit(ZipInput zipInput) throws IOException {
-        visitLocalFile(zipInput);
+        visit(zipInput, false);
+    }
+    /**
+     * @param lazy when true local file headers are not read here but by
+     *             the LocalFileResolver of built entries, on first access
+     * */
+    public void visit(ZipInput zipInput, boolean lazy) throws IOException {
+        CentralDirectoryTable table = getCentralFileDirectory().getTable();
+        if(table != null){
+            visitTable(zipInput, table, lazy);
+        }else if(lazy){
+            visitCentralOnly(zipInput);
+        }else {
+            visitLocalFile(zipInput);
+        }
         visitApkSigBlock(zipInput);
     }
+    /**
+     * Entries of plain records read the table, local file headers are not created
+     * here. Unless lazy, data offsets are read for validation, thus header list holds
+     * headers of records that are not plain only.
+     * */
+    private void visitTable(ZipInput zipInput, CentralDirectoryTable table, boolean lazy) throws IOException {
+        LocalFileResolver resolver = new LocalFileResolver(zipInput);
+        if(!lazy){
+            table.readDataOffsets(zipInput);
+        }
+        List<LocalFileHeader> headerList = this.getHeaderList();
+        int size = table.size();
+        for(int i = 0; i < size; i++){
+            if(table.isPlain(i)){
+                continue;
+            }
+            LocalFileHeader lfh = table.createLocalFileHeader(i);
+            if(!lazy){
+                resolver.resolve(lfh);
+            }
+            headerList.add(lfh);
+        }
+        this.tableResolver = resolver;
+        if(lazy){
+            this.localFileResolver = resolver;
+        }
+    }
+    private void visitCentralOnly(ZipInput zipInput){
+        List<LocalFileHeader> headerList = this.getHeaderList();
+        int index = 0;
+        for(CentralEntryHeader ceh : getCentralFileDirectory().getHeaderList()){
+            LocalFileHeader lfh = LocalFileHeader.fromCentralEntryHeader(ceh);
+            lfh.setCentralEntryHeader(ceh);
+            lfh.setIndex(index);
+            headerList.add(lfh);
+            index++;
+        }
+        this.localFileResolver = new LocalFileResolver(zipInput);
+    }
     private void visitLocalFile(ZipInput zipInput) throws IOException {
         List<LocalFileHeader> headerList = this.getHeaderList();
         long offset;
@@ -91,6 +151,9 @@ public class LocalFileDirectory {
         apkSignatureBlock.readBytes(new BlockReader(zipInput.getInputStream(offset, length)));
         this.apkSignatureBlock = apkSignatureBlock;
     }
+    public LocalFileResolver getLocalFileResolver() {
+        return localFileResolver;
+    }
     public ApkSignatureBlock getApkSigBlock() {
         return apkSignatureBlock;
     }
@@ -101,16 +164,36 @@ public class LocalFileDirectory {
         return headerList;
     }
     public ArchiveEntry[] buildArchiveEntryList(){
+        CentralDirectoryTable table = getCentralFileDirectory().getTable();
+        if(table != null){
+            return buildTableEntryList(table);
+        }
         List<LocalFileHeader> headerList = getHeaderList();
         int size = headerList.size();
         ArchiveEntry[] entryList = new ArchiveEntry[size];
+        LocalFileResolver resolver = getLocalFileResolver();
         for(int i = 0; i < size; i++){
             LocalFileHeader lfh = headerList.get(i);
             CentralEntryHeader ceh = lfh.getCentralEntryHeader();
             if(ceh == null){
                 continue;
             }
-            entryList[i] = new ArchiveEntry(lfh);
+            entryList[i] = new ArchiveEntry(lfh, resolver);
+        }
+        return entryList;
+    }
+    private ArchiveEntry[] buildTableEntryList(CentralDirectoryTable table){
+        int size = table.size();
+        ArchiveEntry[] entryList = new ArchiveEntry[size];
+        LocalFileResolver tableResolver = this.tableResolver;
+        LocalFileResolver resolver = getLocalFileResolver();
+        Iterator<LocalFileHeader> iterator = getHeaderList().iterator();
+        for(int i = 0; i < size; i++){
+            if(table.isPlain(i)){
+                entryList[i] = new ArchiveEntry(table, i, tableResolver);
+            }else {
+                entryList[i] = new ArchiveEntry(iterator.next(), resolver);
+            }
         }
         return entryList;
     }
@@ -0,0 +1,156 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.archive.model;
+
+import com.reandroid.archive.ArchiveException;
+import com.reandroid.archive.block.CentralEntryHeader;
+import com.reandroid.archive.block.DataDescriptor;
+import com.reandroid.archive.block.LocalFileHeader;
+import com.reandroid.archive.io.ZipInput;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads local file headers on demand for archives opened from central directory
+ * only. Headers start as copies of their central entry header and are read in place,
+ * thus references to them stay valid. Single headers are read by positional reads of
+ * ZipInput, prefetch reads many headers in one forward pass ordered by offset.
+ * */
+public class LocalFileResolver {
+    private final ZipInput zipInput;
+
+    public LocalFileResolver(ZipInput zipInput){
+        this.zipInput = zipInput;
+    }
+
+    public ZipInput getZipInput() {
+        return zipInput;
+    }
+    public synchronized void resolve(LocalFileHeader lfh) throws IOException {
+        if(isResolved(lfh)){
+            return;
+        }
+        read(new HeaderInputStream(zipInput, SINGLE_BUFFER_SIZE), lfh);
+    }
+    public synchronized void prefetch(List<LocalFileHeader> headerList) throws IOException {
+        List<LocalFileHeader> pending = new ArrayList<>();
+        for(LocalFileHeader lfh : headerList){
+            if(!isResolved(lfh)){
+                pending.add(lfh);
+            }
+        }
+        if(pending.isEmpty()){
+            return;
+        }
+        pending.sort((lfh1, lfh2) -> Long.compare(
+                lfh1.getCentralEntryHeader().getLocalRelativeOffset(),
+                lfh2.getCentralEntryHeader().getLocalRelativeOffset()));
+        HeaderInputStream inputStream = new HeaderInputStream(zipInput, PREFETCH_BUFFER_SIZE);
+        for(LocalFileHeader lfh : pending){
+            read(inputStream, lfh);
+        }
+    }
+
+    private static void read(HeaderInputStream inputStream, LocalFileHeader lfh) throws IOException {
+        CentralEntryHeader ceh = lfh.getCentralEntryHeader();
+        long offset = ceh.getLocalRelativeOffset();
+        inputStream.seek(offset);
+        lfh.readBytes(inputStream);
+        if(!lfh.isValidSignature()){
+            throw new ArchiveException("Error reading LFH at "
+                    + offset + ", for CEH = " + ceh.getFileName());
+        }
+        offset = offset + lfh.countBytes();
+        ceh.setFileOffset(offset);
+        lfh.setCentralEntryHeader(ceh);
+
+        DataDescriptor dataDescriptor = null;
+        if(lfh.hasDataDescriptor()){
+            inputStream.seek(offset + lfh.getDataSize());
+            dataDescriptor = new DataDescriptor();
+            int read = dataDescriptor.readBytes(inputStream);
+            if(read != dataDescriptor.countBytes()){
+                dataDescriptor = null;
+            }
+        }
+        lfh.setDataDescriptor(dataDescriptor);
+    }
+    /**
+     * Headers are never at offset zero once read, as data follows the header
+     * */
+    public static boolean isResolved(LocalFileHeader lfh){
+        return lfh.getFileOffset() != 0;
+    }
+
+    private static class HeaderInputStream extends InputStream {
+        private final ZipInput zipInput;
+        private final byte[] buffer;
+        private long bufferOffset;
+        private int bufferLength;
+        private long position;
+
+        HeaderInputStream(ZipInput zipInput, int bufferSize){
+            this.zipInput = zipInput;
+            this.buffer = new byte[bufferSize];
+        }
+
+        void seek(long position){
+            this.position = position;
+        }
+        @Override
+        public int read() throws IOException {
+            if(!fill()){
+                return -1;
+            }
+            int b = buffer[(int) (position - bufferOffset)] & 0xff;
+            position ++;
+            return b;
+        }
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int result = 0;
+            while (result < length && fill()){
+                int start = (int) (position - bufferOffset);
+                int read = bufferLength - start;
+                if(read > length - result){
+                    read = length - result;
+                }
+                System.arraycopy(buffer, start, bytes, offset + result, read);
+                position += read;
+                result += read;
+            }
+            if(result == 0 && length != 0){
+                return -1;
+            }
+            return result;
+        }
+        private boolean fill() throws IOException {
+            long position = this.position;
+            if(position >= bufferOffset && position < bufferOffset + bufferLength){
+                return true;
+            }
+            bufferOffset = position;
+            bufferLength = zipInput.read(position, buffer, 0, buffer.length);
+            return bufferLength > 0;
+        }
+    }
+
+    private static final int SINGLE_BUFFER_SIZE = 512;
+    private static final int PREFETCH_BUFFER_SIZE = 64 * 1024;
+}
@@ -0,0 +1,287 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.archive.writer;
+
+import com.reandroid.archive.ArchiveEntry;
+import com.reandroid.archive.ArchiveFile;
+import com.reandroid.archive.InputSource;
+import com.reandroid.archive.RenamedInputSource;
+import com.reandroid.archive.block.DataDescriptor;
+import com.reandroid.archive.block.LocalFileHeader;
+import com.reandroid.archive.io.ArchiveFileEntrySource;
+import com.reandroid.archive.io.ZipFileInput;
+import com.reandroid.archive.io.ZipFileOutput;
+import com.reandroid.arsc.chunk.TableBlock;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Writes sources back to the archive file they were loaded from, rewriting only what
+ * changed. Unchanged entries whose data is already aligned stay where they are, their
+ * local header is rewritten in place only when it differs and keeps its size. All
+ * other entries, signature block and central directory are appended after the last
+ * kept entry and the file is truncated there. Data of unchanged entries that is about
+ * to be overwritten is copied to buffer first, thus removed or relocated entries leave
+ * gaps of unreferenced bytes; when gaps exceed the given percent of the kept region
+ * nothing is kept and the whole archive is compacted.
+ * The file is modified in place: the archive it was loaded from (and its sources) is
+ * stale afterwards, an interrupted write leaves the file corrupt and readers that scan
+ * local headers sequentially instead of central directory may find entries in gaps.
+ * */
+public class ApkPatchWriter extends ApkWriter<ZipFileOutput, FileOutputSource> {
+    private final ZipFileInput zipInput;
+    private final Map<FileOutputSource, byte[]> keptMap;
+    private BufferFileInput buffer;
+    private int maxDeadPercent;
+    private long deadBytes;
+    private boolean compacted;
+
+    public ApkPatchWriter(ArchiveFile archiveFile, InputSource[] sources) throws IOException {
+        super(new ZipFileOutput(archiveFile.getZipInput().getFile(), true), sources);
+        this.zipInput = archiveFile.getZipInput();
+        this.keptMap = new IdentityHashMap<>();
+        this.maxDeadPercent = DEFAULT_MAX_DEAD_PERCENT;
+    }
+
+    public int getMaxDeadPercent() {
+        return maxDeadPercent;
+    }
+    /**
+     * Compacts the whole archive when unreferenced bytes before the appended region
+     * exceed the given percent of it, zero never compacts.
+     * */
+    public void setMaxDeadPercent(int maxDeadPercent) {
+        if(maxDeadPercent < 0){
+            maxDeadPercent = 0;
+        }else if(maxDeadPercent > 100){
+            maxDeadPercent = 100;
+        }
+        this.maxDeadPercent = maxDeadPercent;
+    }
+    /**
+     * @return unreferenced bytes left in the file by the last write
+     * */
+    public long getDeadBytes() {
+        return deadBytes;
+    }
+    /**
+     * @return true if the last write rewrote every entry
+     * */
+    public boolean isCompacted() {
+        return compacted;
+    }
+    @Override
+    void closeBuffer() throws IOException{
+        buffer.close();
+    }
+    @Override
+    void finishOutput() throws IOException {
+        getZipOutput().truncate();
+    }
+    @Override
+    void writeApk(FileOutputSource outputSource, ZipAligner zipAligner) throws IOException{
+        Map<FileOutputSource, byte[]> keptMap = this.keptMap;
+        if(!keptMap.containsKey(outputSource)){
+            outputSource.writeApk(getZipOutput(), zipAligner);
+            return;
+        }
+        byte[] header = keptMap.get(outputSource);
+        if(header != null){
+            LocalFileHeader lfh = outputSource.getLocalFileHeader();
+            getZipOutput().write(lfh.getFileOffset() - header.length, header);
+        }
+    }
+    @Override
+    void prepareOutputs(FileOutputSource[] outList) throws IOException {
+        long start = planInPlace(outList);
+        logMessage("Kept in place: " + keptMap.size() + ", appending from: " + start);
+        logMessage("Buffering compress changed files ...");
+        BufferFileInput buffer = writeBuffer(outList, start);
+        buffer.unlock();
+        this.buffer = buffer;
+        getZipOutput().position(start);
+    }
+    @Override
+    FileOutputSource[] createOutArray(int length){
+        return new FileOutputSource[length];
+    }
+    @Override
+    FileOutputSource toOutputSource(InputSource inputSource){
+        if(inputSource instanceof ArchiveFileEntrySource){
+            return new ArchiveOutputSource(inputSource);
+        }
+        if(inputSource instanceof RenamedInputSource){
+            RenamedInputSource<?> renamedInputSource = ((RenamedInputSource<?>) inputSource);
+            if(renamedInputSource.getParentInputSource(ArchiveFileEntrySource.class) != null){
+                return new RenamedArchiveSource(renamedInputSource);
+            }
+        }
+        return new FileOutputSource(inputSource);
+    }
+
+    /**
+     * Decides which entries stay in place and prepares their headers
+     * @return offset to start appending at
+     * */
+    private long planInPlace(FileOutputSource[] outList) throws IOException {
+        Map<FileOutputSource, byte[]> keptMap = this.keptMap;
+        keptMap.clear();
+        Set<ArchiveEntry> entrySet = Collections.newSetFromMap(new IdentityHashMap<>());
+        ZipAligner zipAligner = getZipAligner();
+        long start = 0;
+        long keptBytes = 0;
+        for(FileOutputSource out : outList){
+            if(out.getClass() != ArchiveOutputSource.class){
+                continue;
+            }
+            ArchiveFileEntrySource entrySource = ((ArchiveOutputSource) out).getArchiveSource();
+            ArchiveEntry entry = entrySource.getArchiveEntry();
+            if(!isTargetFile(entrySource.getZipSource())
+                    || entry.getMethod() != entrySource.getMethod()
+                    || !entrySet.add(entry)){
+                continue;
+            }
+            LocalFileHeader original = entry.getLocalFileHeader();
+            long headerOffset = entry.getCentralEntryHeader().getLocalRelativeOffset();
+            long dataOffset = original.getFileOffset();
+            if(zipAligner != null && !zipAligner.isAligned(dataOffset, original)){
+                continue;
+            }
+            keptMap.put(out, prepareHeader(out, original, headerOffset, dataOffset));
+            long end = dataOffset + original.getDataSize();
+            DataDescriptor dataDescriptor = original.getDataDescriptor();
+            if(dataDescriptor != null){
+                end += dataDescriptor.countBytes();
+            }
+            keptBytes += end - headerOffset;
+            if(end > start){
+                start = end;
+            }
+        }
+        long deadBytes = start - keptBytes;
+        int maxDeadPercent = getMaxDeadPercent();
+        if(maxDeadPercent != 0 && deadBytes * 100 > start * maxDeadPercent){
+            logMessage("Compacting, unreferenced bytes: " + deadBytes);
+            keptMap.clear();
+            start = 0;
+            deadBytes = 0;
+            this.compacted = true;
+        }else {
+            this.compacted = false;
+        }
+        this.deadBytes = deadBytes;
+        return start;
+    }
+    /**
+     * @return header bytes to rewrite or null if the header on disk is kept as is
+     * */
+    private byte[] prepareHeader(FileOutputSource out, LocalFileHeader original,
+                                 long headerOffset, long dataOffset) throws IOException {
+        LocalFileHeader lfh = out.prepareLFH(headerOffset, getZipAligner());
+        int length = (int) (dataOffset - headerOffset);
+        byte[] header = null;
+        if(lfh.countBytes() == length
+                && lfh.hasDataDescriptor() == original.hasDataDescriptor()){
+            header = lfh.getBytes();
+            byte[] current = new byte[length];
+            zipInput.read(headerOffset, current, 0, length);
+            if(Arrays.equals(header, current)){
+                header = null;
+            }
+        }else {
+            DataDescriptor dataDescriptor = original.getDataDescriptor();
+            if(dataDescriptor != null){
+                dataDescriptor = dataDescriptor.copy();
+            }
+            lfh.setDataDescriptor(dataDescriptor);
+        }
+        // central directory computes local header offset from these
+        lfh.setFileOffset(headerOffset + lfh.countBytes());
+        return header;
+    }
+    private BufferFileInput writeBuffer(FileOutputSource[] outputList, long start) throws IOException {
+        File bufferFile = getBufferFile();
+        BufferFileOutput output = new BufferFileOutput(bufferFile);
+        BufferFileInput input = new BufferFileInput(bufferFile);
+        Map<FileOutputSource, byte[]> keptMap = this.keptMap;
+        FileOutputSource tableSource = null;
+        int length = outputList.length;
+        for(int i = 0; i < length; i++){
+            FileOutputSource fileOutputSource = outputList[i];
+            if(keptMap.containsKey(fileOutputSource)){
+                continue;
+            }
+            InputSource inputSource = fileOutputSource.getInputSource();
+            if(tableSource == null && TableBlock.FILE_NAME.equals(inputSource.getAlias())){
+                tableSource = fileOutputSource;
+                continue;
+            }
+            onCompressFileProgress(inputSource.getAlias(),
+                    inputSource.getMethod(),
+                    output.position());
+            makeBuffer(fileOutputSource, input, output, start);
+        }
+        if(tableSource != null){
+            makeBuffer(tableSource, input, output, start);
+        }
+        output.close();
+        return input;
+    }
+    private void makeBuffer(FileOutputSource outputSource, BufferFileInput input,
+                            BufferFileOutput output, long start) throws IOException {
+        if(isOverwritten(outputSource, start)){
+            outputSource.makeRawBuffer(input, output);
+        }else {
+            outputSource.makeBuffer(input, output);
+        }
+    }
+    private boolean isOverwritten(FileOutputSource outputSource, long start){
+        if(!(outputSource instanceof ArchiveOutputSource)){
+            return false;
+        }
+        ArchiveFileEntrySource entrySource = ((ArchiveOutputSource) outputSource).getArchiveSource();
+        if(!isTargetFile(entrySource.getZipSource())){
+            return false;
+        }
+        ArchiveEntry entry = entrySource.getArchiveEntry();
+        return entry.getFileOffset() + entry.getDataSize() > start;
+    }
+    private boolean isTargetFile(ZipFileInput zipFileInput){
+        if(zipFileInput == this.zipInput){
+            return true;
+        }
+        File file = zipFileInput.getFile().getAbsoluteFile();
+        return file.equals(getZipOutput().getFile().getAbsoluteFile());
+    }
+    private File getBufferFile(){
+        File file = getZipOutput().getFile();
+        File dir = file.getParentFile();
+        String name = file.getAbsolutePath();
+        name = "tmp" + name.hashCode();
+        File bufFile;
+        if(dir != null){
+            bufFile = new File(dir, name);
+        }else {
+            bufFile = new File(name);
+        }
+        bufFile.deleteOnExit();
+        return bufFile;
+    }
+
+    private static final int DEFAULT_MAX_DEAD_PERCENT = 50;
+}
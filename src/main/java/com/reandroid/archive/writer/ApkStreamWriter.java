@@ -22,15 +22,33 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 public class ApkStreamWriter extends ApkWriter<ZipStreamOutput, StreamOutputSource>{
+    private boolean streaming;
+
     public ApkStreamWriter(ZipStreamOutput zipOutput, InputSource[] sources) {
         super(zipOutput, sources);
     }
     public ApkStreamWriter(OutputStream outputStream, InputSource[] sources) {
         this(new ZipStreamOutput(outputStream), sources);
     }
+    public boolean isStreaming() {
+        return streaming;
+    }
+    /**
+     * When true entries are written straight to output stream, memory use does not
+     * depend on entry size. Compressed entries then carry data descriptors and
+     * stored entries are read twice, first for crc and size. When false (default)
+     * each entry is buffered in memory and written with sizes in its header.
+     * */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
     @Override
     void writeApk(StreamOutputSource outputSource, ZipAligner zipAligner) throws IOException {
-        outputSource.writeApk(getZipOutput(), zipAligner);
+        if(isStreaming()){
+            outputSource.writeApkStreaming(getZipOutput(), zipAligner);
+        }else {
+            outputSource.writeApk(getZipOutput(), zipAligner);
+        }
     }
     @Override
     void prepareOutputs(StreamOutputSource[] outList) throws IOException {
@@ -22,6 +22,7 @@ import com.reandroid.archive.WriteProgress;
 import com.reandroid.archive.ZipSignature;
 import com.reandroid.archive.block.*;
 import com.reandroid.archive.io.ZipOutput;
+import com.reandroid.utils.metrics.Metrics;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -32,6 +33,7 @@ public abstract class ApkWriter<T extends ZipOutput, OUT extends OutputSource> i
     private final T zipOutput;
     private final InputSource[] inputSources;
     private ZipAligner zipAligner;
+    private CompressionPolicy compressionPolicy;
     private ApkSignatureBlock apkSignatureBlock;
     private APKLogger apkLogger;
     private WriteProgress writeProgress;
@@ -41,11 +43,13 @@ public abstract class ApkWriter<T extends ZipOutput, OUT extends OutputSource> i
         this.zipOutput = zipOutput;
         this.inputSources = sources;
         this.zipAligner = ZipAligner.apkAligner();
+        this.compressionPolicy = new CompressionPolicy();
         this.interceptorChain = HeaderInterceptorChain.createDefault();
     }
 
     public void write()throws IOException {
         synchronized (mLock){
+            Metrics.Span span = Metrics.start(Metrics.APK_WRITE);
             OUT[] outList = buildOutputEntries();
 
             prepareOutputs(outList);
@@ -55,8 +59,12 @@ public abstract class ApkWriter<T extends ZipOutput, OUT extends OutputSource> i
 
             writeSignatureBlock();
             writeCEHList(outList);
+            finishOutput();
+            Metrics.count(Metrics.WRITE_ENTRIES, outList.length);
+            Metrics.count(Metrics.WRITE_BYTES, position());
 
             this.close();
+            span.end();
         }
     }
     private void writeApkList(OUT[] outputList) throws IOException{
@@ -75,6 +83,8 @@ public abstract class ApkWriter<T extends ZipOutput, OUT extends OutputSource> i
     }
     void closeBuffer() throws IOException{
     }
+    void finishOutput() throws IOException{
+    }
     private void writeCEHList(OUT[] outputList) throws IOException{
         EndRecord endRecord = new EndRecord();
         endRecord.setSignature(ZipSignature.END_RECORD);
@@ -111,10 +121,12 @@ public abstract class ApkWriter<T extends ZipOutput, OUT extends OutputSource> i
         if(interceptorChain.isDisabled()){
             interceptorChain = null;
         }
+        CompressionPolicy compressionPolicy = getCompressionPolicy();
         for(int i = 0; i < length; i++){
             InputSource inputSource = sources[i];
             OUT out = toOutputSource(inputSource);
             out.setHeaderInterceptor(interceptorChain);
+            out.setCompressionPolicy(compressionPolicy);
             results[i] = out;
         }
         return results;
@@ -143,6 +155,15 @@ public abstract class ApkWriter<T extends ZipOutput, OUT extends OutputSource> i
     public void setZipAligner(ZipAligner zipAligner) {
         this.zipAligner = zipAligner;
     }
+    public CompressionPolicy getCompressionPolicy() {
+        return compressionPolicy;
+    }
+    public void setCompressionPolicy(CompressionPolicy compressionPolicy) {
+        if(compressionPolicy == null){
+            compressionPolicy = new CompressionPolicy();
+        }
+        this.compressionPolicy = compressionPolicy;
+    }
 
     public void setApkSignatureBlock(ApkSignatureBlock apkSignatureBlock) {
         this.apkSignatureBlock = apkSignatureBlock;
@@ -0,0 +1,162 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.archive.writer;
+
+import com.reandroid.archive.io.CountingOutputStream;
+import com.reandroid.common.BytesOutputStream;
+import com.reandroid.utils.io.BufferPool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Deflates entry data to raw stream with a pooled deflater of CompressionPolicy.
+ * When sampling, the first block is held back and deflated with a sync flush, if
+ * that saves enough the deflater just continues after it, otherwise the deflater is
+ * reset and the entry is stored. Either way the sample is deflated only once.
+ * Raw stream is left open.
+ * */
+class CompressingOutputStream extends OutputStream {
+    private final CompressionPolicy policy;
+    private final int level;
+    private final CountingOutputStream<OutputStream> rawCounter;
+    private final CRC32 crc;
+    private long size;
+    private Deflater deflater;
+    private DeflaterOutputStream deflaterStream;
+    private OutputStream target;
+    private byte[] sample;
+    private int sampleLimit;
+    private int sampleLength;
+    private boolean stored;
+
+    CompressingOutputStream(OutputStream rawStream, CompressionPolicy policy, int level, boolean sampling){
+        this.policy = policy;
+        this.level = level;
+        this.rawCounter = new CountingOutputStream<>(rawStream, true);
+        this.crc = new CRC32();
+        this.deflater = policy.obtainDeflater(level);
+        if(sampling){
+            this.sampleLimit = policy.getSampleSize();
+            this.sample = BufferPool.obtain(sampleLimit);
+        }else {
+            startDeflate();
+        }
+    }
+
+    public boolean isStored() {
+        return stored;
+    }
+    public long getCrc() {
+        return crc.getValue();
+    }
+    public long getSize() {
+        return size;
+    }
+    public long getCompressedSize() {
+        return rawCounter.getSize();
+    }
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if(length == 0){
+            return;
+        }
+        crc.update(bytes, offset, length);
+        size += length;
+        if(target == null){
+            byte[] sample = this.sample;
+            int copy = sampleLimit - sampleLength;
+            if(copy > length){
+                copy = length;
+            }
+            System.arraycopy(bytes, offset, sample, sampleLength, copy);
+            sampleLength += copy;
+            offset += copy;
+            length -= copy;
+            if(sampleLength < sampleLimit){
+                return;
+            }
+            decide();
+        }
+        if(length > 0){
+            target.write(bytes, offset, length);
+        }
+    }
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+    public void finish() throws IOException {
+        if(target == null){
+            decide();
+        }
+        if(deflaterStream != null){
+            deflaterStream.finish();
+        }
+    }
+    /**
+     * Returns deflater to pool, data written after this is lost
+     * */
+    public void release(){
+        Deflater deflater = this.deflater;
+        if(deflater != null){
+            this.deflater = null;
+            policy.releaseDeflater(level, deflater);
+        }
+        BufferPool.release(sample);
+        sample = null;
+    }
+    private void decide() throws IOException {
+        byte[] sample = this.sample;
+        int length = this.sampleLength;
+        this.sample = null;
+        Deflater deflater = this.deflater;
+        deflater.setInput(sample, 0, length);
+        BytesOutputStream compressed = new BytesOutputStream();
+        byte[] buffer = BufferPool.obtain(BUFFER_SIZE);
+        try {
+            int read;
+            do {
+                read = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                compressed.write(buffer, 0, read);
+            }while (read == buffer.length);
+        }finally {
+            BufferPool.release(buffer);
+        }
+        byte[] bytes = compressed.toByteArray();
+        if(policy.isWorthCompressing(length, bytes.length)){
+            startDeflate();
+            rawCounter.write(bytes, 0, bytes.length);
+        }else {
+            deflater.reset();
+            stored = true;
+            target = rawCounter;
+            rawCounter.write(sample, 0, length);
+        }
+        BufferPool.release(sample);
+    }
+    private void startDeflate(){
+        DeflaterOutputStream deflaterStream = new DeflaterOutputStream(
+                rawCounter, deflater, BUFFER_SIZE, true);
+        this.deflaterStream = deflaterStream;
+        this.target = deflaterStream;
+    }
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+}
@@ -0,0 +1,126 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.archive.writer;
+
+import com.reandroid.utils.io.CodecPool;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+
+/**
+ * Decides how compressed entries are deflated: level per file name pattern (first
+ * match wins, same as ZipAligner) and optional sampling of the first block, which
+ * stores the entry instead when deflating it saves less than the given percent.
+ * Deflaters come from the shared CodecPool, thus they are reused across entries and
+ * across writers.
+ * */
+public class CompressionPolicy {
+    private final Map<Pattern, Integer> levelMap;
+    private int defaultLevel;
+    private int minSavingPercent;
+    private int sampleSize;
+
+    public CompressionPolicy(){
+        this.levelMap = new LinkedHashMap<>();
+        this.defaultLevel = Deflater.BEST_SPEED;
+        this.sampleSize = DEFAULT_SAMPLE_SIZE;
+    }
+
+    public void setLevel(Pattern patternFileName, int level){
+        if(patternFileName == null){
+            return;
+        }
+        levelMap.remove(patternFileName);
+        levelMap.put(patternFileName, checkLevel(level));
+    }
+    public void clearLevels(){
+        levelMap.clear();
+    }
+    public int getDefaultLevel() {
+        return defaultLevel;
+    }
+    public void setDefaultLevel(int defaultLevel) {
+        this.defaultLevel = checkLevel(defaultLevel);
+    }
+    public int getLevel(String name){
+        for(Map.Entry<Pattern, Integer> entry : levelMap.entrySet()){
+            Matcher matcher = entry.getKey().matcher(name);
+            if(matcher.matches()){
+                return entry.getValue();
+            }
+        }
+        return getDefaultLevel();
+    }
+    public int getMinSavingPercent() {
+        return minSavingPercent;
+    }
+    /**
+     * Entries whose first block shrinks by less than the given percent are stored
+     * (e.g. png, jpeg, ogg), zero disables sampling. Applies to buffered writes only,
+     * streaming writes of ApkStreamWriter must decide the method before any data.
+     * */
+    public void setMinSavingPercent(int minSavingPercent) {
+        if(minSavingPercent < 0){
+            minSavingPercent = 0;
+        }else if(minSavingPercent > 100){
+            minSavingPercent = 100;
+        }
+        this.minSavingPercent = minSavingPercent;
+    }
+    public boolean isSamplingEnabled(){
+        return minSavingPercent > 0;
+    }
+    public int getSampleSize() {
+        return sampleSize;
+    }
+    public void setSampleSize(int sampleSize) {
+        if(sampleSize < MIN_SAMPLE_SIZE){
+            sampleSize = MIN_SAMPLE_SIZE;
+        }
+        this.sampleSize = sampleSize;
+    }
+    /**
+     * @return true if deflating sample of the given length to the given compressed
+     *         length saves enough
+     * */
+    public boolean isWorthCompressing(int sampleLength, int compressedLength){
+        if(!isSamplingEnabled() || sampleLength == 0){
+            return true;
+        }
+        long saving = sampleLength - compressedLength;
+        return saving * 100 >= (long) sampleLength * minSavingPercent;
+    }
+
+    public Deflater obtainDeflater(int level){
+        return CodecPool.obtainDeflater(level);
+    }
+    public void releaseDeflater(int level, Deflater deflater){
+        CodecPool.releaseDeflater(level, deflater);
+    }
+
+    private static int checkLevel(int level){
+        if(level != Deflater.DEFAULT_COMPRESSION &&
+                (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)){
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        return level;
+    }
+
+    private static final int DEFAULT_SAMPLE_SIZE = 64 * 1024;
+    private static final int MIN_SAMPLE_SIZE = 1024;
+}
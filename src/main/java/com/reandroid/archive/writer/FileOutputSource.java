@@ -41,6 +41,25 @@ class FileOutputSource extends OutputSource {
         }
         this.entryBuffer = writeBuffer(input, output);
     }
+    /**
+     * Same as makeBuffer but raw data of an unchanged archive entry is copied to the
+     * buffer instead of being referenced, for sources that are overwritten before
+     * writing completes (e.g. patching the archive in place)
+     * */
+    void makeRawBuffer(BufferFileInput input, BufferFileOutput output) throws IOException {
+        if(this.entryBuffer != null){
+            return;
+        }
+        EntryBuffer source = makeFromEntry();
+        if(source == null){
+            makeBuffer(input, output);
+            return;
+        }
+        long offset = output.position();
+        output.transfer(source.getZipFileInput().getFileChannel(),
+                source.getOffset(), source.getLength());
+        this.entryBuffer = new EntryBuffer(input, offset, source.getLength());
+    }
     private EntryBuffer writeBuffer(BufferFileInput input, ZipOutput output) throws IOException {
         long offset = output.position();
         writeBuffer(output);
@@ -54,16 +73,15 @@ class FileOutputSource extends OutputSource {
         logLargeFileWrite();
         EntryBuffer entryBuffer = this.entryBuffer;
         FileChannel input = entryBuffer.getZipFileInput().getFileChannel();
-        input.position(entryBuffer.getOffset());
         writeLFH(zipFileOutput, zipAligner);
-        writeData(input, entryBuffer.getLength(), zipFileOutput);
+        writeData(input, entryBuffer.getOffset(), entryBuffer.getLength(), zipFileOutput);
         writeDD(zipFileOutput);
     }
-    private void writeData(FileChannel input, long length, ZipFileOutput apkFileWriter) throws IOException{
+    private void writeData(FileChannel input, long inputOffset, long length, ZipFileOutput apkFileWriter) throws IOException{
         long offset = apkFileWriter.position();
         LocalFileHeader lfh = getLocalFileHeader();
         lfh.setFileOffset(offset);
-        apkFileWriter.write(input, length);
+        apkFileWriter.transfer(input, inputOffset, length);
     }
 
 
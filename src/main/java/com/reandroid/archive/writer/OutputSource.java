@@ -25,53 +25,68 @@ import com.reandroid.archive.block.LocalFileHeader;
 import com.reandroid.archive.io.CountingOutputStream;
 import com.reandroid.archive.io.ZipOutput;
 import com.reandroid.utils.io.FileUtil;
+import com.reandroid.utils.metrics.Metrics;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
 
 class OutputSource {
     private final InputSource inputSource;
     private LocalFileHeader lfh;
     private APKLogger apkLogger;
     private HeaderInterceptor headerInterceptor;
+    private CompressionPolicy compressionPolicy;
 
     OutputSource(InputSource inputSource){
         this.inputSource = inputSource;
     }
 
     void writeBuffer(ZipOutput zipOutput) throws IOException {
+        writeData(zipOutput.getOutputStream(), true);
+    }
+    /**
+     * Writes data of input source (deflated unless stored) to the given stream and
+     * sets method, sizes and crc of local file header, the stream is left open.
+     * @param allowStore when true compressed entries may end up stored, see
+     *                   CompressionPolicy.setMinSavingPercent
+     * */
+    void writeData(OutputStream rawStream, boolean allowStore) throws IOException {
         LocalFileHeader lfh = getLocalFileHeader();
         InputSource inputSource = getInputSource();
-        OutputStream rawStream = zipOutput.getOutputStream();
-        CountingOutputStream<OutputStream> rawCounter = new CountingOutputStream<>(rawStream);
-        CountingOutputStream<DeflaterOutputStream> deflateCounter = null;
-
-        if(inputSource.getMethod() != Archive.STORED){
-            DeflaterOutputStream deflaterInputStream =
-                    new DeflaterOutputStream(rawCounter, new Deflater(Deflater.BEST_SPEED, true), true);
-            deflateCounter = new CountingOutputStream<>(deflaterInputStream, false);
-        }
-        if(deflateCounter != null){
-            rawCounter.disableCrc(true);
-            inputSource.write(deflateCounter);
-            deflateCounter.close();
-            rawCounter.close();
-        }else {
+        if(inputSource.getMethod() == Archive.STORED){
+            CountingOutputStream<OutputStream> rawCounter = new CountingOutputStream<>(rawStream);
             inputSource.write(rawCounter);
-        }
-
-        lfh.setCompressedSize(rawCounter.getSize());
-
-        if(deflateCounter != null){
-            lfh.setMethod(Archive.DEFLATED);
-            lfh.setCrc(deflateCounter.getCrc());
-            lfh.setSize(deflateCounter.getSize());
-        }else {
-            lfh.setSize(rawCounter.getSize());
             lfh.setMethod(Archive.STORED);
+            lfh.setCompressedSize(rawCounter.getSize());
+            lfh.setSize(rawCounter.getSize());
             lfh.setCrc(rawCounter.getCrc());
+        }else {
+            Metrics.Span span = Metrics.start(Metrics.COMPRESS);
+            CompressionPolicy policy = getCompressionPolicy();
+            CompressingOutputStream outputStream = new CompressingOutputStream(rawStream, policy,
+                    policy.getLevel(inputSource.getAlias()),
+                    allowStore && policy.isSamplingEnabled());
+            try {
+                inputSource.write(outputStream);
+                outputStream.finish();
+            }finally {
+                outputStream.release();
+            }
+            if(outputStream.isStored()){
+                lfh.setMethod(Archive.STORED);
+            }else {
+                lfh.setMethod(Archive.DEFLATED);
+            }
+            lfh.setCompressedSize(outputStream.getCompressedSize());
+            lfh.setSize(outputStream.getSize());
+            lfh.setCrc(outputStream.getCrc());
+            span.end();
+            Metrics.count(Metrics.COMPRESS_ENTRIES, 1);
+            if(outputStream.isStored()){
+                Metrics.count(Metrics.COMPRESS_STORED, 1);
+            }
+            Metrics.count(Metrics.COMPRESS_BYTES_IN, outputStream.getSize());
+            Metrics.count(Metrics.COMPRESS_BYTES_OUT, outputStream.getCompressedSize());
         }
         inputSource.disposeInputSource();
     }
@@ -90,14 +105,33 @@ class OutputSource {
         dataDescriptor.writeBytes(apkFileWriter.getOutputStream());
     }
     void writeLFH(ZipOutput zipOutput, ZipAligner zipAligner) throws IOException {
+        LocalFileHeader lfh = prepareLFH(zipOutput.position(), zipAligner);
+        lfh.writeBytes(zipOutput.getOutputStream());
+    }
+    /**
+     * Aligns local file header for the given header offset and lets interceptors
+     * update it, without writing
+     * */
+    LocalFileHeader prepareLFH(long offset, ZipAligner zipAligner){
         LocalFileHeader lfh = getLocalFileHeader();
         if(zipAligner != null){
-            zipAligner.align(zipOutput.position(), lfh);
+            zipAligner.align(offset, lfh);
         }
         notifyLFHWrite(lfh);
-        lfh.writeBytes(zipOutput.getOutputStream());
+        return lfh;
     }
 
+    CompressionPolicy getCompressionPolicy() {
+        CompressionPolicy policy = this.compressionPolicy;
+        if(policy == null){
+            policy = new CompressionPolicy();
+            this.compressionPolicy = policy;
+        }
+        return policy;
+    }
+    void setCompressionPolicy(CompressionPolicy compressionPolicy) {
+        this.compressionPolicy = compressionPolicy;
+    }
     public void setHeaderInterceptor(HeaderInterceptor interceptor) {
         this.headerInterceptor = interceptor;
     }
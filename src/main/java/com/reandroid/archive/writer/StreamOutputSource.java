@@ -15,7 +15,11 @@
  */
 package com.reandroid.archive.writer;
 
+import com.reandroid.apk.CrcOutputStream;
+import com.reandroid.archive.Archive;
 import com.reandroid.archive.InputSource;
+import com.reandroid.archive.block.DataDescriptor;
+import com.reandroid.archive.block.LocalFileHeader;
 import com.reandroid.archive.io.ZipByteOutput;
 import com.reandroid.archive.io.ZipStreamOutput;
 
@@ -35,4 +39,46 @@ class StreamOutputSource extends OutputSource{
         zipOutput.write(buffer.toByteArray());
         writeDD(zipOutput);
     }
+    /**
+     * Writes entry data straight to output without buffering it. Stored entries get
+     * crc and size by a first pass over input source, as they must precede the data.
+     * Compressed entries are deflated to output and followed by a data descriptor.
+     * */
+    void writeApkStreaming(ZipStreamOutput zipOutput, ZipAligner zipAligner) throws IOException {
+        LocalFileHeader lfh = getLocalFileHeader();
+        InputSource inputSource = getInputSource();
+        if(inputSource.getMethod() == Archive.STORED){
+            CrcOutputStream crcOutputStream = new CrcOutputStream();
+            inputSource.write(crcOutputStream);
+            long crc = crcOutputStream.getCrcValue();
+            long size = crcOutputStream.getLength();
+            lfh.setMethod(Archive.STORED);
+            lfh.setCrc(crc);
+            lfh.setSize(size);
+            lfh.setCompressedSize(size);
+            writeLFH(zipOutput, zipAligner);
+            lfh.setFileOffset(zipOutput.position());
+            writeData(zipOutput.getOutputStream(), false);
+            if(lfh.getCrc() != crc || lfh.getSize() != size){
+                throw new IOException("Input source changed between passes: "
+                        + inputSource.getAlias());
+            }
+        }else {
+            lfh.setMethod(Archive.DEFLATED);
+            lfh.setCrc(0);
+            lfh.setSize(0);
+            lfh.setCompressedSize(0);
+            if(zipAligner != null){
+                zipAligner.align(zipOutput.position(), lfh);
+            }
+            if(lfh.getDataDescriptor() == null){
+                lfh.setDataDescriptor(DataDescriptor.fromLocalFile(lfh));
+            }
+            writeLFH(zipOutput, null);
+            lfh.setFileOffset(zipOutput.position());
+            writeData(zipOutput.getOutputStream(), false);
+            lfh.setDataDescriptor(DataDescriptor.fromLocalFile(lfh));
+            writeDD(zipOutput);
+        }
+    }
 }
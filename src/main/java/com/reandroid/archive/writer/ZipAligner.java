@@ -72,6 +72,16 @@ public class ZipAligner {
         }
         lfh.setZipAlign(padding);
     }
+    /**
+     * @return true if data at the given offset needs no padding, compressed and ZIP64
+     *         entries are never aligned
+     * */
+    public boolean isAligned(long dataOffset, LocalFileHeader lfh){
+        if(lfh.getMethod() != Archive.STORED || ZipHeader.isZip64Length(dataOffset + lfh.getSize())){
+            return true;
+        }
+        return dataOffset % getAlignment(lfh.getFileName()) == 0;
+    }
     private void createDataDescriptor(LocalFileHeader lfh){
         DataDescriptor dataDescriptor;
         if(enableDataDescriptor){
@@ -27,6 +27,7 @@ import com.reandroid.arsc.value.ValueType;
 import com.reandroid.json.JSONConvert;
 import com.reandroid.json.JSONArray;
 import com.reandroid.json.JSONObject;
+import com.reandroid.json.JSONWriter;
 
 import java.util.Iterator;
 
@@ -186,6 +187,22 @@ public class EntryArray extends OffsetBlockArray<Entry> implements JSONConvert<J
         }
         return jsonArray;
     }
+    /**
+     * Streaming equivalent of toJson()
+     * */
+    public void writeJson(JSONWriter writer) {
+        writer.array();
+        String name_id = Entry.NAME_id;
+        for(Entry entry : listItems(true)){
+            JSONObject childObject = entry.toJson();
+            if(childObject==null){
+                continue;
+            }
+            childObject.put(name_id, entry.getId());
+            writer.value(childObject);
+        }
+        writer.endArray();
+    }
     @Override
     public void fromJson(JSONArray json) {
         clearChildes();
@@ -196,6 +213,38 @@ public class EntryArray extends OffsetBlockArray<Entry> implements JSONConvert<J
         }
         refreshCountAndStart();
     }
+    /**
+     * Same as fromJson(JSONArray) but entries are pulled one by one, used for
+     * streaming json decoding where the whole array is never materialized
+     * */
+    public void fromJson(Iterator<JSONObject> iterator) {
+        clearChildes();
+        boolean sparse = isSparse();
+        SparseOffsetsArray offsetsArray = null;
+        if(sparse){
+            offsetsArray = (SparseOffsetsArray) getOffsetArray();
+            offsetsArray.setSize(0);
+        }
+        String name_id = Entry.NAME_id;
+        int i = 0;
+        while (iterator.hasNext()){
+            JSONObject jsonObject = iterator.next();
+            int id = jsonObject.getInt(name_id);
+            Entry entry;
+            if(sparse){
+                ensureSize(i + 1);
+                offsetsArray.setSize(i + 1);
+                offsetsArray.setIdx(i, id);
+                entry = super.get(i);
+            }else {
+                ensureSize(id + 1);
+                entry = super.get(id);
+            }
+            entry.fromJson(jsonObject);
+            i++;
+        }
+        refreshCountAndStart();
+    }
     private void fromJsonNonSparse(JSONArray json){
         int length=json.length();
         ensureSize(length);
@@ -28,6 +28,7 @@ import com.reandroid.arsc.value.ResConfig;
 import com.reandroid.json.JSONConvert;
 import com.reandroid.json.JSONArray;
 import com.reandroid.json.JSONObject;
+import com.reandroid.json.JSONStreamReader;
 
 import java.util.*;
 
@@ -314,6 +315,38 @@ public class SpecTypePairArray extends BlockArray<SpecTypePair>
             specTypePair.fromJson(jsonObject);
         }
     }
+    /**
+     * Streaming equivalent of fromJson(JSONArray), type blocks are read one by one
+     * */
+    public void fromJson(JSONStreamReader reader) {
+        reader.beginArray();
+        while (reader.hasNext()){
+            reader.beginObject();
+            SpecTypePair specTypePair = null;
+            JSONArray pendingTypes = null;
+            while (reader.hasNext()){
+                String name = reader.nextName();
+                if(SpecBlock.NAME_spec.equals(name)){
+                    JSONObject spec = reader.nextJSONObject();
+                    specTypePair = getOrCreate((byte) spec.getInt(TypeBlock.NAME_id));
+                    specTypePair.getSpecBlock().fromJson(spec);
+                }else if(SpecTypePair.NAME_types.equals(name)){
+                    if(specTypePair != null){
+                        specTypePair.getTypeBlockArray().fromJson(reader);
+                    }else {
+                        pendingTypes = reader.nextJSONArray();
+                    }
+                }else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if(specTypePair != null && pendingTypes != null){
+                specTypePair.getTypeBlockArray().fromJson(pendingTypes);
+            }
+        }
+        reader.endArray();
+    }
     public JSONArray toJson(boolean specsOnly) {
         JSONArray jsonArray=new JSONArray();
         int i=0;
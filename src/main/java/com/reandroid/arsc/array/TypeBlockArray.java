@@ -29,6 +29,7 @@ import com.reandroid.arsc.value.ResConfig;
 import com.reandroid.json.JSONConvert;
 import com.reandroid.json.JSONArray;
 import com.reandroid.json.JSONObject;
+import com.reandroid.json.JSONStreamReader;
 import com.reandroid.utils.collection.ComputeIterator;
 
 import java.io.IOException;
@@ -410,6 +411,17 @@ public class TypeBlockArray extends BlockArray<TypeBlock>
             typeBlock.fromJson(jsonObject);
         }
     }
+    /**
+     * Streaming equivalent of fromJson(JSONArray)
+     * */
+    public void fromJson(JSONStreamReader reader) {
+        reader.beginArray();
+        while (reader.hasNext()){
+            TypeBlock.fromJson(reader, header -> createNext(
+                    header.optBoolean(TypeBlock.NAME_is_sparse, false)));
+        }
+        reader.endArray();
+    }
     public void merge(TypeBlockArray typeBlockArray){
         if(typeBlockArray == null || typeBlockArray == this){
             return;
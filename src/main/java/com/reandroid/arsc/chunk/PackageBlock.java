@@ -41,6 +41,8 @@ import com.reandroid.common.Namespace;
 import com.reandroid.json.JSONArray;
 import com.reandroid.json.JSONConvert;
 import com.reandroid.json.JSONObject;
+import com.reandroid.json.JSONStreamReader;
+import com.reandroid.json.JSONWriter;
 import com.reandroid.utils.*;
 import com.reandroid.utils.collection.*;
 import com.reandroid.utils.io.IOUtil;
@@ -682,6 +684,58 @@ public class PackageBlock extends Chunk<PackageHeader>
         }
         return jsonObject;
     }
+    /**
+     * Streaming equivalent of toJson()
+     * */
+    public void writeJson(JSONWriter writer) {
+        writer.object();
+        writer.key(ARSCLib.NAME_arsc_lib_version).value(ARSCLib.getVersion());
+        writer.key(NAME_package_id).value(getId());
+        String name = getName();
+        if(name != null){
+            writer.key(NAME_package_name).value(name);
+        }
+        writer.key(NAME_specs).array();
+        for(SpecTypePair specTypePair : getSpecTypePairArray().listItems()){
+            specTypePair.writeJson(writer);
+        }
+        writer.endArray();
+        LibraryInfoArray libraryInfoArray = getLibraryBlock().getLibraryInfoArray();
+        if(libraryInfoArray.getChildesCount()>0){
+            writer.key(NAME_libraries).value(libraryInfoArray.toJson());
+        }
+        StagedAlias stagedAlias =
+                StagedAlias.mergeAll(getStagedAliasList().getChildes());
+        if(stagedAlias!=null){
+            writer.key(NAME_staged_aliases).value(
+                    stagedAlias.getStagedAliasEntryArray().toJson());
+        }
+        JSONArray jsonArray = getOverlayableList().toJson();
+        if(jsonArray!=null){
+            writer.key(NAME_overlaybles).value(jsonArray);
+        }
+        writer.endObject();
+    }
+    /**
+     * Streaming equivalent of fromJson(JSONObject), members other than specs
+     * are small thus they are collected and applied through fromJson(JSONObject)
+     * */
+    public void fromJson(JSONStreamReader reader) {
+        JSONObject json = new JSONObject();
+        reader.beginObject();
+        while (reader.hasNext()){
+            String name = reader.nextName();
+            if(NAME_specs.equals(name)){
+                fromJson(json);
+                json = new JSONObject();
+                getSpecTypePairArray().fromJson(reader);
+            }else {
+                json.put(name, reader.nextValue());
+            }
+        }
+        reader.endObject();
+        fromJson(json);
+    }
     @Override
     public void fromJson(JSONObject json) {
         int id = json.optInt(NAME_package_id, 0);
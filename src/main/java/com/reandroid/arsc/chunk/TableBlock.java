@@ -30,6 +30,8 @@ import com.reandroid.common.ReferenceResolver;
 import com.reandroid.json.JSONConvert;
 import com.reandroid.json.JSONArray;
 import com.reandroid.json.JSONObject;
+import com.reandroid.json.JSONStreamReader;
+import com.reandroid.json.JSONWriter;
 import com.reandroid.utils.ObjectsUtil;
 import com.reandroid.utils.collection.*;
 import org.xmlpull.v1.XmlPullParser;
@@ -740,6 +742,49 @@ public class TableBlock extends Chunk<TableHeader>
         getPackageArray().fromJson(json.getJSONArray(NAME_packages));
         refresh();
     }
+    /**
+     * Streaming equivalent of toJson(), entries are serialized and written one by one
+     * */
+    public void writeJson(JSONWriter writer) {
+        writer.object();
+        writer.key(ARSCLib.NAME_arsc_lib_version).value(ARSCLib.getVersion());
+        writer.key(NAME_packages).array();
+        for(PackageBlock packageBlock : getPackageArray().listItems()){
+            packageBlock.writeJson(writer);
+        }
+        writer.endArray();
+        JSONArray jsonArray = getStringPool().toJson();
+        if(jsonArray!=null){
+            writer.key(NAME_styled_strings).value(jsonArray);
+        }
+        writer.endObject();
+    }
+    /**
+     * Streaming equivalent of fromJson(JSONObject), string pool should be built
+     * beforehand as for fromJson(JSONObject)
+     * */
+    public void fromJson(JSONStreamReader reader) {
+        PackageArray packageArray = getPackageArray();
+        reader.beginObject();
+        while (reader.hasNext()){
+            String name = reader.nextName();
+            if(!NAME_packages.equals(name)){
+                reader.skipValue();
+                continue;
+            }
+            packageArray.clearChildes();
+            reader.beginArray();
+            int index = 0;
+            while (reader.hasNext()){
+                packageArray.ensureSize(index + 1);
+                packageArray.get(index).fromJson(reader);
+                index++;
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+        refresh();
+    }
     public void merge(TableBlock tableBlock){
         if(tableBlock==null||tableBlock==this){
             return;
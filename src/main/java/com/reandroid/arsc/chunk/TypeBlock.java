@@ -29,7 +29,10 @@ import com.reandroid.utils.HexUtil;
 import com.reandroid.arsc.value.Entry;
 import com.reandroid.arsc.value.ResConfig;
 import com.reandroid.json.JSONConvert;
+import com.reandroid.json.JSONArray;
 import com.reandroid.json.JSONObject;
+import com.reandroid.json.JSONStreamReader;
+import com.reandroid.json.JSONWriter;
 import com.reandroid.utils.collection.ComputeIterator;
 import com.reandroid.utils.collection.MergingIterator;
 
@@ -38,6 +41,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Function;
 
 public class TypeBlock extends Chunk<TypeHeader>
         implements JSONConvert<JSONObject>, Comparable<TypeBlock> {
@@ -337,6 +341,69 @@ public class TypeBlock extends Chunk<TypeHeader>
         getResConfig()
                 .fromJson(json.getJSONObject(NAME_config));
     }
+    /**
+     * Streaming equivalent of toJson(), entries are written one by one
+     * */
+    public void writeJson(JSONWriter writer) {
+        writer.object();
+        if(isSparse()){
+            writer.key(NAME_is_sparse).value(true);
+        }
+        writer.key(NAME_id).value(getId());
+        String name = getTypeName();
+        if(name != null){
+            writer.key(NAME_name).value(name);
+        }
+        writer.key(NAME_config).value(getResConfig().toJson());
+        writer.key(NAME_entries);
+        getEntryArray().writeJson(writer);
+        writer.endObject();
+    }
+    private void fromJsonHeader(JSONObject json) {
+        setId(json.getInt(NAME_id));
+        String name = json.optString(NAME_name);
+        if(name!=null){
+            setTypeName(name);
+        }
+        getResConfig().fromJson(json.getJSONObject(NAME_config));
+    }
+    /**
+     * Streaming equivalent of fromJson(JSONObject). Members before entries are
+     * collected to header json which is passed to typeBlockCreator, then entries are
+     * pulled one by one. If entries come before type id or config, entries array is buffered.
+     * */
+    public static TypeBlock fromJson(JSONStreamReader reader, Function<JSONObject, TypeBlock> typeBlockCreator) {
+        JSONObject header = new JSONObject();
+        TypeBlock typeBlock = null;
+        JSONArray pendingEntries = null;
+        reader.beginObject();
+        while (reader.hasNext()){
+            String name = reader.nextName();
+            if(!NAME_entries.equals(name)){
+                header.put(name, reader.nextValue());
+                continue;
+            }
+            if(!header.has(NAME_id) || !header.has(NAME_config)){
+                pendingEntries = reader.nextJSONArray();
+                continue;
+            }
+            typeBlock = typeBlockCreator.apply(header);
+            typeBlock.fromJsonHeader(header);
+            reader.beginArray();
+            typeBlock.getEntryArray().fromJson(reader.iterateObjects());
+            reader.endArray();
+        }
+        reader.endObject();
+        if(typeBlock == null){
+            typeBlock = typeBlockCreator.apply(header);
+            if(pendingEntries == null){
+                pendingEntries = new JSONArray();
+            }
+            header.put(NAME_entries, pendingEntries);
+            typeBlock.fromJson(header);
+        }
+        return typeBlock;
+    }
     public void merge(TypeBlock typeBlock){
         if(typeBlock==null||typeBlock==this){
             return;
@@ -28,6 +28,7 @@ import com.reandroid.common.BytesOutputStream;
 import com.reandroid.json.JSONArray;
 import com.reandroid.json.JSONConvert;
 import com.reandroid.json.JSONObject;
+import com.reandroid.json.JSONWriter;
 import com.reandroid.utils.collection.EmptyIterator;
 import com.reandroid.xml.XMLDocument;
 import com.reandroid.xml.XMLElement;
@@ -497,6 +498,19 @@ public class ResXmlDocument extends Chunk<HeaderBlock>
         }
         return jsonObject;
     }
+    /**
+     * Streaming equivalent of toJson()
+     * */
+    public void writeJson(JSONWriter writer) {
+        writer.object();
+        writer.key(ResXmlDocument.NAME_element);
+        getDocumentElement().writeJson(writer);
+        JSONArray pool = getStringPool().toJson();
+        if(pool!=null){
+            writer.key(ResXmlDocument.NAME_styled_strings).value(pool);
+        }
+        writer.endObject();
+    }
     @Override
     public void fromJson(JSONObject json) {
         onFromJson(json);
@@ -29,6 +29,7 @@ import com.reandroid.common.Namespace;
 import com.reandroid.json.JSONConvert;
 import com.reandroid.json.JSONArray;
 import com.reandroid.json.JSONObject;
+import com.reandroid.json.JSONWriter;
 import com.reandroid.utils.collection.SingleIterator;
 import com.reandroid.utils.collection.*;
 import com.reandroid.xml.*;
@@ -1448,6 +1449,65 @@ public class ResXmlElement extends ResXmlNode implements
         }
         return jsonObject;
     }
+    /**
+     * Streaming equivalent of toJson(), child elements are written recursively
+     * without building the whole json tree. Each element takes two levels of writer
+     * depth (object and childes array), thus branches deeper than JSONWriter.MAX_DEPTH
+     * allows are written from toJson().
+     * */
+    public void writeJson(JSONWriter writer) {
+        writer.object();
+        writer.key(NAME_node_type).value(NAME_element);
+        writeJsonValue(writer, NAME_name, getName(false));
+        writeJsonValue(writer, NAME_namespace_uri, getUri());
+        writeJsonValue(writer, NAME_namespace_prefix, getPrefix());
+        int lineStart = getStartLineNumber();
+        int lineEnd = getEndLineNumber();
+        writer.key(NAME_line).value(lineStart);
+        if(lineStart != lineEnd){
+            writer.key(NAME_line_end).value(lineEnd);
+        }
+        JSONArray nsList = new JSONArray();
+        for(ResXmlStartNamespace namespace : getStartNamespaceList()){
+            JSONObject ns=new JSONObject();
+            ns.put(NAME_namespace_uri, namespace.getUri());
+            ns.put(NAME_namespace_prefix, namespace.getPrefix());
+            nsList.put(ns);
+        }
+        if(!nsList.isEmpty()){
+            writer.key(NAME_namespaces).value(nsList);
+        }
+        writeJsonValue(writer, NAME_comment, getStartComment());
+        ResXmlAttributeArray attributeArray = getAttributeArray();
+        if(attributeArray != null){
+            JSONArray attrArray = attributeArray.toJson();
+            if(!attrArray.isEmpty()){
+                writer.key(NAME_attributes).value(attrArray);
+            }
+        }
+        boolean childesStarted = false;
+        for(ResXmlNode xmlNode : getXmlNodeList()){
+            if(!childesStarted){
+                writer.key(NAME_childes).array();
+                childesStarted = true;
+            }
+            if(xmlNode instanceof ResXmlElement
+                    && writer.getDepth() + 2 < JSONWriter.MAX_DEPTH){
+                ((ResXmlElement) xmlNode).writeJson(writer);
+            }else {
+                writer.value(xmlNode.toJson());
+            }
+        }
+        if(childesStarted){
+            writer.endArray();
+        }
+        writer.endObject();
+    }
+    private static void writeJsonValue(JSONWriter writer, String name, Object value){
+        if(value != null){
+            writer.key(name).value(value);
+        }
+    }
     @Override
     public void fromJson(JSONObject json) {
         ensureStartEndElement();
@@ -34,8 +34,10 @@ import org.xmlpull.v1.XmlSerializer;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.function.Predicate;
 
@@ -214,6 +216,31 @@ public class XmlCoder {
             encode(parser, typeBlock);
         }
         public void encode(XmlPullParser parser, TypeBlock typeBlock) throws IOException, XmlPullParserException {
+            encode(parseEntries(parser), typeBlock);
+        }
+        /**
+         * Encodes entries previously parsed by parseEntries(File), this and
+         * getOrCreateTypeBlock must run serially since it writes to shared string pools
+         * */
+        public void encode(File valuesXmlFile, List<XMLElement> entryElements, PackageBlock packageBlock) throws IOException {
+            TypeBlock typeBlock = packageBlock.getOrCreateTypeBlock(
+                    XmlEncodeUtil.getQualifiersFromValuesXml(valuesXmlFile),
+                    XmlEncodeUtil.getTypeFromValuesXml(valuesXmlFile));
+            encode(entryElements, typeBlock);
+        }
+        public void encode(List<XMLElement> entryElements, TypeBlock typeBlock) throws IOException {
+            for(XMLElement element : entryElements){
+                encodeEntry(element, typeBlock);
+            }
+        }
+        /**
+         * Parses entry elements of values xml file without touching any table block,
+         * thus it is safe to call concurrently
+         * */
+        public List<XMLElement> parseEntries(File valuesXmlFile) throws IOException, XmlPullParserException {
+            return parseEntries(XMLFactory.newPullParser(valuesXmlFile));
+        }
+        public List<XMLElement> parseEntries(XmlPullParser parser) throws IOException, XmlPullParserException {
             int event = parser.getEventType();
             boolean documentStarted = false;
             if(event == XmlPullParser.START_DOCUMENT){
@@ -230,11 +257,12 @@ public class XmlCoder {
             }else if(documentStarted){
                 throw new XmlEncodeException("Expecting <resources> tag but found: " + parser.getName());
             }
+            List<XMLElement> results = new ArrayList<>();
             while (XMLUtil.ensureStartTag(parser) == XmlPullParser.START_TAG){
-                XMLElement element = XMLElement.parseElement(parser);
-                encodeEntry(element, typeBlock);
+                results.add(XMLElement.parseElement(parser));
             }
             IOUtil.close(parser);
+            return results;
         }
         public void encodeEntry(XMLElement entryElement, TypeBlock typeBlock) throws IOException{
             Entry entry = typeBlock.getOrCreateDefinedEntry(
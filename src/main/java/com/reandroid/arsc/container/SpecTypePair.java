@@ -34,6 +34,7 @@ import com.reandroid.arsc.value.Entry;
 import com.reandroid.arsc.value.ResConfig;
 import com.reandroid.json.JSONConvert;
 import com.reandroid.json.JSONObject;
+import com.reandroid.json.JSONWriter;
 import com.reandroid.utils.collection.MergingIterator;
 import org.xmlpull.v1.XmlSerializer;
 
@@ -425,6 +426,19 @@ public class SpecTypePair extends BlockContainer<Block>
         getSpecBlock().fromJson(json.getJSONObject(SpecBlock.NAME_spec));
         getTypeBlockArray().fromJson(json.optJSONArray(NAME_types));
     }
+    /**
+     * Streaming equivalent of toJson()
+     * */
+    public void writeJson(JSONWriter writer) {
+        writer.object();
+        writer.key(SpecBlock.NAME_spec).value(getSpecBlock().toJson());
+        writer.key(NAME_types).array();
+        for(TypeBlock typeBlock : getTypeBlockArray().listItems()){
+            typeBlock.writeJson(writer);
+        }
+        writer.endArray();
+        writer.endObject();
+    }
     public JSONObject toJson(boolean specOnly) {
         JSONObject jsonObject=new JSONObject();
         jsonObject.put(SpecBlock.NAME_spec, getSpecBlock().toJson());
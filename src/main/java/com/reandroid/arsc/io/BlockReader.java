@@ -18,6 +18,7 @@ package com.reandroid.arsc.io;
 import com.reandroid.arsc.header.InfoHeader;
 import com.reandroid.arsc.header.SpecHeader;
 import com.reandroid.arsc.header.TypeHeader;
+import com.reandroid.utils.io.BufferPool;
 
 import java.io.*;
 
@@ -315,10 +316,14 @@ public class BlockReader extends InputStream {
     }
     private static byte[] loadBuffer(InputStream in) throws IOException {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        byte[] buff=new byte[40960];
-        int len;
-        while((len=in.read(buff))>0){
-            outputStream.write(buff, 0, len);
+        byte[] buff = BufferPool.obtain(BufferPool.COPY_BUFFER_SIZE);
+        try {
+            int len;
+            while((len=in.read(buff))>0){
+                outputStream.write(buff, 0, len);
+            }
+        }finally {
+            BufferPool.release(buff);
         }
         if(in instanceof FileInputStream){
             in.close();
@@ -135,6 +135,7 @@ public class StringItem extends StringBlock implements JSONConvert<JSONObject>,
     @Override
     public void onIndexChanged(int oldIndex, int newIndex){
         reUpdateReferences(newIndex);
+        notifyReferenceChanged();
     }
     public void serializeText(XmlSerializer serializer) throws IOException {
         serializeText(serializer, false);
@@ -317,6 +318,13 @@ public class StringItem extends StringBlock implements JSONConvert<JSONObject>,
                 addReference(ref);
             }
         }
+        notifyReferenceChanged();
+    }
+    private void notifyReferenceChanged(){
+        StringPool<?> stringPool = getParentInstance(StringPool.class);
+        if(stringPool != null){
+            stringPool.onReferenceChanged();
+        }
     }
     private boolean isTransferable(ReferenceItem referenceItem){
         return !((referenceItem instanceof WeakStringReference));
@@ -43,6 +43,7 @@ public abstract class StringPool<T extends StringItem> extends Chunk<StringPoolH
 
     private final Map<String, StringGroup<T>> mUniqueMap;
     private boolean stringLinkLocked;
+    private int mReferenceModCount;
 
     StringPool(boolean is_utf8, boolean stringLinkLocked){
         super(new StringPoolHeader(), 4);
@@ -84,6 +85,18 @@ public abstract class StringPool<T extends StringItem> extends Chunk<StringPoolH
         ensureStringLinkUnlockedInternal();
         getStringsArray().sort(comparator);
     }
+    /**
+     * Counts changes of which string values refer to: string values set or retyped
+     * and strings moved to other indexes. Unlike references, it is counted while
+     * string links are locked, thus caches keyed by string index can tell they
+     * are stale.
+     * */
+    public int getReferenceModCount(){
+        return mReferenceModCount;
+    }
+    public void onReferenceChanged(){
+        mReferenceModCount ++;
+    }
     public boolean isStringLinkLocked(){
         return stringLinkLocked;
     }
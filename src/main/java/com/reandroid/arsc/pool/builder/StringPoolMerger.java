@@ -21,8 +21,11 @@ import com.reandroid.arsc.item.StyleItem;
 import com.reandroid.arsc.item.StyleSpan;
 import com.reandroid.arsc.item.TableString;
 import com.reandroid.arsc.pool.TableStringPool;
+import com.reandroid.utils.concurrent.WorkerPool;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 public class StringPoolMerger implements Comparator<String> {
     private final Set<TableStringPool> mPools;
@@ -33,14 +36,35 @@ public class StringPoolMerger implements Comparator<String> {
         this.mPools=new HashSet<>();
     }
     public void mergeTo(TableStringPool destination){
+        mergeStart(destination);
+        mergeStyledStrings(destination);
+        mergeNonStyledStrings(destination, getNonStyledStrings());
+        mergeEnd(destination);
+    }
+    /**
+     * Same as mergeTo(TableStringPool) but unique non-styled strings are collected
+     * on the worker pool, each worker owns strings of one hash shard and the sorted
+     * shards are then assembled in order, thus the result is identical to serial merge.
+     * */
+    public void mergeTo(TableStringPool destination, WorkerPool workerPool) throws IOException {
+        if(workerPool == null || workerPool.isSerial()){
+            mergeTo(destination);
+            return;
+        }
+        mergeStart(destination);
+        mergeStyledStrings(destination);
+        mergeNonStyledStrings(destination, getNonStyledStrings(workerPool));
+        mergeEnd(destination);
+    }
+    private void mergeStart(TableStringPool destination){
         mMergedPools=0;
         mMergedStrings=0;
         mMergedStyleStrings=0;
         if(destination.countStrings()>0 || destination.countStyles()>0){
             throw new IllegalArgumentException("Destination string pool is not empty");
         }
-        mergeStyledStrings(destination);
-        mergeNonStyledStrings(destination);
+    }
+    private void mergeEnd(TableStringPool destination){
         mMergedPools = mPools.size();
         mPools.clear();
         destination.refresh();
@@ -79,8 +103,7 @@ public class StringPoolMerger implements Comparator<String> {
         }
         mMergedStyleStrings=styledStrings.size();
     }
-    private void mergeNonStyledStrings(TableStringPool destination){
-        List<String> nonStyledStrings=getNonStyledStrings();
+    private void mergeNonStyledStrings(TableStringPool destination, List<String> nonStyledStrings){
         destination.insertStrings(nonStyledStrings);
         mMergedStrings=nonStyledStrings.size();
     }
@@ -111,13 +134,83 @@ public class StringPoolMerger implements Comparator<String> {
                 if(tableString==null || tableString.hasStyle()){
                     continue;
                 }
-                uniqueSet.add(tableString.get());
+                String str = tableString.get();
+                if(str != null){
+                    uniqueSet.add(str);
+                }
             }
         }
         List<String> results=new ArrayList<>(uniqueSet);
         results.sort(this);
         return results;
     }
+    private List<String> getNonStyledStrings(WorkerPool workerPool) throws IOException {
+        List<List<String>> partitions = partitionNonStyledStrings(workerPool.getThreadCount());
+        List<Callable<List<String>>> tasks = new ArrayList<>(partitions.size());
+        for(List<String> partition : partitions){
+            tasks.add(() -> sortUnique(partition));
+        }
+        return mergeSorted(workerPool.invokeAll(tasks));
+    }
+    /**
+     * Walks all pools once and distributes each string to the partition of its hash,
+     * thus equal strings always land on the same partition.
+     * */
+    private List<List<String>> partitionNonStyledStrings(int partitionsCount){
+        List<List<String>> partitions = new ArrayList<>(partitionsCount);
+        for(int i = 0; i < partitionsCount; i++){
+            partitions.add(new ArrayList<>());
+        }
+        for(TableStringPool pool:mPools){
+            TableString[] tableStrings = pool.getStrings();
+            if(tableStrings==null){
+                continue;
+            }
+            for(TableString tableString : tableStrings){
+                if(tableString == null || tableString.hasStyle()){
+                    continue;
+                }
+                String str = tableString.get();
+                if(str == null){
+                    continue;
+                }
+                partitions.get((str.hashCode() & 0x7fffffff) % partitionsCount).add(str);
+            }
+        }
+        return partitions;
+    }
+    private List<String> sortUnique(List<String> partition){
+        List<String> results = new ArrayList<>(new HashSet<>(partition));
+        results.sort(this);
+        return results;
+    }
+    private List<String> mergeSorted(List<List<String>> sortedShards){
+        int total = 0;
+        for(List<String> shard : sortedShards){
+            total += shard.size();
+        }
+        List<String> results = new ArrayList<>(total);
+        int count = sortedShards.size();
+        int[] positions = new int[count];
+        while (results.size() < total){
+            int selected = -1;
+            String min = null;
+            for(int i = 0; i < count; i++){
+                List<String> shard = sortedShards.get(i);
+                if(positions[i] >= shard.size()){
+                    continue;
+                }
+                String str = shard.get(positions[i]);
+                if(min == null || compare(str, min) < 0){
+                    min = str;
+                    selected = i;
+                }
+            }
+            results.add(min);
+            positions[selected]++;
+        }
+        return results;
+    }
     private List<String> toStringList(Collection<TableString> tableStringList){
         List<String> results=new ArrayList<>(tableStringList.size());
         for(TableString tableString:tableStringList){
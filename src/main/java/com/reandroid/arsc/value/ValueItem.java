@@ -99,6 +99,10 @@ public abstract class ValueItem extends BlockItem implements Value,
         byte old = bts[offset];
         bts[offset] = type;
         onTypeChanged(old, type);
+        byte typeString = ValueType.STRING.getByte();
+        if(old == typeString || type == typeString){
+            notifyStringReferenceChanged();
+        }
         onDataChanged();
     }
     public int getSize(){
@@ -148,6 +152,7 @@ public abstract class ValueItem extends BlockItem implements Value,
         putInteger(bts, this.sizeOffset + OFFSET_DATA, data);
         if(ValueType.STRING==getValueType()){
             linkStringReference();
+            notifyStringReferenceChanged();
         }
         onDataChanged();
     }
@@ -192,6 +197,12 @@ public abstract class ValueItem extends BlockItem implements Value,
         mStringReference = stringReference;
         tableString.addReference(stringReference);
     }
+    private void notifyStringReferenceChanged(){
+        StringPool<?> stringPool = getStringPool();
+        if(stringPool != null){
+            stringPool.onReferenceChanged();
+        }
+    }
     private void unLinkStringReference(){
         ReferenceItem stringReference = mStringReference;
         if(stringReference==null){
@@ -18,7 +18,10 @@ package com.reandroid.dex.data;
 import com.reandroid.arsc.container.BlockList;
 import com.reandroid.arsc.container.FixedBlockContainer;
 import com.reandroid.arsc.io.BlockReader;
+import com.reandroid.arsc.item.ByteArray;
 import com.reandroid.common.ArraySupplier;
+import com.reandroid.common.BytesOutputStream;
+import com.reandroid.dex.base.DexException;
 import com.reandroid.dex.base.DexPositionAlign;
 import com.reandroid.dex.common.Register;
 import com.reandroid.dex.common.RegisterType;
@@ -31,6 +34,7 @@ import com.reandroid.dex.id.StringId;
 import com.reandroid.dex.ins.*;
 import com.reandroid.dex.key.Key;
 import com.reandroid.dex.key.StringKey;
+import com.reandroid.dex.sections.SectionList;
 import com.reandroid.dex.sections.SectionType;
 import com.reandroid.dex.smali.SmaliFormat;
 import com.reandroid.dex.smali.SmaliWriter;
@@ -48,19 +52,23 @@ public class InstructionList extends FixedBlockContainer implements
 
     private final CodeItem codeItem;
     private final BlockList<Ins> insArray;
+    private final ByteArray lazyCode;
     private final DexPositionAlign blockAlign;
 
     private boolean mLockExtraLines;
+    private volatile boolean mLazyPending;
 
     public InstructionList(CodeItem codeItem){
-        super(2);
+        super(3);
         this.codeItem = codeItem;
 
         this.insArray = new BlockList<>();
+        this.lazyCode = new ByteArray();
         this.blockAlign = new DexPositionAlign();
 
         addChild(0, insArray);
-        addChild(1, blockAlign);
+        addChild(1, lazyCode);
+        addChild(2, blockAlign);
     }
 
     public RegistersEditor editRegisters(){
@@ -204,8 +212,57 @@ public class InstructionList extends FixedBlockContainer implements
     }
 
     private BlockList<Ins> getInsArray() {
+        if(mLazyPending){
+            decodeLazyCode();
+        }
         return insArray;
     }
+    public boolean isLazyCode() {
+        return lazyCode.size() != 0;
+    }
+    /**
+     * Raw code units, returned without copy for instructions not yet decoded
+     * @see com.reandroid.dex.ins.InsScanner
+     * */
+    public byte[] getCodeBytes() {
+        ByteArray lazyCode = this.lazyCode;
+        if(lazyCode.size() != 0){
+            return lazyCode.getBytes();
+        }
+        BlockList<Ins> insArray = this.insArray;
+        BytesOutputStream outputStream = new BytesOutputStream(insArray.countBytes());
+        try {
+            insArray.writeBytes(outputStream);
+            outputStream.close();
+        } catch (IOException exception) {
+            throw new DexException("Failed to encode instructions: "
+                    + getMethodDef(), exception);
+        }
+        return outputStream.toByteArray();
+    }
+    /**
+     * Decodes raw code units kept by lazy reading, see SectionList#setLazyCode.
+     * The pending flag is cleared only after decoding completes, thus readers skipping
+     * the lock on a cleared flag always see fully decoded instructions.
+     * */
+    public synchronized void decodeLazyCode() {
+        ByteArray lazyCode = this.lazyCode;
+        if(lazyCode.size() == 0){
+            return;
+        }
+        byte[] bytes = lazyCode.getBytes();
+        lazyCode.setSize(0);
+        BlockReader reader = new BlockReader(bytes);
+        try {
+            readInstructions(reader, bytes.length / 2);
+            reader.close();
+        } catch (IOException exception) {
+            throw new DexException("Failed to decode instructions: "
+                    + getMethodDef(), exception);
+        } finally {
+            mLazyPending = false;
+        }
+    }
 
     public Ins get(int i){
         return getInsArray().get(i);
@@ -224,6 +281,7 @@ public class InstructionList extends FixedBlockContainer implements
             address = 0;
         }
         ins.setAddress(address);
+        notifyCodeChanged();
     }
     public void add(int index, Ins item) {
         reBuildExtraLines();
@@ -400,12 +458,25 @@ public class InstructionList extends FixedBlockContainer implements
         }
         this.codeItem.getInstructionCodeUnitsReference().set(address);
         this.codeItem.getInstructionOutsReference().set(outSize);
+        notifyCodeChanged();
+    }
+    /**
+     * Called on every instruction edit, see SectionList#getCodeModCount()
+     * */
+    public void notifyCodeChanged() {
+        SectionList sectionList = codeItem.getSectionList();
+        if(sectionList != null){
+            sectionList.onCodeChanged();
+        }
     }
 
     @Override
     protected void onRefreshed() {
         super.onRefreshed();
         this.blockAlign.align(this);
+        if(isLazyCode()){
+            return;
+        }
         this.codeItem.getCodeUnits().set(getCodeUnits());
         clearAndUpdateAddresses();
     }
@@ -448,6 +519,21 @@ public class InstructionList extends FixedBlockContainer implements
     public void onReadBytes(BlockReader reader) throws IOException {
 
         int insCodeUnits = codeItem.getInstructionCodeUnitsReference().get();
+        int zeroPosition = reader.getPosition();
+        SectionList sectionList = codeItem.getSectionList();
+        if(insCodeUnits != 0 && sectionList != null && sectionList.isLazyCode()){
+            lazyCode.setSize(insCodeUnits * 2);
+            lazyCode.readBytes(reader);
+            mLazyPending = true;
+            sectionList.onLazyCodeRead();
+        }else {
+            readInstructions(reader, insCodeUnits);
+        }
+        int totalRead = reader.getPosition() - zeroPosition;
+        blockAlign.align(totalRead);
+        reader.offset(blockAlign.size());
+    }
+    private void readInstructions(BlockReader reader, int insCodeUnits) throws IOException {
         int position = reader.getPosition() + insCodeUnits * 2;
         int zeroPosition = reader.getPosition();
 
@@ -467,9 +553,6 @@ public class InstructionList extends FixedBlockContainer implements
             // should not reach here
             reader.seek(position);
         }
-        int totalRead = reader.getPosition() - zeroPosition;
-        blockAlign.align(totalRead);
-        reader.offset(blockAlign.size());
     }
 
     private void clearExtraLines() {
@@ -489,7 +572,7 @@ public class InstructionList extends FixedBlockContainer implements
         }
         return false;
     }
-    public void buildExtraLines(){
+    public synchronized void buildExtraLines(){
         if(haveExtraLines()){
             return;
         }
@@ -556,6 +639,9 @@ public class InstructionList extends FixedBlockContainer implements
         mLockExtraLines = false;
     }
     public void onRemove(){
+        notifyCodeChanged();
+        lazyCode.setSize(0);
+        mLazyPending = false;
         clearExtraLines();
         getInsArray().clearChildes();
         getInsArray().destroy();
@@ -642,12 +728,12 @@ public class InstructionList extends FixedBlockContainer implements
             return false;
         }
         InstructionList list = (InstructionList) obj;
-        return insArray.equals(list.insArray);
+        return getInsArray().equals(list.getInsArray());
     }
 
     @Override
     public int hashCode() {
-        return insArray.hashCode();
+        return getInsArray().hashCode();
     }
 
     @Override
@@ -138,12 +138,23 @@ public class DexHeader extends SpecialItem implements OffsetSupplier, BlockLoad
         }
         return null;
     }
+    /**
+     * Updates sizes, signature and checksum by streaming the parent through
+     * HeaderDigest, thus the whole file bytes are never held in memory
+     * */
     public void updateHeaderInternal(Block parent){
-        byte[] bytes = parent.getBytes();
         headerSize.set(countBytes());
-        fileSize.set(bytes.length);
-        signature.update(parent, bytes);
-        checksum.update(parent, bytes);
+        fileSize.set(parent.countBytes());
+        HeaderDigest digest = new HeaderDigest(
+                parent.countUpTo(checksum) + checksum.countBytes(),
+                parent.countUpTo(signature) + signature.countBytes());
+        try {
+            parent.writeBytes(digest);
+        } catch (IOException exception) {
+            throw new IllegalArgumentException(exception);
+        }
+        signature.setDigest(digest.getSignature());
+        checksum.setValue(digest.getChecksum());
     }
     @Override
     public IntegerReference getOffsetReference() {
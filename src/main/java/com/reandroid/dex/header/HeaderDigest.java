@@ -0,0 +1,121 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.dex.header;
+
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.Adler32;
+
+/**
+ * Computes dex signature and checksum in one streaming pass, bytes written to this
+ * stream are never buffered as a whole.
+ * SHA-1 and Adler-32 are fed with bytes after the signature, bytes between the
+ * checksum and signature end are kept aside. As the checksum covers the signature
+ * itself, it is computed once the signature is known by combining the Adler-32 of
+ * the kept bytes with the Adler-32 of the rest.
+ * */
+class HeaderDigest extends OutputStream {
+    private final long checksumStart;
+    private final long signatureStart;
+    private final byte[] between;
+    private final MessageDigest messageDigest;
+    private final Adler32 adler32;
+    private long position;
+    private long tailLength;
+    private byte[] signature;
+
+    HeaderDigest(int checksumStart, int signatureStart){
+        this.checksumStart = checksumStart;
+        this.signatureStart = signatureStart;
+        this.between = new byte[signatureStart - checksumStart];
+        try {
+            this.messageDigest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalArgumentException(ex);
+        }
+        this.adler32 = new Adler32();
+    }
+
+    public byte[] getSignature(){
+        if(signature == null){
+            signature = messageDigest.digest();
+        }
+        return signature;
+    }
+    public long getChecksum(){
+        byte[] between = this.between;
+        byte[] signature = getSignature();
+        System.arraycopy(signature, 0, between,
+                between.length - signature.length, signature.length);
+        Adler32 head = new Adler32();
+        head.update(between, 0, between.length);
+        return combine(head.getValue(), adler32.getValue(), tailLength);
+    }
+    @Override
+    public void write(int b) {
+        long position = this.position;
+        this.position = position + 1;
+        if(position >= signatureStart){
+            messageDigest.update((byte) b);
+            adler32.update(b);
+            tailLength ++;
+        }else if(position >= checksumStart){
+            between[(int) (position - checksumStart)] = (byte) b;
+        }
+    }
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        while (length > 0 && position < signatureStart){
+            write(bytes[offset]);
+            offset ++;
+            length --;
+        }
+        if(length <= 0){
+            return;
+        }
+        messageDigest.update(bytes, offset, length);
+        adler32.update(bytes, offset, length);
+        position += length;
+        tailLength += length;
+    }
+
+    /**
+     * Same as zlib adler32_combine, Adler-32 of two concatenated parts
+     * */
+    static long combine(long adler1, long adler2, long length2){
+        long remainder = length2 % BASE;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = (remainder * sum1) % BASE;
+        sum1 += (adler2 & 0xffff) + BASE - 1;
+        sum2 += ((adler1 >> 16) & 0xffff) + ((adler2 >> 16) & 0xffff) + BASE - remainder;
+        if(sum1 >= BASE){
+            sum1 -= BASE;
+        }
+        if(sum1 >= BASE){
+            sum1 -= BASE;
+        }
+        if(sum2 >= (BASE << 1)){
+            sum2 -= (BASE << 1);
+        }
+        if(sum2 >= BASE){
+            sum2 -= BASE;
+        }
+        return sum1 | (sum2 << 16);
+    }
+
+    private static final long BASE = 65521;
+}
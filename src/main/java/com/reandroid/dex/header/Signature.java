@@ -35,7 +35,9 @@ public class Signature extends HeaderPiece{
             throw new IllegalArgumentException(ex);
         }
         messageDigest.update(bytes, start, bytes.length - start);
-        byte[] digest = messageDigest.digest();
+        setDigest(messageDigest.digest());
+    }
+    public void setDigest(byte[] digest){
         putByteArray(0, digest);
     }
     @Override
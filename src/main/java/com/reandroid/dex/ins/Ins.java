@@ -75,6 +75,12 @@ public class Ins extends FixedDexContainerWithTool implements SmaliFormat {
     public InstructionList getInstructionList() {
         return getParentInstance(InstructionList.class);
     }
+    void notifyCodeChanged() {
+        InstructionList instructionList = getInstructionList();
+        if(instructionList != null){
+            instructionList.notifyCodeChanged();
+        }
+    }
 
     public void updateLabelAddress() {
         int address = getAddress();
@@ -0,0 +1,527 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.dex.ins;
+
+import com.reandroid.dex.base.DexException;
+import com.reandroid.dex.data.CodeItem;
+import com.reandroid.dex.id.IdItem;
+import com.reandroid.dex.key.Key;
+import com.reandroid.dex.sections.SectionType;
+
+/**
+ * Cursor over raw code units of a code item, each call to next() decodes opcode,
+ * registers, referenced id index and literal of one instruction into this same
+ * object without creating Ins objects. The instruction format of each opcode is
+ * taken from the Ins class created by the Opcode table.
+ * For code items read lazily (see SectionList#setLazyCode) the raw code units are
+ * scanned in place, thus scanning does not decode the instruction list.
+ * */
+public class InsScanner {
+
+    private CodeItem codeItem;
+    private byte[] code;
+    private int length;
+    private int position;
+    private int nextPosition;
+
+    private Opcode<?> opcode;
+    private int format;
+    private final int[] registers;
+    private int registersCount;
+    private boolean registersRange;
+    private int index;
+    private int index2;
+    private long literal;
+    private boolean hasLiteral;
+    private int branch;
+    private int payloadSize;
+    private int payloadWidth;
+
+    public InsScanner(){
+        this.registers = new int[5];
+    }
+
+    /**
+     * Scans raw code units of the given code item, meant for code items not yet decoded;
+     * for decoded ones the instructions are encoded to bytes first, iterating Ins
+     * directly is cheaper.
+     * @see com.reandroid.dex.data.InstructionList#isLazyCode()
+     * */
+    public void reset(CodeItem codeItem){
+        this.codeItem = codeItem;
+        byte[] code = codeItem.getInstructionList().getCodeBytes();
+        reset(code, code.length);
+    }
+    public void reset(byte[] code, int length){
+        this.code = code;
+        this.length = length;
+        this.position = 0;
+        this.nextPosition = 0;
+        clear();
+        this.opcode = null;
+    }
+    public CodeItem getCodeItem() {
+        return codeItem;
+    }
+    public boolean next(){
+        int position = this.nextPosition;
+        if(position + 1 >= length){
+            return false;
+        }
+        this.position = position;
+        clear();
+        int unit0 = unit(0);
+        int value = unit0 & 0xff;
+        if(value == 0 && unit0 != 0){
+            value = unit0;
+        }
+        Opcode<?> opcode = Opcode.valueOf(value);
+        if(opcode == null){
+            throw new DexException("Unknown opcode 0x" + Integer.toHexString(value)
+                    + " at address " + getAddress());
+        }
+        this.opcode = opcode;
+        int format = getFormat(opcode);
+        this.format = format;
+        int codeUnits = decode(format, unit0);
+        this.nextPosition = position + codeUnits * 2;
+        return true;
+    }
+    public Opcode<?> getOpcode() {
+        return opcode;
+    }
+    public int getAddress(){
+        return position / 2;
+    }
+    public int getCodeUnits(){
+        return (nextPosition - position) / 2;
+    }
+    public int getRegistersCount() {
+        return registersCount;
+    }
+    public int getRegister(int i){
+        if(registersRange){
+            return registers[0] + i;
+        }
+        return registers[i];
+    }
+    public boolean isRegistersRange() {
+        return registersRange;
+    }
+    /**
+     * @return section type of getIndex(), null for odex formats whose index is not an id
+     * */
+    public SectionType<? extends IdItem> getSectionType(){
+        if(index < 0 || isOdexFormat(format)){
+            return null;
+        }
+        return opcode.getSectionType();
+    }
+    /**
+     * @return referenced index or -1 if none
+     * */
+    public int getIndex() {
+        return index;
+    }
+    /**
+     * @return proto index of invoke-polymorphic or -1 if none
+     * */
+    public int getIndex2() {
+        return index2;
+    }
+    public IdItem getSectionItem(){
+        SectionType<? extends IdItem> sectionType = getSectionType();
+        if(sectionType == null || codeItem == null){
+            return null;
+        }
+        return codeItem.getSectionItem(sectionType, index);
+    }
+    public Key getSectionKey(){
+        IdItem idItem = getSectionItem();
+        if(idItem != null){
+            return idItem.getKey();
+        }
+        return null;
+    }
+    public boolean hasLiteral() {
+        return hasLiteral;
+    }
+    public long getLiteral() {
+        return literal;
+    }
+    /**
+     * @return relative branch offset in code units of goto, if, switch and
+     * fill-array-data instructions
+     * */
+    public int getBranch() {
+        return branch;
+    }
+    public boolean isPayload(){
+        return format == FORMAT_PAYLOAD;
+    }
+    public int getPayloadSize() {
+        return payloadSize;
+    }
+    public int getPayloadWidth() {
+        return payloadWidth;
+    }
+    /**
+     * Element of array-payload, sign extended to long
+     * */
+    public long getArrayElement(int i){
+        int width = this.payloadWidth;
+        int offset = position + 8 + i * width;
+        long result = 0;
+        for(int j = width - 1; j >= 0; j--){
+            result = (result << 8) | (code[offset + j] & 0xff);
+        }
+        int shift = 64 - width * 8;
+        return (result << shift) >> shift;
+    }
+
+    private void clear(){
+        this.format = 0;
+        this.registersCount = 0;
+        this.registersRange = false;
+        this.index = -1;
+        this.index2 = -1;
+        this.literal = 0;
+        this.hasLiteral = false;
+        this.branch = 0;
+        this.payloadSize = 0;
+        this.payloadWidth = 0;
+    }
+    private int decode(int format, int unit0){
+        int a = (unit0 >> 8) & 0x0f;
+        int b = unit0 >>> 12;
+        int aa = unit0 >>> 8;
+        switch (format){
+            case FORMAT_10x:
+                return 1;
+            case FORMAT_12x:
+                setRegisters(a, b);
+                return 1;
+            case FORMAT_11n:
+                setRegisters(a);
+                setLiteral((unit0 << 16) >> 28);
+                return 1;
+            case FORMAT_11x:
+                setRegisters(aa);
+                return 1;
+            case FORMAT_GOTO:
+                return decodeGoto(aa);
+            case FORMAT_20bc:
+                setLiteral(aa);
+                index = unit(1);
+                return 2;
+            case FORMAT_21c:
+                setRegisters(aa);
+                index = unit(1);
+                return 2;
+            case FORMAT_21ih:
+                setRegisters(aa);
+                setLiteral(unit(1) << 16);
+                return 2;
+            case FORMAT_21lh:
+                setRegisters(aa);
+                setLiteral(((long) (short) unit(1)) << 48);
+                return 2;
+            case FORMAT_21s:
+                setRegisters(aa);
+                setLiteral((short) unit(1));
+                return 2;
+            case FORMAT_21t:
+                setRegisters(aa);
+                branch = (short) unit(1);
+                return 2;
+            case FORMAT_22x:
+                setRegisters(aa, unit(1));
+                return 2;
+            case FORMAT_22b:
+                setRegisters(aa, unit(1) & 0xff);
+                setLiteral((byte) (unit(1) >> 8));
+                return 2;
+            case FORMAT_22c:
+            case FORMAT_22cs:
+                setRegisters(a, b);
+                index = unit(1);
+                return 2;
+            case FORMAT_22s:
+                setRegisters(a, b);
+                setLiteral((short) unit(1));
+                return 2;
+            case FORMAT_22t:
+                setRegisters(a, b);
+                branch = (short) unit(1);
+                return 2;
+            case FORMAT_23x:
+                setRegisters(aa, unit(1) & 0xff, unit(1) >>> 8);
+                return 2;
+            case FORMAT_31c:
+                setRegisters(aa);
+                index = int32(1);
+                return 3;
+            case FORMAT_31i:
+                setRegisters(aa);
+                setLiteral(int32(1));
+                return 3;
+            case FORMAT_31t:
+                setRegisters(aa);
+                branch = int32(1);
+                return 3;
+            case FORMAT_32x:
+                setRegisters(unit(1), unit(2));
+                return 3;
+            case FORMAT_35c:
+            case FORMAT_35x:
+                decode35c(unit0);
+                return 3;
+            case FORMAT_3rc:
+            case FORMAT_3rx:
+                decode3rc(aa);
+                return 3;
+            case FORMAT_45cc:
+                decode35c(unit0);
+                index2 = unit(3);
+                return 4;
+            case FORMAT_4rcc:
+                decode3rc(aa);
+                index2 = unit(3);
+                return 4;
+            case FORMAT_51l:
+                setRegisters(aa);
+                setLiteral((int32(1) & 0xffffffffL) | ((long) int32(3) << 32));
+                return 5;
+            case FORMAT_PAYLOAD:
+                return decodePayload(unit0);
+            default:
+                throw new DexException("Unknown format of " + opcode);
+        }
+    }
+    private int decodeGoto(int aa){
+        int size = opcode.size();
+        if(size == 2){
+            branch = (byte) aa;
+            return 1;
+        }
+        if(size == 4){
+            branch = (short) unit(1);
+            return 2;
+        }
+        branch = int32(1);
+        return 3;
+    }
+    private void decode35c(int unit0){
+        int count = unit0 >>> 12;
+        index = unit(1);
+        int unit2 = unit(2);
+        int[] registers = this.registers;
+        registers[0] = unit2 & 0x0f;
+        registers[1] = (unit2 >> 4) & 0x0f;
+        registers[2] = (unit2 >> 8) & 0x0f;
+        registers[3] = unit2 >>> 12;
+        registers[4] = (unit0 >> 8) & 0x0f;
+        if(count > 5){
+            count = 5;
+        }
+        registersCount = count;
+    }
+    private void decode3rc(int count){
+        index = unit(1);
+        registers[0] = unit(2);
+        registersCount = count;
+        registersRange = true;
+    }
+    private int decodePayload(int unit0){
+        if(opcode == Opcode.PACKED_SWITCH_PAYLOAD){
+            payloadSize = unit(1);
+            return payloadSize * 2 + 4;
+        }
+        if(opcode == Opcode.SPARSE_SWITCH_PAYLOAD){
+            payloadSize = unit(1);
+            return payloadSize * 4 + 2;
+        }
+        payloadWidth = unit(1);
+        payloadSize = int32(2);
+        return (payloadSize * payloadWidth + 1) / 2 + 4;
+    }
+    private void setRegisters(int register){
+        registers[0] = register;
+        registersCount = 1;
+    }
+    private void setRegisters(int register1, int register2){
+        registers[0] = register1;
+        registers[1] = register2;
+        registersCount = 2;
+    }
+    private void setRegisters(int register1, int register2, int register3){
+        registers[0] = register1;
+        registers[1] = register2;
+        registers[2] = register3;
+        registersCount = 3;
+    }
+    private void setLiteral(long literal){
+        this.literal = literal;
+        this.hasLiteral = true;
+    }
+    private int unit(int i){
+        int offset = position + i * 2;
+        return (code[offset] & 0xff) | ((code[offset + 1] & 0xff) << 8);
+    }
+    private int int32(int i){
+        return unit(i) | (unit(i + 1) << 16);
+    }
+
+    private static boolean isOdexFormat(int format){
+        return format == FORMAT_22cs || format == FORMAT_35x || format == FORMAT_3rx;
+    }
+    private static int getFormat(Opcode<?> opcode){
+        int value = opcode.getValue();
+        if(value > 0xff){
+            return FORMAT_PAYLOAD;
+        }
+        int[] formats = FORMATS;
+        int format = formats[value];
+        if(format == 0){
+            format = computeFormat(opcode.newInstance());
+            formats[value] = format;
+        }
+        return format;
+    }
+    private static int computeFormat(Ins ins){
+        if(ins instanceof Ins10x){
+            return FORMAT_10x;
+        }
+        if(ins instanceof Ins12x){
+            return FORMAT_12x;
+        }
+        if(ins instanceof InsConst4){
+            return FORMAT_11n;
+        }
+        if(ins instanceof Ins11x){
+            return FORMAT_11x;
+        }
+        if(ins instanceof InsGoto || ins instanceof Ins30t){
+            return FORMAT_GOTO;
+        }
+        if(ins instanceof Ins20bc){
+            return FORMAT_20bc;
+        }
+        if(ins instanceof Ins21c){
+            return FORMAT_21c;
+        }
+        if(ins instanceof Ins21ih){
+            return FORMAT_21ih;
+        }
+        if(ins instanceof Ins21lh){
+            return FORMAT_21lh;
+        }
+        if(ins instanceof Ins21s){
+            return FORMAT_21s;
+        }
+        if(ins instanceof Ins21t){
+            return FORMAT_21t;
+        }
+        if(ins instanceof Ins22x){
+            return FORMAT_22x;
+        }
+        if(ins instanceof Ins22b){
+            return FORMAT_22b;
+        }
+        if(ins instanceof Ins22c){
+            return FORMAT_22c;
+        }
+        if(ins instanceof Ins22cs){
+            return FORMAT_22cs;
+        }
+        if(ins instanceof Ins22s){
+            return FORMAT_22s;
+        }
+        if(ins instanceof Ins22t){
+            return FORMAT_22t;
+        }
+        if(ins instanceof Ins23x){
+            return FORMAT_23x;
+        }
+        if(ins instanceof Ins31c){
+            return FORMAT_31c;
+        }
+        if(ins instanceof Ins31i){
+            return FORMAT_31i;
+        }
+        if(ins instanceof Ins31t){
+            return FORMAT_31t;
+        }
+        if(ins instanceof Ins32x){
+            return FORMAT_32x;
+        }
+        if(ins instanceof Ins35c){
+            return FORMAT_35c;
+        }
+        if(ins instanceof Ins35mi || ins instanceof Ins35ms){
+            return FORMAT_35x;
+        }
+        if(ins instanceof Ins3rc){
+            return FORMAT_3rc;
+        }
+        if(ins instanceof Ins3rmi || ins instanceof Ins3rms){
+            return FORMAT_3rx;
+        }
+        if(ins instanceof Ins45cc){
+            return FORMAT_45cc;
+        }
+        if(ins instanceof Ins4rcc){
+            return FORMAT_4rcc;
+        }
+        if(ins instanceof Ins51l){
+            return FORMAT_51l;
+        }
+        throw new DexException("Unknown format of " + ins.getOpcode());
+    }
+
+    private static final int[] FORMATS = new int[0xff + 1];
+
+    private static final int FORMAT_10x = 1;
+    private static final int FORMAT_12x = 2;
+    private static final int FORMAT_11n = 3;
+    private static final int FORMAT_11x = 4;
+    private static final int FORMAT_GOTO = 5;
+    private static final int FORMAT_20bc = 6;
+    private static final int FORMAT_21c = 7;
+    private static final int FORMAT_21ih = 8;
+    private static final int FORMAT_21lh = 9;
+    private static final int FORMAT_21s = 10;
+    private static final int FORMAT_21t = 11;
+    private static final int FORMAT_22x = 12;
+    private static final int FORMAT_22b = 13;
+    private static final int FORMAT_22c = 14;
+    private static final int FORMAT_22cs = 15;
+    private static final int FORMAT_22s = 16;
+    private static final int FORMAT_22t = 17;
+    private static final int FORMAT_23x = 18;
+    private static final int FORMAT_31c = 19;
+    private static final int FORMAT_31i = 20;
+    private static final int FORMAT_31t = 21;
+    private static final int FORMAT_32x = 22;
+    private static final int FORMAT_35c = 23;
+    private static final int FORMAT_35x = 24;
+    private static final int FORMAT_3rc = 25;
+    private static final int FORMAT_3rx = 26;
+    private static final int FORMAT_45cc = 27;
+    private static final int FORMAT_4rcc = 28;
+    private static final int FORMAT_51l = 29;
+    private static final int FORMAT_PAYLOAD = 30;
+}
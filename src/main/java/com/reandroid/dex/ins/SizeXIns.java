@@ -146,6 +146,7 @@ public class SizeXIns extends Ins {
     }
     public void setSectionId(IdItem item){
         sectionReference.setItem(item);
+        notifyCodeChanged();
     }
     public Key getSectionIdKey() {
         IdItem entry = getSectionId();
@@ -156,6 +157,7 @@ public class SizeXIns extends Ins {
     }
     public void setSectionIdKey(Key key){
         sectionReference.setItem(key);
+        notifyCodeChanged();
     }
 
     public int getData(){
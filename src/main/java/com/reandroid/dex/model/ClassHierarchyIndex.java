@@ -0,0 +1,303 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.dex.model;
+
+import com.reandroid.dex.common.DexUtils;
+import com.reandroid.dex.id.ClassId;
+import com.reandroid.dex.key.TypeKey;
+import com.reandroid.dex.refactor.TypeRenamer;
+import com.reandroid.utils.collection.ArrayCollection;
+import com.reandroid.utils.collection.CollectionUtil;
+import com.reandroid.utils.collection.EmptyList;
+
+import java.util.*;
+
+/**
+ * Directory wide class hierarchy keyed by TypeKey, thus super/sub and interface
+ * edges are resolved across all dex files regardless of where each class is
+ * defined. The index is built lazily and kept up to date by DexDirectory on
+ * merge, class removal and type renames. Classes added or removed by other means
+ * are detected by class count and trigger a rebuild, but direct edits of super
+ * class or interfaces need invalidate().
+ * Same as DexLayout, edges to java framework types are not indexed as sub types.
+ * */
+public class ClassHierarchyIndex {
+    private final DexDirectory dexDirectory;
+    private final Map<TypeKey, TypeKey> superMap;
+    private final Map<TypeKey, TypeKey[]> interfacesMap;
+    private final Map<TypeKey, List<TypeKey>> extendingMap;
+    private final Map<TypeKey, List<TypeKey>> implementationMap;
+    private boolean mBuilt;
+    private int mClassCount;
+
+    public ClassHierarchyIndex(DexDirectory dexDirectory){
+        this.dexDirectory = dexDirectory;
+        this.superMap = new HashMap<>();
+        this.interfacesMap = new HashMap<>();
+        this.extendingMap = new HashMap<>();
+        this.implementationMap = new HashMap<>();
+    }
+
+    public synchronized boolean contains(TypeKey typeKey){
+        ensureBuilt();
+        return superMap.containsKey(typeKey);
+    }
+    public synchronized TypeKey getSuperClass(TypeKey typeKey){
+        ensureBuilt();
+        return superMap.get(typeKey);
+    }
+    public synchronized List<TypeKey> getInterfaces(TypeKey typeKey){
+        ensureBuilt();
+        TypeKey[] interfaces = interfacesMap.get(typeKey);
+        if(interfaces == null){
+            return EmptyList.of();
+        }
+        return new ArrayCollection<>(interfaces);
+    }
+    public synchronized List<TypeKey> getExtending(TypeKey typeKey){
+        ensureBuilt();
+        return copyOf(extendingMap.get(typeKey));
+    }
+    public synchronized List<TypeKey> getImplementations(TypeKey typeKey){
+        ensureBuilt();
+        return copyOf(implementationMap.get(typeKey));
+    }
+    /**
+     * Direct sub classes and implementations
+     * */
+    public synchronized List<TypeKey> getDirectSubTypes(TypeKey typeKey){
+        ensureBuilt();
+        List<TypeKey> results = new ArrayCollection<>();
+        addAll(results, extendingMap.get(typeKey));
+        addAll(results, implementationMap.get(typeKey));
+        return results;
+    }
+    /**
+     * Transitive sub types in breadth first order, each type listed once
+     * */
+    public synchronized List<TypeKey> getSubTypes(TypeKey typeKey){
+        ensureBuilt();
+        List<TypeKey> results = new ArrayCollection<>();
+        Set<TypeKey> visited = new HashSet<>();
+        visited.add(typeKey);
+        ArrayDeque<TypeKey> queue = new ArrayDeque<>();
+        queue.add(typeKey);
+        while (!queue.isEmpty()){
+            TypeKey key = queue.poll();
+            addSubTypes(extendingMap.get(key), visited, queue, results);
+            addSubTypes(implementationMap.get(key), visited, queue, results);
+        }
+        return results;
+    }
+    /**
+     * Transitive super classes and interfaces in breadth first order, including
+     * types not defined on this directory
+     * */
+    public synchronized List<TypeKey> getSuperTypes(TypeKey typeKey){
+        ensureBuilt();
+        List<TypeKey> results = new ArrayCollection<>();
+        Set<TypeKey> visited = new HashSet<>();
+        visited.add(typeKey);
+        ArrayDeque<TypeKey> queue = new ArrayDeque<>();
+        queue.add(typeKey);
+        while (!queue.isEmpty()){
+            TypeKey key = queue.poll();
+            TypeKey superKey = superMap.get(key);
+            if(superKey != null && visited.add(superKey)){
+                results.add(superKey);
+                queue.add(superKey);
+            }
+            TypeKey[] interfaces = interfacesMap.get(key);
+            if(interfaces == null){
+                continue;
+            }
+            for(TypeKey interfaceKey : interfaces){
+                if(visited.add(interfaceKey)){
+                    results.add(interfaceKey);
+                    queue.add(interfaceKey);
+                }
+            }
+        }
+        return results;
+    }
+    public boolean isSubTypeOf(TypeKey typeKey, TypeKey superType){
+        if(typeKey.equals(superType)){
+            return true;
+        }
+        return getSuperTypes(typeKey).contains(superType);
+    }
+
+    public synchronized void add(ClassId classId){
+        if(!mBuilt || classId == null){
+            return;
+        }
+        put(classId);
+        updateClassCount();
+    }
+    public synchronized void remove(TypeKey typeKey){
+        if(!mBuilt || typeKey == null){
+            return;
+        }
+        removeKey(typeKey);
+        updateClassCount();
+    }
+    private void removeKey(TypeKey typeKey){
+        TypeKey superKey = superMap.remove(typeKey);
+        removeEdge(extendingMap, superKey, typeKey);
+        TypeKey[] interfaces = interfacesMap.remove(typeKey);
+        if(interfaces != null){
+            for(TypeKey interfaceKey : interfaces){
+                removeEdge(implementationMap, interfaceKey, typeKey);
+            }
+        }
+    }
+    /**
+     * Re-maps all indexed keys through the given renamer, call after the renamer is
+     * applied to dex files
+     * */
+    public synchronized void rename(TypeRenamer typeRenamer){
+        if(!mBuilt || typeRenamer.isEmpty()){
+            return;
+        }
+        Map<TypeKey, TypeKey> superMap = new HashMap<>(this.superMap);
+        Map<TypeKey, TypeKey[]> interfacesMap = new HashMap<>(this.interfacesMap);
+        clearMaps();
+        for(Map.Entry<TypeKey, TypeKey> entry : superMap.entrySet()){
+            TypeKey typeKey = entry.getKey();
+            TypeKey[] interfaces = interfacesMap.get(typeKey);
+            if(interfaces != null){
+                int length = interfaces.length;
+                for(int i = 0; i < length; i++){
+                    interfaces[i] = rename(typeRenamer, interfaces[i]);
+                }
+            }
+            put(rename(typeRenamer, typeKey),
+                    rename(typeRenamer, entry.getValue()),
+                    interfaces);
+        }
+    }
+    public synchronized void invalidate(){
+        mBuilt = false;
+        clearMaps();
+    }
+    public synchronized boolean isBuilt(){
+        return mBuilt;
+    }
+    public synchronized void build(){
+        clearMaps();
+        Iterator<ClassId> iterator = dexDirectory.getClassIds();
+        while (iterator.hasNext()){
+            put(iterator.next());
+        }
+        mBuilt = true;
+        updateClassCount();
+    }
+    private void ensureBuilt(){
+        if(!mBuilt || mClassCount != dexDirectory.getDexClassesCount()){
+            build();
+        }
+    }
+    private void updateClassCount(){
+        mClassCount = dexDirectory.getDexClassesCount();
+    }
+    private void put(ClassId classId){
+        TypeKey typeKey = classId.getKey();
+        if(typeKey == null){
+            return;
+        }
+        TypeKey[] interfaces = CollectionUtil.toList(classId.getInterfaceKeys())
+                .toArray(new TypeKey[0]);
+        put(typeKey, classId.getSuperClassKey(), interfaces);
+    }
+    private void put(TypeKey typeKey, TypeKey superKey, TypeKey[] interfaces){
+        if(superMap.containsKey(typeKey)){
+            removeKey(typeKey);
+        }
+        superMap.put(typeKey, superKey);
+        if(superKey != null && !DexUtils.isJavaFramework(superKey.getTypeName())){
+            addEdge(extendingMap, superKey, typeKey);
+        }
+        if(interfaces == null || interfaces.length == 0){
+            return;
+        }
+        interfacesMap.put(typeKey, interfaces);
+        for(TypeKey interfaceKey : interfaces){
+            if(!DexUtils.isJavaFramework(interfaceKey.getTypeName())){
+                addEdge(implementationMap, interfaceKey, typeKey);
+            }
+        }
+    }
+    private void clearMaps(){
+        superMap.clear();
+        interfacesMap.clear();
+        extendingMap.clear();
+        implementationMap.clear();
+    }
+    private static TypeKey rename(TypeRenamer typeRenamer, TypeKey typeKey){
+        if(typeKey == null){
+            return null;
+        }
+        String renamed = typeRenamer.rename(typeKey.getTypeName());
+        if(renamed == null){
+            return typeKey;
+        }
+        return TypeKey.create(renamed);
+    }
+    private static void addSubTypes(List<TypeKey> subTypes, Set<TypeKey> visited,
+                                    ArrayDeque<TypeKey> queue, List<TypeKey> results){
+        if(subTypes == null){
+            return;
+        }
+        for(TypeKey typeKey : subTypes){
+            if(visited.add(typeKey)){
+                results.add(typeKey);
+                queue.add(typeKey);
+            }
+        }
+    }
+    private static void addEdge(Map<TypeKey, List<TypeKey>> map, TypeKey parent, TypeKey child){
+        List<TypeKey> list = map.get(parent);
+        if(list == null){
+            list = new ArrayCollection<>(1);
+            map.put(parent, list);
+        }
+        list.add(child);
+    }
+    private static void removeEdge(Map<TypeKey, List<TypeKey>> map, TypeKey parent, TypeKey child){
+        if(parent == null){
+            return;
+        }
+        List<TypeKey> list = map.get(parent);
+        if(list == null){
+            return;
+        }
+        list.remove(child);
+        if(list.isEmpty()){
+            map.remove(parent);
+        }
+    }
+    private static void addAll(List<TypeKey> results, List<TypeKey> list){
+        if(list != null){
+            results.addAll(list);
+        }
+    }
+    private static List<TypeKey> copyOf(List<TypeKey> list){
+        if(list == null){
+            return EmptyList.of();
+        }
+        return new ArrayCollection<>(list);
+    }
+}
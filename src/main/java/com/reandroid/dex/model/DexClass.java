@@ -30,6 +30,7 @@ import com.reandroid.utils.collection.*;
 import com.reandroid.utils.io.FileUtil;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -305,14 +306,10 @@ public class DexClass extends DexDeclaration implements Comparable<DexClass> {
     public void decode(SmaliWriter writer, File outDir) throws IOException {
         File file = new File(outDir, toFilePath());
         File dir = file.getParentFile();
-        if(dir != null && !dir.exists() && !dir.mkdirs()){
+        if(dir != null && !dir.mkdirs() && !dir.isDirectory()){
             throw new IOException("Failed to create dir: " + dir);
         }
-        FileOutputStream outputStream = new FileOutputStream(file);
-        writer.setWriter(new OutputStreamWriter(outputStream));
-        append(writer);
-        writer.close();
-        outputStream.close();
+        writeSmaliFile(writer, file);
     }
     private String toFilePath(){
         String name = getDefining().getTypeName();
@@ -505,7 +502,18 @@ public class DexClass extends DexDeclaration implements Comparable<DexClass> {
     }
     public void writeSmali(SmaliWriter writer, File dir) throws IOException {
         File file = toSmaliFile(dir);
-        FileUtil.writeUtf8(file, toSmali(writer));
+        FileUtil.ensureParentDirectory(file);
+        writeSmaliFile(writer, file);
+    }
+    private void writeSmaliFile(SmaliWriter writer, File file) throws IOException {
+        Writer fileWriter = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8), SMALI_BUFFER_SIZE);
+        writer.setWriter(fileWriter);
+        try {
+            append(writer);
+        }finally {
+            writer.close();
+        }
     }
     public File toSmaliFile(File dir){
         return new File(dir, buildSmaliPath());
@@ -547,4 +555,6 @@ public class DexClass extends DexDeclaration implements Comparable<DexClass> {
     public String toString() {
         return SmaliWriter.toStringSafe(this);
     }
+
+    private static final int SMALI_BUFFER_SIZE = 16 * 1024;
 }
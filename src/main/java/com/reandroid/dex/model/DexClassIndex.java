@@ -0,0 +1,145 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.dex.model;
+
+import com.reandroid.dex.id.ClassId;
+import com.reandroid.dex.key.TypeKey;
+import com.reandroid.utils.CompareUtil;
+import com.reandroid.utils.collection.ArrayCollection;
+
+import java.util.*;
+
+/**
+ * Directory wide lookup of the dex file defining each class, plus type names sorted
+ * lexicographically for package listing by binary search. When the same class is
+ * defined on multiple dex files the first one wins, same as iterating dex files.
+ * The index is built lazily and dropped by DexDirectory on merge, and by section
+ * hooks whenever a class is removed or the key of a class or type changes, thus a
+ * built index is trusted and misses cost a single map lookup. Classes added by
+ * other means are detected by class count.
+ * */
+public class DexClassIndex {
+    private final DexDirectory dexDirectory;
+    private Map<TypeKey, DexFile> dexFileMap;
+    private TypeKey[] sortedKeys;
+    private boolean mBuilt;
+    private int mClassCount;
+
+    public DexClassIndex(DexDirectory dexDirectory){
+        this.dexDirectory = dexDirectory;
+        this.dexFileMap = new HashMap<>();
+    }
+
+    public synchronized DexFile getDexFile(TypeKey typeKey){
+        ensureBuilt();
+        return dexFileMap.get(typeKey);
+    }
+    public DexClass getDexClass(TypeKey typeKey){
+        if(typeKey == null){
+            return null;
+        }
+        DexFile dexFile = getDexFile(typeKey);
+        if(dexFile != null){
+            return dexFile.getDexClass(typeKey);
+        }
+        return null;
+    }
+    /**
+     * Types whose type name starts with the given prefix, in type name order
+     * */
+    public synchronized List<TypeKey> getKeysStartingWith(String prefix){
+        TypeKey[] sortedKeys = getSortedKeys();
+        int length = sortedKeys.length;
+        int i = lowerBound(sortedKeys, prefix);
+        List<TypeKey> results = new ArrayCollection<>();
+        while (i < length){
+            TypeKey typeKey = sortedKeys[i];
+            if(!typeKey.getTypeName().startsWith(prefix)){
+                break;
+            }
+            results.add(typeKey);
+            i++;
+        }
+        return results;
+    }
+    public Iterator<DexClass> getPackageClasses(String packageName, boolean includeSubPackages){
+        List<DexClass> results = new ArrayCollection<>();
+        for(TypeKey typeKey : getKeysStartingWith(packageName)){
+            if(!typeKey.isPackage(packageName, includeSubPackages)){
+                continue;
+            }
+            DexClass dexClass = getDexClass(typeKey);
+            if(dexClass != null){
+                results.add(dexClass);
+            }
+        }
+        return results.iterator();
+    }
+    public synchronized void invalidate(){
+        mBuilt = false;
+        dexFileMap.clear();
+        sortedKeys = null;
+    }
+    public synchronized boolean isBuilt(){
+        return mBuilt;
+    }
+    public synchronized void build(){
+        // built on a fresh map, as reading keys can fire key change hooks (invalidate)
+        Map<TypeKey, DexFile> dexFileMap = new HashMap<>();
+        for(DexFile dexFile : dexDirectory){
+            Iterator<ClassId> iterator = dexFile.getClassIds();
+            while (iterator.hasNext()){
+                TypeKey typeKey = iterator.next().getKey();
+                if(typeKey != null){
+                    dexFileMap.putIfAbsent(typeKey, dexFile);
+                }
+            }
+        }
+        this.dexFileMap = dexFileMap;
+        this.sortedKeys = null;
+        mBuilt = true;
+        mClassCount = dexDirectory.getDexClassesCount();
+    }
+    private void ensureBuilt(){
+        if(!mBuilt || mClassCount != dexDirectory.getDexClassesCount()){
+            build();
+        }
+    }
+    private TypeKey[] getSortedKeys(){
+        ensureBuilt();
+        TypeKey[] sortedKeys = this.sortedKeys;
+        if(sortedKeys == null){
+            sortedKeys = dexFileMap.keySet().toArray(new TypeKey[0]);
+            Arrays.sort(sortedKeys, (key1, key2) ->
+                    CompareUtil.compare(key1.getTypeName(), key2.getTypeName()));
+            this.sortedKeys = sortedKeys;
+        }
+        return sortedKeys;
+    }
+    private static int lowerBound(TypeKey[] sortedKeys, String prefix){
+        int low = 0;
+        int high = sortedKeys.length;
+        while (low < high){
+            int mid = (low + high) >>> 1;
+            if(CompareUtil.compare(sortedKeys[mid].getTypeName(), prefix) < 0){
+                low = mid + 1;
+            }else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
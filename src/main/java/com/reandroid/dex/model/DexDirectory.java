@@ -18,12 +18,16 @@ package com.reandroid.dex.model;
 import com.reandroid.archive.ZipEntryMap;
 import com.reandroid.arsc.chunk.PackageBlock;
 import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.dex.base.DexException;
 import com.reandroid.dex.common.FullRefresh;
 import com.reandroid.dex.common.SectionItem;
+import com.reandroid.dex.refactor.TypeRenamer;
 import com.reandroid.dex.id.*;
+import com.reandroid.dex.sections.DexLayout;
 import com.reandroid.dex.sections.Marker;
 import com.reandroid.dex.sections.MergeOptions;
 import com.reandroid.dex.smali.SmaliWriter;
+import com.reandroid.dex.smali.SmaliWriterSetting;
 import com.reandroid.utils.collection.ArrayCollection;
 import com.reandroid.dex.common.DexUtils;
 import com.reandroid.dex.ins.*;
@@ -36,12 +40,15 @@ import com.reandroid.dex.value.IntValue;
 import com.reandroid.utils.CompareUtil;
 import com.reandroid.utils.HexUtil;
 import com.reandroid.utils.collection.*;
+import com.reandroid.utils.concurrent.WorkerPool;
 import com.reandroid.utils.io.IOUtil;
+import com.reandroid.utils.metrics.Metrics;
 import org.xmlpull.v1.XmlSerializer;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.function.Predicate;
 
 public class DexDirectory implements Iterable<DexFile>, DexClassRepository, FullRefresh {
@@ -50,10 +57,38 @@ public class DexDirectory implements Iterable<DexFile>, DexClassRepository, Full
     private Object mTag;
 
     private final Set<RClassParent> mRParents;
+    private int threadCount = 1;
+    private final ClassHierarchyIndex hierarchyIndex;
+    private final DexClassIndex classIndex;
+    private final XrefIndex xrefIndex;
 
     public DexDirectory() {
         this.dexSourceSet = new DexFileSourceSet();
         this.mRParents = new HashSet<>();
+        this.hierarchyIndex = new ClassHierarchyIndex(this);
+        this.classIndex = new DexClassIndex(this);
+        this.xrefIndex = new XrefIndex(this);
+    }
+
+    public ClassHierarchyIndex getHierarchyIndex() {
+        return hierarchyIndex;
+    }
+    public DexClassIndex getClassIndex() {
+        return classIndex;
+    }
+    public XrefIndex getXrefIndex() {
+        return xrefIndex;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+    /**
+     * Number of threads for bulk operations that can work on each dex file
+     * independently, default is 1 (serial). Values <= 0 use available processors.
+     * */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
     }
 
     public Object getTag() {
@@ -123,6 +158,9 @@ public class DexDirectory implements Iterable<DexFile>, DexClassRepository, Full
         }
         for(DexFile dexFile : this){
             if(dexFile.merge(options, dexClass)){
+                getHierarchyIndex().add(dexClass.getId());
+                getClassIndex().invalidate();
+                getXrefIndex().invalidate();
                 return true;
             }
         }
@@ -135,6 +173,8 @@ public class DexDirectory implements Iterable<DexFile>, DexClassRepository, Full
         if(directory == this){
             throw new IllegalArgumentException("Cyclic merge");
         }
+        List<TypeKey> mergingKeys = CollectionUtil.toList(
+                ComputeIterator.of(directory.getClassIds(), ClassId::getKey));
         int i = 0;
         while (true){
             DexFile dexFile = this.get(i);
@@ -152,29 +192,147 @@ public class DexDirectory implements Iterable<DexFile>, DexClassRepository, Full
         }
         directory.merge(options);
         getDexSourceSet().merge(directory.getDexSourceSet());
+        getClassIndex().invalidate();
+        getXrefIndex().invalidate();
+        ClassHierarchyIndex hierarchyIndex = getHierarchyIndex();
+        for(TypeKey typeKey : mergingKeys){
+            hierarchyIndex.add(getItem(SectionType.CLASS_ID, typeKey));
+        }
     }
     public void merge(){
         merge(new DexMergeOptions(true));
     }
+    /**
+     * Repacks classes of all dex files to as few dex files as possible. Placement is
+     * planned up front by DexMergePlanner in dex file and class order, thus the
+     * layout does not depend on thread count. Then each dex file is built on a
+     * temporary dex: only incoming classes when it loses none, otherwise all of its
+     * planned classes, as removed classes would leave unused data behind. Finally
+     * each dex file takes its temporary dex and gets refreshed. Copying reads source
+     * classes shared between dex files thus runs serially, only refreshing and
+     * clearing unused data run on multiple threads (see setThreadCount) as each task
+     * touches only its own dex.
+     * */
     public void merge(MergeOptions options){
         if(size() < 2){
             return;
         }
-        int i = 0;
-        while (true){
-            DexFile dexFile = get(i);
-            DexFile last = getLastNonEmpty(options,i + 1);
-            if(dexFile == null || last == null){
-                break;
+        DexMergePlanner planner = new DexMergePlanner();
+        List<List<ClassId>> incomingList = new ArrayList<>();
+        List<Boolean> rebuildList = new ArrayList<>();
+        int size = size();
+        for(int i = 0; i < size; i++){
+            rebuildList.add(Boolean.FALSE);
+            for(ClassId classId : CollectionUtil.toList(get(i).getClassIds())){
+                TypeKey key = classId.getKey();
+                if(planner.contains(key)){
+                    options.onDuplicate(classId);
+                    rebuildList.set(i, Boolean.TRUE);
+                    continue;
+                }
+                int target;
+                if(options.skipMerging(classId, key)){
+                    target = planner.add(classId, i);
+                }else {
+                    target = planner.add(classId);
+                }
+                if(target == i){
+                    continue;
+                }
+                while (incomingList.size() <= target){
+                    incomingList.add(new ArrayCollection<>());
+                }
+                incomingList.get(target).add(classId);
+                rebuildList.set(i, Boolean.TRUE);
             }
-            if(!dexFile.merge(options, last)){
-                i ++;
+        }
+        while (size() < planner.size()){
+            createDefault();
+            rebuildList.add(Boolean.FALSE);
+        }
+        size = size();
+        List<DexFile> copyList = new ArrayList<>(size);
+        for(int i = 0; i < size; i++){
+            List<ClassId> classIdList;
+            if(rebuildList.get(i)){
+                classIdList = i < planner.size() ? planner.getClasses(i) : null;
+            }else {
+                classIdList = i < incomingList.size() ? incomingList.get(i) : null;
             }
+            copyList.add(copyClasses(classIdList));
         }
-        for(DexFile dexFile : this){
+        for(List<ClassId> incoming : incomingList){
+            for(ClassId classId : incoming){
+                options.onMergeSuccess(classId, classId.getKey());
+            }
+        }
+        List<Callable<Object>> refreshTasks = new ArrayList<>(size);
+        for(int i = 0; i < size; i++){
+            DexFile dexFile = get(i);
+            DexFile copy = copyList.get(i);
+            if(rebuildList.get(i)){
+                dexFile.getDexLayout().reset();
+            }
+            if(copy != null){
+                dexFile.merge(new DexMergeOptions(true), copy);
+            }
+            refreshTasks.add(() -> {
+                dexFile.refresh();
+                dexFile.clearDuplicateData();
+                dexFile.clearUnused();
+                return null;
+            });
+        }
+        WorkerPool workerPool = new WorkerPool(getThreadCount());
+        try {
+            workerPool.invokeAll(refreshTasks);
+        } catch (IOException exception) {
+            throw new DexException("Failed to refresh merged dex files", exception);
+        }finally {
+            workerPool.close();
+        }
+        Set<DexFile> updated = new HashSet<>();
+        for(DexFile copy : copyList){
+            mergeRemaining(options, copy, updated);
+        }
+        for(DexFile dexFile : updated){
             dexFile.refresh();
-            dexFile.clearDuplicateData();
-            dexFile.clearUnused();
+        }
+        getClassIndex().invalidate();
+        getXrefIndex().invalidate();
+    }
+    private static DexFile copyClasses(List<ClassId> classIdList){
+        if(classIdList == null || classIdList.isEmpty()){
+            return null;
+        }
+        DexFile dexFile = DexFile.createDefault();
+        MergeOptions copyOptions = new DexMergeOptions(false);
+        for(ClassId classId : classIdList){
+            dexFile.merge(copyOptions, classId);
+        }
+        return dexFile;
+    }
+    /**
+     * Falls back to first fit merging for classes left over when a dex file ended
+     * up with more ids than planned
+     * */
+    private void mergeRemaining(MergeOptions options, DexFile copy, Set<DexFile> updated){
+        if(copy == null || copy.isEmpty()){
+            return;
+        }
+        for(ClassId classId : CollectionUtil.toList(copy.getClassIds())){
+            DexFile merged = null;
+            for(DexFile dexFile : this){
+                if(dexFile.merge(options, classId)){
+                    merged = dexFile;
+                    break;
+                }
+            }
+            if(merged == null){
+                merged = createDefault();
+                merged.merge(options, classId);
+            }
+            updated.add(merged);
         }
     }
     private DexFile getLastNonEmpty(MergeOptions options, int limit){
@@ -254,21 +412,16 @@ public class DexDirectory implements Iterable<DexFile>, DexClassRepository, Full
             }
         };
     }
+    /**
+     * Transitive sub types across all dex files
+     * @see ClassHierarchyIndex#getSubTypes(TypeKey)
+     * */
     public Iterator<DexClass> getSubTypes(TypeKey typeKey){
-        return new IterableIterator<DexFile, DexClass>(iterator()) {
-            @Override
-            public Iterator<DexClass> iterator(DexFile element) {
-                return element.getSubTypes(typeKey);
-            }
-        };
+        return ComputeIterator.of(getHierarchyIndex().getSubTypes(typeKey).iterator(),
+                this::getDexClass);
     }
     public Iterator<DexClass> getImplementClasses(TypeKey typeKey){
-        return new IterableIterator<DexFile, DexClass>(iterator()) {
-            @Override
-            public Iterator<DexClass> iterator(DexFile element) {
-                return element.getImplementClasses(typeKey);
-            }
-        };
+        return searchImplementations(typeKey);
     }
     private void replaceRIns(Ins ins) {
         if(ins instanceof SizeXIns){
@@ -406,7 +559,8 @@ public class DexDirectory implements Iterable<DexFile>, DexClassRepository, Full
     private final Map<FieldKey, FieldDef> mObfFields = new HashMap<>();
     private void replaceObfRFields(){
         mapObfRFields();
-        ArrayCollection<Ins> invokeList = ArrayCollection.of(FilterIterator.of(getInstructions(), this::isObfRInvoke));
+        ArrayCollection<Ins> invokeList = ArrayCollection.of(
+                scanInstructions(this::isObfRInvoke, this::isObfRInvoke));
 
         log("OBF R Invokes = " + invokeList.size());
         for(Ins ins : invokeList){
@@ -422,6 +576,12 @@ public class DexDirectory implements Iterable<DexFile>, DexClassRepository, Full
         RField rField = getRField(intValue.get());
         ins21c.setSectionIdKey(rField.getKey());
     }
+    private boolean isObfRInvoke(InsScanner scanner) {
+        if(scanner.getOpcode() != Opcode.SGET){
+            return false;
+        }
+        return mObfFields.containsKey(scanner.getSectionKey());
+    }
     boolean isObfRInvoke(Ins ins) {
         if(ins.getOpcode() != Opcode.SGET){
             return false;
@@ -484,7 +644,50 @@ public class DexDirectory implements Iterable<DexFile>, DexClassRepository, Full
         return hasRField(intValue.get());
     }
     private Iterator<Ins> searchRIns() {
-        return FilterIterator.of(getInstructions(), this::hasRField);
+        return scanInstructions(this::hasRField, this::hasRField);
+    }
+    /**
+     * Instructions matched by the given filter. Code items not yet decoded (see
+     * SectionList#setLazyCode) are first scanned from raw code units by scanFilter,
+     * and only those having at least one match are decoded; decoded code items are
+     * filtered directly. The scanFilter must match every instruction the filter matches.
+     * */
+    public Iterator<Ins> scanInstructions(Predicate<? super InsScanner> scanFilter, Predicate<? super Ins> filter){
+        InsScanner scanner = new InsScanner();
+        Iterator<CodeItem> iterator = FilterIterator.of(getItems(SectionType.CODE), codeItem -> {
+            if(!codeItem.getInstructionList().isLazyCode()){
+                return true;
+            }
+            scanner.reset(codeItem);
+            while (scanner.next()){
+                if(scanFilter.test(scanner)){
+                    return true;
+                }
+            }
+            return false;
+        });
+        return new IterableIterator<CodeItem, Ins>(iterator) {
+            @Override
+            public Iterator<Ins> iterator(CodeItem element) {
+                return FilterIterator.of(element.getInstructionList().iterator(), filter);
+            }
+        };
+    }
+    private boolean hasRField(InsScanner scanner){
+        Opcode<?> opcode = scanner.getOpcode();
+        if(opcode == Opcode.CONST || opcode == Opcode.CONST_HIGH16){
+            return hasRField((int) scanner.getLiteral());
+        }
+        if(opcode != Opcode.ARRAY_PAYLOAD || scanner.getPayloadWidth() != 4){
+            return false;
+        }
+        int size = scanner.getPayloadSize();
+        for(int i = 0; i < size; i++){
+            if(hasRField((int) scanner.getArrayElement(i))){
+                return true;
+            }
+        }
+        return false;
     }
     boolean hasRField(Ins ins){
         if(ins instanceof InsArrayData){
@@ -573,18 +776,29 @@ public class DexDirectory implements Iterable<DexFile>, DexClassRepository, Full
     public boolean removeDexClass(TypeKey typeKey){
         for(DexFile dexFile : this){
             if(dexFile.removeDexClass(typeKey)){
+                getHierarchyIndex().remove(typeKey);
+                getClassIndex().invalidate();
+                getXrefIndex().remove(typeKey);
                 return true;
             }
         }
         return false;
     }
     public Iterator<Key> removeDexClasses(Predicate<? super Key> filter){
-        return new IterableIterator<DexFile, Key>(iterator()) {
+        Iterator<Key> iterator = new IterableIterator<DexFile, Key>(iterator()) {
             @Override
             public Iterator<Key> iterator(DexFile element) {
                 return element.removeDexClasses(filter);
             }
         };
+        return ComputeIterator.of(iterator, key -> {
+            if(key instanceof TypeKey){
+                getHierarchyIndex().remove((TypeKey) key);
+                getXrefIndex().remove((TypeKey) key);
+            }
+            getClassIndex().invalidate();
+            return key;
+        });
     }
     public<T1 extends SectionItem> Iterator<T1> getClonedItems(SectionType<T1> sectionType) {
         return new IterableIterator<DexFile, T1>(clonedIterator()) {
@@ -607,13 +821,11 @@ public class DexDirectory implements Iterable<DexFile>, DexClassRepository, Full
     }
     @Override
     public DexClass getDexClass(TypeKey key){
-        for(DexFile dexFile : this){
-            DexClass result = dexFile.getDexClass(key);
-            if(result != null){
-                return result;
-            }
-        }
-        return null;
+        return getClassIndex().getDexClass(key);
+    }
+    @Override
+    public Iterator<DexClass> getPackageClasses(String packageName, boolean includeSubPackages) {
+        return getClassIndex().getPackageClasses(packageName, includeSubPackages);
     }
     @Override
     public Iterator<DexClass> getDexClasses(Predicate<? super TypeKey> filter) {
@@ -737,11 +949,13 @@ public class DexDirectory implements Iterable<DexFile>, DexClassRepository, Full
         if(containsClass(replace)){
             throw new RuntimeException("Duplicate: " + search + " --> " + replace);
         }
-        int count = 0;
-        Iterator<?> iterator = renameTypes(search, replace, true, true);
-        while (iterator.hasNext()){
-            iterator.next();
-            count++;
+        TypeRenamer typeRenamer = new TypeRenamer(true, true);
+        typeRenamer.add(search, replace);
+        int count;
+        try {
+            count = renameTypes(typeRenamer).size();
+        } catch (IOException exception) {
+            throw new DexException("Failed to rename: " + search + " --> " + replace, exception);
         }
         if(count == 0){
             return;
@@ -760,9 +974,41 @@ public class DexDirectory implements Iterable<DexFile>, DexClassRepository, Full
         return FilterIterator.of(getClonedItems(SectionType.STRING_ID),
                 stringId -> renameTypes(stringId, pair, renameInner, renameJava));
     }
+    /**
+     * Renames all pairs at once through TypeRenamer, unlike single pair methods
+     * renaming is done eagerly and the returned iterator lists renamed strings
+     * */
     public Iterator<StringId> renameTypes(Iterable<KeyPair<TypeKey, TypeKey>> iterable, boolean renameInner, boolean renameJava){
-        return FilterIterator.of(getClonedItems(SectionType.STRING_ID),
-                stringId -> renameTypes(stringId, iterable, renameInner, renameJava));
+        TypeRenamer typeRenamer = new TypeRenamer(renameInner, renameJava);
+        typeRenamer.addAll(iterable);
+        try {
+            return renameTypes(typeRenamer).iterator();
+        } catch (IOException exception) {
+            throw new DexException("Failed to rename types", exception);
+        }
+    }
+    public List<StringId> renameTypes(TypeRenamer typeRenamer) throws IOException {
+        List<DexFile> dexFileList = CollectionUtil.toList(clonedIterator());
+        List<StringId> results = new ArrayCollection<>();
+        if(typeRenamer.isEmpty() || dexFileList.isEmpty()){
+            return results;
+        }
+        List<Callable<List<StringId>>> tasks = new ArrayList<>(dexFileList.size());
+        for(DexFile dexFile : dexFileList){
+            tasks.add(() -> typeRenamer.apply(dexFile));
+        }
+        WorkerPool workerPool = new WorkerPool(getThreadCount());
+        try {
+            for(List<StringId> renamed : workerPool.invokeAll(tasks)){
+                results.addAll(renamed);
+            }
+        }finally {
+            workerPool.close();
+        }
+        getHierarchyIndex().rename(typeRenamer);
+        getClassIndex().invalidate();
+        getXrefIndex().invalidate();
+        return results;
     }
     boolean renameTypes(StringId stringId, Iterable<KeyPair<TypeKey, TypeKey>> iterable, boolean renameInner, boolean renameJava){
         for(KeyPair<TypeKey, TypeKey> pair : iterable){
@@ -776,13 +1022,43 @@ public class DexDirectory implements Iterable<DexFile>, DexClassRepository, Full
     boolean renameTypes(StringId stringId, KeyPair<TypeKey, TypeKey> pair, boolean renameInner, boolean renameJava){
         boolean renamed = renameTypeString(stringId, pair, renameInner, renameJava);
         if(renamed){
-            DexClass dexClass = getDexClass(stringId.getString());
+            getHierarchyIndex().invalidate();
+            getClassIndex().invalidate();
+            getXrefIndex().invalidate();
+            DexClass dexClass = findRenamedClass(stringId);
             if(dexClass != null){
                 dexClass.fixDalvikInnerClassName();
             }
         }
         return renamed;
     }
+    /**
+     * Looks up the class on the dex file owning the string, a lookup through the
+     * directory would rebuild the just invalidated class index for every renamed string.
+     * */
+    private DexClass findRenamedClass(StringId stringId){
+        String text = stringId.getString();
+        if(text.length() < 2 || text.charAt(0) != 'L'){
+            return null;
+        }
+        TypeKey typeKey = TypeKey.create(text);
+        DexFile dexFile = findDexFile(stringId);
+        if(dexFile != null){
+            return dexFile.getDexClass(typeKey);
+        }
+        return getDexClass(typeKey);
+    }
+    private static DexFile findDexFile(StringId stringId){
+        DexLayout dexLayout = stringId.getParentInstance(DexLayout.class);
+        if(dexLayout == null){
+            return null;
+        }
+        Object obj = dexLayout.getTag();
+        if(!(obj instanceof DexFile)){
+            return null;
+        }
+        return (DexFile) obj;
+    }
     private boolean renameTypeString(StringId stringId, KeyPair<TypeKey, TypeKey> pair, boolean renameInner, boolean renameJava){
 
         String text = stringId.getString();
@@ -977,20 +1253,12 @@ public class DexDirectory implements Iterable<DexFile>, DexClassRepository, Full
         };
     }
     public Iterator<DexClass> searchExtending(TypeKey typeKey){
-        return new IterableIterator<DexFile, DexClass>(iterator()) {
-            @Override
-            public Iterator<DexClass> iterator(DexFile element) {
-                return element.getExtendingClasses(typeKey);
-            }
-        };
+        return ComputeIterator.of(getHierarchyIndex().getExtending(typeKey).iterator(),
+                this::getDexClass);
     }
     public Iterator<DexClass> searchImplementations(TypeKey typeKey){
-        return new IterableIterator<DexFile, DexClass>(iterator()) {
-            @Override
-            public Iterator<DexClass> iterator(DexFile element) {
-                return element.getImplementClasses(typeKey);
-            }
-        };
+        return ComputeIterator.of(getHierarchyIndex().getImplementations(typeKey).iterator(),
+                this::getDexClass);
     }
     public boolean containsClass(TypeKey key){
         return contains(SectionType.CLASS_ID, key);
@@ -1071,9 +1339,54 @@ public class DexDirectory implements Iterable<DexFile>, DexClassRepository, Full
     }
 
 
+    /**
+     * Disassembles all classes to smali files. When thread count is not 1, classes
+     * are split to chunks written concurrently, each worker uses its own SmaliWriter
+     * sharing the writer setting of the given writer.
+     * */
     public void writeSmali(SmaliWriter writer, File root) throws IOException {
+        Metrics.Span span = Metrics.start(Metrics.SMALI_WRITE);
+        writeSmaliClasses(writer, root);
+        span.end();
+        Metrics.count(Metrics.SMALI_CLASSES, getDexClassesCount());
+    }
+    private void writeSmaliClasses(SmaliWriter writer, File root) throws IOException {
+        WorkerPool workerPool = new WorkerPool(getThreadCount());
+        if(workerPool.isSerial()){
+            for(DexFile dexFile : this){
+                dexFile.writeSmali(writer, root);
+            }
+            return;
+        }
+        List<DexClass> classList = new ArrayCollection<>(getDexClassesCount());
+        List<File> dirList = new ArrayCollection<>(classList.size());
         for(DexFile dexFile : this){
-            dexFile.writeSmali(writer, root);
+            File dir = new File(root, dexFile.buildSmaliDirectoryName());
+            for(DexClass dexClass : dexFile){
+                classList.add(dexClass);
+                dirList.add(dir);
+            }
+        }
+        int size = classList.size();
+        int chunkSize = Math.max(1, size / (workerPool.getThreadCount() * 8));
+        SmaliWriterSetting setting = writer.getWriterSetting();
+        List<Callable<Object>> tasks = new ArrayList<>(size / chunkSize + 1);
+        for(int start = 0; start < size; start += chunkSize){
+            int from = start;
+            int to = Math.min(size, start + chunkSize);
+            tasks.add(() -> {
+                SmaliWriter smaliWriter = new SmaliWriter();
+                smaliWriter.setWriterSetting(setting);
+                for(int i = from; i < to; i++){
+                    classList.get(i).writeSmali(smaliWriter, dirList.get(i));
+                }
+                return null;
+            });
+        }
+        try {
+            workerPool.invokeAll(tasks);
+        }finally {
+            workerPool.close();
         }
     }
     public static DexDirectory fromZip(ZipEntryMap zipEntryMap) throws IOException {
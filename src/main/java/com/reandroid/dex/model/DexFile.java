@@ -41,12 +41,16 @@ import com.reandroid.dex.smali.SmaliWriterSetting;
 import com.reandroid.dex.smali.model.SmaliClass;
 import com.reandroid.utils.CompareUtil;
 import com.reandroid.utils.collection.*;
+import com.reandroid.utils.concurrent.WorkerPool;
 import com.reandroid.utils.io.FileIterator;
 import com.reandroid.utils.io.FileUtil;
+import com.reandroid.utils.metrics.Metrics;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.function.Predicate;
 
 public class DexFile implements DexClassRepository, Iterable<DexClass>, FullRefresh {
@@ -144,6 +148,13 @@ public class DexFile implements DexClassRepository, Iterable<DexClass>, FullRefr
         dexLayout.setSimpleName(getSimpleName());
     }
 
+    public void onClassChanged(){
+        DexDirectory directory = getDexDirectory();
+        if(directory != null){
+            directory.getClassIndex().invalidate();
+        }
+    }
+
     public Iterator<DexClass> getSubTypes(TypeKey typeKey){
         return ComputeIterator.of(getSubTypeIds(typeKey), this::create);
     }
@@ -416,6 +427,7 @@ public class DexFile implements DexClassRepository, Iterable<DexClass>, FullRefr
         return getWithUsage(sectionType, UsageMarker.USAGE_NONE);
     }
     public<T1 extends SectionItem> Iterator<T1> getWithUsage(SectionType<T1> sectionType, int usage){
+        getDexLayout().getSectionList().decodeLazyCode();
         return FilterIterator.of(getSection(sectionType).iterator(),
                 item -> ((UsageMarker)item).containsUsage(usage));
     }
@@ -518,17 +530,70 @@ public class DexFile implements DexClassRepository, Iterable<DexClass>, FullRefr
         return getDexLayout().merge(options, dexFile.getDexLayout());
     }
     public void parseSmaliDirectory(File dir) throws IOException {
+        DexDirectory dexDirectory = getDexDirectory();
+        int threadCount = 1;
+        if(dexDirectory != null){
+            threadCount = dexDirectory.getThreadCount();
+        }
+        parseSmaliDirectory(dir, threadCount);
+    }
+    /**
+     * When thread count is not 1, smali files are read and parsed to SmaliClass
+     * concurrently in batches, then each batch is merged to this dex in file order.
+     * Thus the result is the same as parsing serially, while at most one batch of
+     * parsed classes is held in memory.
+     * */
+    public void parseSmaliDirectory(File dir, int threadCount) throws IOException {
         if(!dir.isDirectory()){
             throw new FileNotFoundException("No such directory: " + dir);
         }
+        Metrics.Span span = Metrics.start(Metrics.SMALI_PARSE);
         FileIterator iterator = new FileIterator(dir, FileIterator.getExtensionFilter(".smali"));
-        while (iterator.hasNext()){
-            parseSmaliFile(iterator.next());
+        WorkerPool workerPool = new WorkerPool(threadCount);
+        try {
+            if(workerPool.isSerial()){
+                while (iterator.hasNext()){
+                    parseSmaliFile(iterator.next());
+                }
+            }else {
+                parseSmaliFiles(workerPool, iterator);
+            }
+        }finally {
+            workerPool.close();
         }
         refresh();
         clearUnused();
         clearDuplicateData();
         clearEmptySections();
+        span.end();
+        Metrics.count(Metrics.SMALI_CLASSES, getDexClassesCount());
+    }
+    private void parseSmaliFiles(WorkerPool workerPool, Iterator<File> iterator) throws IOException {
+        int batchSize = workerPool.getThreadCount() * SMALI_BATCH_PER_THREAD;
+        List<Callable<List<SmaliClass>>> tasks = new ArrayList<>(batchSize);
+        while (iterator.hasNext()){
+            File file = iterator.next();
+            tasks.add(() -> parseSmaliClasses(SmaliReader.of(file)));
+            if(tasks.size() < batchSize && iterator.hasNext()){
+                continue;
+            }
+            for(List<SmaliClass> smaliClassList : workerPool.invokeAll(tasks)){
+                for(SmaliClass smaliClass : smaliClassList){
+                    fromSmali(smaliClass);
+                }
+            }
+            tasks.clear();
+        }
+    }
+    private static List<SmaliClass> parseSmaliClasses(SmaliReader reader) throws IOException {
+        List<SmaliClass> results = new ArrayCollection<>(1);
+        while (SmaliDirective.parse(reader, false) == SmaliDirective.CLASS){
+            SmaliClass smaliClass = new SmaliClass();
+            smaliClass.parse(reader);
+            results.add(smaliClass);
+            reader.skipWhitespacesOrComment();
+        }
+        return results;
     }
     public void parseSmaliFile(File file) throws IOException {
         fromSmali(SmaliReader.of(file));
@@ -556,13 +621,20 @@ public class DexFile implements DexClassRepository, Iterable<DexClass>, FullRefr
         if(dir != null && !dir.exists()){
             dir.mkdirs();
         }
-        FileOutputStream outputStream = new FileOutputStream(file);
+        OutputStream outputStream = new BufferedOutputStream(
+                new FileOutputStream(file), WRITE_BUFFER_SIZE);
         write(outputStream);
         outputStream.close();
     }
+    /**
+     * Streams sections directly to the given stream, the header should be up to date
+     * by refresh, same as getBytes
+     * */
     public void write(OutputStream outputStream) throws IOException {
-        byte[] bytes = getBytes();
-        outputStream.write(bytes, 0, bytes.length);
+        if(isEmpty()){
+            return;
+        }
+        getDexLayout().writeBytes(outputStream);
     }
 
     public String printSectionInfo(){
@@ -650,10 +722,26 @@ public class DexFile implements DexClassRepository, Iterable<DexClass>, FullRefr
         return read(new BlockReader(file));
     }
     public static DexFile read(BlockReader reader) throws IOException {
+        return read(reader, false);
+    }
+    /**
+     * @param lazyCode if true instructions are decoded on first access
+     * @see com.reandroid.dex.sections.SectionList#setLazyCode(boolean)
+     * */
+    public static DexFile read(BlockReader reader, boolean lazyCode) throws IOException {
+        Metrics.Span span = Metrics.start(Metrics.DEX_LOAD);
         DexLayout dexLayout = new DexLayout();
+        dexLayout.getSectionList().setLazyCode(lazyCode);
+        Metrics.count(Metrics.DEX_BYTES_IN, reader.available());
         dexLayout.readBytes(reader);
         reader.close();
-        return new DexFile(dexLayout);
+        DexFile dexFile = new DexFile(dexLayout);
+        span.end();
+        Metrics.count(Metrics.DEX_CLASSES, dexFile.getDexClassesCount());
+        return dexFile;
+    }
+    public static DexFile read(File file, boolean lazyCode) throws IOException {
+        return read(new BlockReader(file), lazyCode);
     }
     public static DexFile readStrings(BlockReader reader) throws IOException {
         DexLayout dexLayout = new DexLayout();
@@ -714,4 +802,7 @@ public class DexFile implements DexClassRepository, Iterable<DexClass>, FullRefr
         }
         return "classes" + i + ".dex";
     }
+
+    private static final int SMALI_BATCH_PER_THREAD = 64;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
 }
@@ -0,0 +1,204 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.dex.model;
+
+import com.reandroid.dex.id.ClassId;
+import com.reandroid.dex.id.IdItem;
+import com.reandroid.dex.key.Key;
+import com.reandroid.dex.key.StringKey;
+import com.reandroid.dex.key.TypeKey;
+import com.reandroid.dex.sections.SectionType;
+import com.reandroid.utils.collection.ArrayCollection;
+
+import java.util.*;
+
+/**
+ * Plans placement of classes to dex files ahead of merging. The id footprint of each
+ * class (keys of string, type, proto, field and method ids reachable from
+ * ClassId.listUsedIds) is computed once and classes are packed first-fit in the
+ * order they are added, thus the resulting layout depends only on class order.
+ * Counts are exact unique key counts per target, checked against the given limit.
+ * */
+public class DexMergePlanner {
+    private final int limit;
+    private final List<Target> targetList;
+    private final Map<TypeKey, Integer> placementMap;
+
+    public DexMergePlanner(int limit){
+        this.limit = limit;
+        this.targetList = new ArrayCollection<>();
+        this.placementMap = new HashMap<>();
+    }
+    public DexMergePlanner(){
+        this(DEFAULT_LIMIT);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+    public int size(){
+        return targetList.size();
+    }
+    public boolean contains(TypeKey typeKey){
+        return placementMap.containsKey(typeKey);
+    }
+    /**
+     * @return index of planned target or -1 if the class is not planned
+     * */
+    public int getTarget(TypeKey typeKey){
+        Integer index = placementMap.get(typeKey);
+        if(index != null){
+            return index;
+        }
+        return -1;
+    }
+    public List<ClassId> getClasses(int target){
+        return targetList.get(target).classList;
+    }
+    public int getIdsCount(int target, SectionType<?> sectionType){
+        int index = indexOf(sectionType);
+        if(index < 0){
+            return 0;
+        }
+        return targetList.get(target).keySets.get(index).size();
+    }
+    /**
+     * Places the class on the first target having room for its ids, or on a new one
+     * @return index of target
+     * */
+    public int add(ClassId classId){
+        Key[][] footprint = footprintOf(classId);
+        List<Target> targetList = this.targetList;
+        int size = targetList.size();
+        for(int i = 0; i < size; i++){
+            Target target = targetList.get(i);
+            if(target.fits(footprint, limit)){
+                return place(classId, footprint, i);
+            }
+        }
+        return place(classId, footprint, size);
+    }
+    /**
+     * Places the class on the given target regardless of its remaining room, e.g.
+     * classes that are not allowed to move
+     * */
+    public int add(ClassId classId, int target){
+        return place(classId, footprintOf(classId), target);
+    }
+    private int place(ClassId classId, Key[][] footprint, int index){
+        List<Target> targetList = this.targetList;
+        while (targetList.size() <= index){
+            targetList.add(new Target());
+        }
+        targetList.get(index).add(classId, footprint);
+        placementMap.put(classId.getKey(), index);
+        return index;
+    }
+
+    private static Key[][] footprintOf(ClassId classId){
+        int length = SECTION_TYPES.length;
+        List<Set<Key>> sets = new ArrayList<>(length);
+        for(int i = 0; i < length; i++){
+            sets.add(new HashSet<>());
+        }
+        ArrayCollection<IdItem> pending = classId.listUsedIds();
+        Set<IdItem> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        while (!pending.isEmpty()){
+            IdItem idItem = pending.remove(pending.size() - 1);
+            if(idItem == null || !visited.add(idItem)){
+                continue;
+            }
+            int index = indexOf(idItem.getSectionType());
+            Key key = idItem.getKey();
+            if(index >= 0 && key != null){
+                sets.get(index).add(key);
+                if(key instanceof TypeKey){
+                    // type ids do not list the string id of their descriptor
+                    sets.get(STRING_INDEX).add(StringKey.create(
+                            ((TypeKey) key).getTypeName()));
+                }
+            }
+            pending.addAll(idItem.usedIds());
+        }
+        Key[][] footprint = new Key[length][];
+        for(int i = 0; i < length; i++){
+            footprint[i] = sets.get(i).toArray(new Key[0]);
+        }
+        return footprint;
+    }
+    private static int indexOf(SectionType<?> sectionType){
+        SectionType<?>[] sectionTypes = SECTION_TYPES;
+        for(int i = 0; i < sectionTypes.length; i++){
+            if(sectionTypes[i] == sectionType){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static class Target {
+        final List<ClassId> classList;
+        final List<Set<Key>> keySets;
+
+        Target(){
+            this.classList = new ArrayCollection<>();
+            int length = SECTION_TYPES.length;
+            this.keySets = new ArrayList<>(length);
+            for(int i = 0; i < length; i++){
+                keySets.add(new HashSet<>());
+            }
+        }
+        boolean fits(Key[][] footprint, int limit){
+            int length = footprint.length;
+            for(int i = 0; i < length; i++){
+                Set<Key> keySet = keySets.get(i);
+                int count = keySet.size();
+                if(count + footprint[i].length <= limit){
+                    continue;
+                }
+                for(Key key : footprint[i]){
+                    if(!keySet.contains(key)){
+                        count ++;
+                        if(count > limit){
+                            return false;
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+        void add(ClassId classId, Key[][] footprint){
+            classList.add(classId);
+            int length = footprint.length;
+            for(int i = 0; i < length; i++){
+                keySets.get(i).addAll(Arrays.asList(footprint[i]));
+            }
+        }
+    }
+
+    private static final SectionType<?>[] SECTION_TYPES = new SectionType<?>[]{
+            SectionType.STRING_ID,
+            SectionType.TYPE_ID,
+            SectionType.PROTO_ID,
+            SectionType.FIELD_ID,
+            SectionType.METHOD_ID
+    };
+    private static final int STRING_INDEX = 0;
+    /**
+     * Same margin as IdSection.canAdd, thus planned targets are accepted by merge
+     * */
+    public static final int DEFAULT_LIMIT = 0xffff - 200;
+}
@@ -0,0 +1,469 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.dex.model;
+
+import com.reandroid.dex.data.AnnotationsDirectory;
+import com.reandroid.dex.data.ClassData;
+import com.reandroid.dex.data.CodeItem;
+import com.reandroid.dex.data.EncodedArray;
+import com.reandroid.dex.data.InstructionList;
+import com.reandroid.dex.data.MethodDef;
+import com.reandroid.dex.id.ClassId;
+import com.reandroid.dex.id.IdItem;
+import com.reandroid.dex.ins.Ins;
+import com.reandroid.dex.ins.InsScanner;
+import com.reandroid.dex.ins.SizeXIns;
+import com.reandroid.dex.key.*;
+import com.reandroid.dex.sections.SectionType;
+import com.reandroid.utils.collection.ArrayCollection;
+import com.reandroid.utils.collection.EmptyList;
+
+import java.util.*;
+
+/**
+ * Directory wide cross-reference index of string, type, field and method keys.
+ * Use sites are kept per key as packed int triples (class, method, address) in a
+ * growable int array, where class and method are indexes to key tables. Uses from
+ * annotations, static values, super class and interfaces are recorded with method
+ * and address of -1.
+ * Code items not yet decoded are scanned from raw code units (see InsScanner) thus
+ * building does not decode lazily read code items. The index is built lazily in one
+ * pass and DexDirectory keeps it up to date on merge, class removal and type renames.
+ * A changed class count or instruction edit count (see SectionList#getCodeModCount())
+ * triggers a rebuild on next query; update(MethodDef) or update(ClassId) re-index only
+ * the given method or class instead, callers taking that path must update every
+ * method they edited.
+ * */
+public class XrefIndex {
+    private final DexDirectory dexDirectory;
+    private final Map<Key, SiteList> siteMap;
+    private final List<TypeKey> classKeys;
+    private final Map<TypeKey, Integer> classIndexMap;
+    private final List<MethodKey> methodKeys;
+    private final Map<MethodKey, Integer> methodIndexMap;
+    private final Map<MethodKey, Key[]> methodUses;
+    private final Map<TypeKey, Key[]> classUses;
+    private final Map<TypeKey, Set<MethodKey>> classMethods;
+    private final InsScanner insScanner;
+    private boolean mBuilt;
+    private int mClassCount;
+    private int mCodeModCount;
+
+    public XrefIndex(DexDirectory dexDirectory){
+        this.dexDirectory = dexDirectory;
+        this.siteMap = new HashMap<>();
+        this.classKeys = new ArrayList<>();
+        this.classIndexMap = new HashMap<>();
+        this.methodKeys = new ArrayList<>();
+        this.methodIndexMap = new HashMap<>();
+        this.methodUses = new HashMap<>();
+        this.classUses = new HashMap<>();
+        this.classMethods = new HashMap<>();
+        this.insScanner = new InsScanner();
+    }
+
+    public synchronized boolean isUsed(Key key){
+        return getUsageCount(key) != 0;
+    }
+    public synchronized int getUsageCount(Key key){
+        ensureBuilt();
+        SiteList siteList = siteMap.get(key);
+        if(siteList != null){
+            return siteList.size();
+        }
+        return 0;
+    }
+    public synchronized List<Site> getSites(Key key){
+        ensureBuilt();
+        SiteList siteList = siteMap.get(key);
+        if(siteList == null){
+            return EmptyList.of();
+        }
+        int size = siteList.size();
+        List<Site> results = new ArrayCollection<>(size);
+        for(int i = 0; i < size; i++){
+            results.add(new Site(
+                    classKeys.get(siteList.getClassIndex(i)),
+                    getMethodKey(siteList.getMethodIndex(i)),
+                    siteList.getAddress(i)));
+        }
+        return results;
+    }
+    /**
+     * Distinct methods whose instructions use the given key, e.g. callers of a method
+     * */
+    public synchronized List<MethodKey> getUserMethods(Key key){
+        ensureBuilt();
+        SiteList siteList = siteMap.get(key);
+        if(siteList == null){
+            return EmptyList.of();
+        }
+        int size = siteList.size();
+        List<MethodKey> results = new ArrayCollection<>();
+        BitSet added = new BitSet(methodKeys.size());
+        for(int i = 0; i < size; i++){
+            int method = siteList.getMethodIndex(i);
+            if(method < 0 || added.get(method)){
+                continue;
+            }
+            added.set(method);
+            results.add(methodKeys.get(method));
+        }
+        return results;
+    }
+    public synchronized List<TypeKey> getUserClasses(Key key){
+        ensureBuilt();
+        SiteList siteList = siteMap.get(key);
+        if(siteList == null){
+            return EmptyList.of();
+        }
+        int size = siteList.size();
+        List<TypeKey> results = new ArrayCollection<>();
+        BitSet added = new BitSet(classKeys.size());
+        for(int i = 0; i < size; i++){
+            int index = siteList.getClassIndex(i);
+            if(added.get(index)){
+                continue;
+            }
+            added.set(index);
+            results.add(classKeys.get(index));
+        }
+        return results;
+    }
+
+    /**
+     * Re-indexes instructions of the given method after editing its code, avoids a
+     * full rebuild on next query
+     * */
+    public synchronized void update(MethodDef methodDef){
+        if(!mBuilt){
+            return;
+        }
+        MethodKey methodKey = methodDef.getKey();
+        removeMethod(methodKey);
+        addMethod(getClassIndex(methodKey.getDeclaring()), methodDef);
+        updateCounts();
+    }
+    /**
+     * Re-indexes the whole class, or removes it if the class no longer exists
+     * */
+    public synchronized void update(ClassId classId){
+        if(!mBuilt){
+            return;
+        }
+        removeClass(classId.getKey());
+        addClass(classId);
+        updateCounts();
+    }
+    public synchronized void remove(TypeKey typeKey){
+        if(mBuilt){
+            removeClass(typeKey);
+            updateCounts();
+        }
+    }
+    public synchronized void invalidate(){
+        mBuilt = false;
+        clear();
+    }
+    public synchronized boolean isBuilt(){
+        return mBuilt;
+    }
+    public synchronized void build(){
+        clear();
+        Iterator<ClassId> iterator = dexDirectory.getClassIds();
+        while (iterator.hasNext()){
+            addClass(iterator.next());
+        }
+        mBuilt = true;
+        updateCounts();
+    }
+    private void ensureBuilt(){
+        if(!mBuilt || mClassCount != dexDirectory.getDexClassesCount()
+                || mCodeModCount != getCodeModCount()){
+            build();
+        }
+    }
+    private void updateCounts(){
+        mClassCount = dexDirectory.getDexClassesCount();
+        mCodeModCount = getCodeModCount();
+    }
+    private int getCodeModCount(){
+        int result = 0;
+        for(DexFile dexFile : dexDirectory){
+            result += dexFile.getDexLayout().getSectionList().getCodeModCount();
+        }
+        return result;
+    }
+    private void clear(){
+        siteMap.clear();
+        classKeys.clear();
+        classIndexMap.clear();
+        methodKeys.clear();
+        methodIndexMap.clear();
+        methodUses.clear();
+        classUses.clear();
+        classMethods.clear();
+    }
+
+    private void addClass(ClassId classId){
+        TypeKey typeKey = classId.getKey();
+        if(typeKey == null){
+            return;
+        }
+        int classIndex = getClassIndex(typeKey);
+        Set<Key> uses = new HashSet<>();
+        addUse(uses, classId.getSuperClassKey(), classIndex);
+        Iterator<TypeKey> interfaces = classId.getInterfaceKeys();
+        while (interfaces.hasNext()){
+            addUse(uses, interfaces.next(), classIndex);
+        }
+        AnnotationsDirectory directory = classId.getAnnotationsDirectory();
+        if(directory != null){
+            addUses(uses, directory.usedIds(), classIndex);
+        }
+        EncodedArray encodedArray = classId.getStaticValues();
+        if(encodedArray != null){
+            addUses(uses, encodedArray.usedIds(), classIndex);
+        }
+        if(!uses.isEmpty()){
+            classUses.put(typeKey, uses.toArray(new Key[0]));
+        }
+        ClassData classData = classId.getClassData();
+        if(classData == null){
+            return;
+        }
+        Iterator<MethodDef> iterator = classData.getMethods();
+        while (iterator.hasNext()){
+            addMethod(classIndex, iterator.next());
+        }
+    }
+    private void addUses(Set<Key> uses, Iterator<IdItem> iterator, int classIndex){
+        while (iterator.hasNext()){
+            IdItem idItem = iterator.next();
+            if(idItem != null){
+                addUse(uses, idItem.getKey(), classIndex);
+            }
+        }
+    }
+    private void addUse(Set<Key> uses, Key key, int classIndex){
+        if(isIndexed(key) && uses.add(key)){
+            getOrCreateSites(key).add(classIndex, -1, -1);
+        }
+    }
+    private void addMethod(int classIndex, MethodDef methodDef){
+        CodeItem codeItem = methodDef.getCodeItem();
+        if(codeItem == null){
+            return;
+        }
+        MethodKey methodKey = methodDef.getKey();
+        int methodIndex = getMethodIndex(methodKey);
+        Set<Key> uses = new HashSet<>();
+        InstructionList instructionList = codeItem.getInstructionList();
+        if(instructionList.isLazyCode()){
+            InsScanner scanner = this.insScanner;
+            scanner.reset(codeItem);
+            while (scanner.next()){
+                if(isIndexed(scanner.getSectionType())){
+                    addSite(uses, scanner.getSectionKey(), classIndex, methodIndex, scanner.getAddress());
+                }
+            }
+        }else {
+            for(Ins ins : instructionList){
+                if(ins instanceof SizeXIns && isIndexed(((SizeXIns) ins).getSectionType())){
+                    addSite(uses, ((SizeXIns) ins).getSectionIdKey(), classIndex, methodIndex, ins.getAddress());
+                }
+            }
+        }
+        if(!uses.isEmpty()){
+            methodUses.put(methodKey, uses.toArray(new Key[0]));
+            classMethods.computeIfAbsent(methodKey.getDeclaring(), k -> new HashSet<>())
+                    .add(methodKey);
+        }
+    }
+    private void addSite(Set<Key> uses, Key key, int classIndex, int methodIndex, int address){
+        if(key != null){
+            uses.add(key);
+            getOrCreateSites(key).add(classIndex, methodIndex, address);
+        }
+    }
+    private void removeClass(TypeKey typeKey){
+        Integer index = classIndexMap.get(typeKey);
+        if(index == null){
+            return;
+        }
+        int classIndex = index;
+        Key[] uses = classUses.remove(typeKey);
+        if(uses != null){
+            for(Key key : uses){
+                removeSites(key, classIndex, -1);
+            }
+        }
+        Set<MethodKey> methods = classMethods.remove(typeKey);
+        if(methods != null){
+            for(MethodKey methodKey : methods){
+                removeMethod(methodKey);
+            }
+        }
+    }
+    private void removeMethod(MethodKey methodKey){
+        Key[] uses = methodUses.remove(methodKey);
+        Integer index = methodIndexMap.get(methodKey);
+        if(uses == null || index == null){
+            return;
+        }
+        Integer classIndex = classIndexMap.get(methodKey.getDeclaring());
+        if(classIndex == null){
+            return;
+        }
+        for(Key key : uses){
+            removeSites(key, classIndex, index);
+        }
+    }
+    private void removeSites(Key key, int classIndex, int methodIndex){
+        SiteList siteList = siteMap.get(key);
+        if(siteList == null){
+            return;
+        }
+        siteList.removeAll(classIndex, methodIndex);
+        if(siteList.size() == 0){
+            siteMap.remove(key);
+        }
+    }
+    private SiteList getOrCreateSites(Key key){
+        SiteList siteList = siteMap.get(key);
+        if(siteList == null){
+            siteList = new SiteList();
+            siteMap.put(key, siteList);
+        }
+        return siteList;
+    }
+    private int getClassIndex(TypeKey typeKey){
+        Integer index = classIndexMap.get(typeKey);
+        if(index == null){
+            index = classKeys.size();
+            classKeys.add(typeKey);
+            classIndexMap.put(typeKey, index);
+        }
+        return index;
+    }
+    private int getMethodIndex(MethodKey methodKey){
+        Integer index = methodIndexMap.get(methodKey);
+        if(index == null){
+            index = methodKeys.size();
+            methodKeys.add(methodKey);
+            methodIndexMap.put(methodKey, index);
+        }
+        return index;
+    }
+    private MethodKey getMethodKey(int index){
+        if(index < 0){
+            return null;
+        }
+        return methodKeys.get(index);
+    }
+    private static boolean isIndexed(SectionType<?> sectionType){
+        return sectionType == SectionType.STRING_ID || sectionType == SectionType.TYPE_ID
+                || sectionType == SectionType.FIELD_ID || sectionType == SectionType.METHOD_ID;
+    }
+    private static boolean isIndexed(Key key){
+        return key instanceof StringKey || key instanceof TypeKey
+                || key instanceof FieldKey || key instanceof MethodKey;
+    }
+
+    public static class Site {
+        private final TypeKey classKey;
+        private final MethodKey methodKey;
+        private final int address;
+
+        Site(TypeKey classKey, MethodKey methodKey, int address){
+            this.classKey = classKey;
+            this.methodKey = methodKey;
+            this.address = address;
+        }
+
+        public TypeKey getClassKey() {
+            return classKey;
+        }
+        /**
+         * @return using method or null for class level uses
+         * */
+        public MethodKey getMethodKey() {
+            return methodKey;
+        }
+        /**
+         * @return instruction address in code units or -1 for class level uses
+         * */
+        public int getAddress() {
+            return address;
+        }
+        @Override
+        public String toString() {
+            if(methodKey == null){
+                return classKey.toString();
+            }
+            return methodKey + " @" + address;
+        }
+    }
+
+    static class SiteList {
+        private int[] elements;
+        private int size;
+
+        SiteList(){
+            this.elements = new int[3];
+        }
+        int size(){
+            return size;
+        }
+        int getClassIndex(int i){
+            return elements[i * 3];
+        }
+        int getMethodIndex(int i){
+            return elements[i * 3 + 1];
+        }
+        int getAddress(int i){
+            return elements[i * 3 + 2];
+        }
+        void add(int classIndex, int methodIndex, int address){
+            int[] elements = this.elements;
+            int offset = size * 3;
+            if(offset + 3 > elements.length){
+                elements = Arrays.copyOf(elements, elements.length * 2);
+                this.elements = elements;
+            }
+            elements[offset] = classIndex;
+            elements[offset + 1] = methodIndex;
+            elements[offset + 2] = address;
+            size ++;
+        }
+        void removeAll(int classIndex, int methodIndex){
+            int[] elements = this.elements;
+            int size = this.size;
+            int result = 0;
+            for(int i = 0; i < size; i++){
+                int offset = i * 3;
+                if(elements[offset] == classIndex && elements[offset + 1] == methodIndex){
+                    continue;
+                }
+                if(result != i){
+                    System.arraycopy(elements, offset, elements, result * 3, 3);
+                }
+                result ++;
+            }
+            this.size = result;
+        }
+    }
+}
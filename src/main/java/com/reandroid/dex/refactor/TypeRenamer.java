@@ -0,0 +1,184 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.dex.refactor;
+
+import com.reandroid.dex.id.StringId;
+import com.reandroid.dex.key.KeyPair;
+import com.reandroid.dex.key.TypeKey;
+import com.reandroid.dex.model.DexClass;
+import com.reandroid.dex.model.DexFile;
+import com.reandroid.dex.sections.SectionType;
+import com.reandroid.utils.collection.ArrayCollection;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch type renamer, all pairs are compiled once into a hash map of exact
+ * forms (type, signature type, arrays of dimension 1 to 3 and java name) and a
+ * hash map of inner class prefixes (forms ending with '$').
+ * Each string is then resolved by one exact lookup plus one lookup per
+ * '$' separator it contains, longest prefix first, thus the cost does not
+ * depend on the number of pairs. Java names are not renamed by '.' prefix, as a
+ * class and a package of the same name may both exist.
+ * On conflicts exact matches win over prefix matches, and for the same form the
+ * first added pair wins.
+ * */
+public class TypeRenamer {
+    private final boolean renameInner;
+    private final boolean renameJava;
+    private final Map<String, String> exactMap;
+    private final Map<String, String> prefixMap;
+    private int pairsCount;
+
+    public TypeRenamer(boolean renameInner, boolean renameJava){
+        this.renameInner = renameInner;
+        this.renameJava = renameJava;
+        this.exactMap = new HashMap<>();
+        this.prefixMap = new HashMap<>();
+    }
+    public TypeRenamer(){
+        this(true, true);
+    }
+
+    public boolean isRenameInner() {
+        return renameInner;
+    }
+    public boolean isRenameJava() {
+        return renameJava;
+    }
+    public int size(){
+        return pairsCount;
+    }
+    public boolean isEmpty(){
+        return pairsCount == 0;
+    }
+    public void addAll(Iterable<KeyPair<TypeKey, TypeKey>> iterable){
+        for(KeyPair<TypeKey, TypeKey> pair : iterable){
+            add(pair);
+        }
+    }
+    public void add(KeyPair<TypeKey, TypeKey> pair){
+        add(pair.getFirst(), pair.getSecond());
+    }
+    public void add(TypeKey search, TypeKey replace){
+        if(search == null || replace == null || search.equals(replace)){
+            return;
+        }
+        pairsCount ++;
+        putExact(search.getTypeName(), replace.getTypeName());
+        putExact(search.getSignatureTypeName(), replace.getSignatureTypeName());
+        for(int i = 1; i <= MAX_ARRAY_DIMENSION; i++){
+            putExact(search.getArrayType(i), replace.getArrayType(i));
+        }
+        if(renameJava){
+            putExact(search.getSourceName(), replace.getSourceName());
+        }
+        if(!renameInner){
+            return;
+        }
+        putInner(search.getTypeName(), replace.getTypeName());
+        for(int i = 1; i <= MAX_ARRAY_DIMENSION; i++){
+            putInner(search.getArrayType(i), replace.getArrayType(i));
+        }
+        if(renameJava){
+            String source = search.getSourceName();
+            String replaceSource = replace.getSourceName();
+            putPrefix(source + "$", replaceSource + "$");
+        }
+    }
+    private void putExact(String search, String replace){
+        if(search != null && replace != null){
+            exactMap.putIfAbsent(search, replace);
+        }
+    }
+    private void putInner(String search, String replace){
+        if(search == null || replace == null || !search.endsWith(";")){
+            return;
+        }
+        putPrefix(search.replace(';', '$'), replace.replace(';', '$'));
+    }
+    private void putPrefix(String search, String replace){
+        prefixMap.putIfAbsent(search, replace);
+    }
+    /**
+     * @return renamed text or null if no pair matches
+     * */
+    public String rename(String text){
+        if(text == null){
+            return null;
+        }
+        String result = exactMap.get(text);
+        if(result != null){
+            return result;
+        }
+        if(prefixMap.isEmpty()){
+            return null;
+        }
+        for(int i = text.length() - 1; i > 0; i--){
+            char c = text.charAt(i);
+            if(c != '$'){
+                continue;
+            }
+            String prefix = text.substring(0, i + 1);
+            String replace = prefixMap.get(prefix);
+            if(replace != null){
+                return replace + text.substring(i + 1);
+            }
+        }
+        return null;
+    }
+    public boolean rename(StringId stringId){
+        String renamed = rename(stringId.getString());
+        if(renamed == null){
+            return false;
+        }
+        stringId.setString(renamed);
+        return true;
+    }
+    /**
+     * Renames all strings of the given dex file in one pass and fixes dalvik
+     * inner class annotations of renamed classes. Different dex files can be
+     * renamed concurrently, as only items of the given dex file are touched.
+     * @return renamed strings
+     * */
+    public List<StringId> apply(DexFile dexFile){
+        List<StringId> results = new ArrayCollection<>();
+        if(isEmpty()){
+            return results;
+        }
+        Iterator<StringId> iterator = dexFile.getClonedItems(SectionType.STRING_ID);
+        while (iterator.hasNext()){
+            StringId stringId = iterator.next();
+            if(!rename(stringId)){
+                continue;
+            }
+            results.add(stringId);
+            String text = stringId.getString();
+            if(text.length() > 1 && text.charAt(0) == 'L'){
+                DexClass dexClass = dexFile.getDexClass(TypeKey.create(text));
+                if(dexClass != null){
+                    dexClass.fixDalvikInnerClassName();
+                }
+            }
+        }
+        return results;
+    }
+
+    private static final int MAX_ARRAY_DIMENSION = 3;
+}
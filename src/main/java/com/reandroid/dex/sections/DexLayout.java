@@ -28,6 +28,7 @@ import com.reandroid.dex.id.ClassId;
 import com.reandroid.dex.id.StringId;
 import com.reandroid.dex.key.Key;
 import com.reandroid.dex.key.TypeKey;
+import com.reandroid.dex.model.DexFile;
 import com.reandroid.dex.pool.KeyPool;
 import com.reandroid.dex.smali.model.SmaliClass;
 import com.reandroid.utils.collection.*;
@@ -95,6 +96,33 @@ public class DexLayout extends FixedBlockContainer implements FullRefresh {
         interfaceMap.clear();
         getSectionList().clear();
     }
+    /**
+     * Clears all classes and data, leaving the header and empty default sections
+     * same as a new layout from createDefault
+     * */
+    public void reset(){
+        extendingClassMap.clear();
+        interfaceMap.clear();
+        SectionList sectionList = getSectionList();
+        for(Section<?> section : CollectionUtil.toList(sectionList.getSections())){
+            SectionType<?> sectionType = section.getSectionType();
+            if(sectionType != SectionType.HEADER && sectionType != SectionType.MAP_LIST){
+                sectionList.remove(section);
+            }
+        }
+        initDefaultSections();
+    }
+    private void initDefaultSections(){
+        SectionList sectionList = getSectionList();
+        MapList mapList = sectionList.getMapList();
+        mapList.getOrCreate(SectionType.HEADER);
+        mapList.getOrCreate(SectionType.MAP_LIST);
+        SectionType<?>[] commonTypes = SectionType.getR8Order();
+        for(SectionType<?> sectionType : commonTypes){
+            sectionList.getOrCreateSection(sectionType);
+        }
+        mapList.linkHeader(sectionList.getHeader());
+    }
     private void loadExtendingClassMap(){
         KeyPool<ClassId> superClassMap = this.extendingClassMap;
         superClassMap.clear();
@@ -285,12 +313,22 @@ public class DexLayout extends FixedBlockContainer implements FullRefresh {
         reader.close();
     }
     public void write(File file) throws IOException {
-        OutputStream outputStream = FileUtil.outputStream(file);
+        OutputStream outputStream = new BufferedOutputStream(
+                FileUtil.outputStream(file), WRITE_BUFFER_SIZE);
         writeBytes(outputStream);
         outputStream.close();
     }
 
 
+    /**
+     * Called when a class is removed or its type key is changed
+     * */
+    void onClassChanged(){
+        Object tag = getTag();
+        if(tag instanceof DexFile){
+            ((DexFile) tag).onClassChanged();
+        }
+    }
     public Object getTag() {
         return mTag;
     }
@@ -306,17 +344,7 @@ public class DexLayout extends FixedBlockContainer implements FullRefresh {
 
     public static DexLayout createDefault(){
         DexLayout dexLayout = new DexLayout();
-        SectionList sectionList = dexLayout.getSectionList();
-        MapList mapList = sectionList.getMapList();
-        mapList.getOrCreate(SectionType.HEADER);
-        mapList.getOrCreate(SectionType.MAP_LIST);
-        SectionType<?>[] commonTypes = SectionType.getR8Order();
-        for(SectionType<?> sectionType : commonTypes){
-            sectionList.getOrCreateSection(sectionType);
-        }
-
-        sectionList.getMapList().linkHeader(sectionList.getHeader());
-
+        dexLayout.initDefaultSections();
         return dexLayout;
     }
     public static boolean isDexFile(File file){
@@ -351,4 +379,6 @@ public class DexLayout extends FixedBlockContainer implements FullRefresh {
         int version = dexHeader.getVersion();
         return version > 0 && version < 1000;
     }
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
 }
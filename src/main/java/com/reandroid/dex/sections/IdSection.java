@@ -23,7 +23,10 @@ import com.reandroid.dex.key.Key;
 import com.reandroid.utils.collection.ComputeIterator;
 
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 import java.util.function.Predicate;
 
 public class IdSection<T extends IdItem> extends Section<T> {
@@ -53,6 +56,43 @@ public class IdSection<T extends IdItem> extends Section<T> {
         sort();
     }
     @Override
+    public boolean sort(Comparator<? super T> comparator){
+        SectionList sectionList = getSectionList();
+        if(sectionList != null && sectionList.hasLazyCode()){
+            if(isSorted(comparator)){
+                return false;
+            }
+            sectionList.decodeLazyCode();
+        }
+        return super.sort(comparator);
+    }
+    @Override
+    void sortImmediate(T item){
+        decodeLazyCode();
+        super.sortImmediate(item);
+    }
+    @Override
+    void onRemoving(T item){
+        decodeLazyCode();
+        super.onRemoving(item);
+    }
+    private void decodeLazyCode(){
+        SectionList sectionList = getSectionList();
+        if(sectionList != null){
+            sectionList.decodeLazyCode();
+        }
+    }
+    private boolean isSorted(Comparator<? super T> comparator){
+        BlockListArray<T> itemArray = getItemArray();
+        int count = itemArray.getCount();
+        for(int i = 1; i < count; i++){
+            if(comparator.compare(itemArray.get(i - 1), itemArray.get(i)) > 0){
+                return false;
+            }
+        }
+        return true;
+    }
+    @Override
     public boolean remove(Key key){
         T item = getSectionItem(key);
         if(item != null && item.getParent() != null){
@@ -125,6 +165,7 @@ public class IdSection<T extends IdItem> extends Section<T> {
             return true;
         }
         SectionType<T> sectionType = getSectionType();
+        Set<Key> newKeys = new HashSet<>();
         Iterator<IdItem> iterator = collection.iterator();
         while (iterator.hasNext()){
             IdItem item = iterator.next();
@@ -132,7 +173,7 @@ public class IdSection<T extends IdItem> extends Section<T> {
                 continue;
             }
             Key key = item.getKey();
-            if(!contains(key)){
+            if(!contains(key) && newKeys.add(key)){
                 count++;
             }
             if((count & 0xffff0000) != 0){
@@ -303,6 +303,12 @@ public class Section<T extends SectionItem>  extends FixedDexContainer
         if(dexSectionPool != null){
             dexSectionPool.remove(item);
         }
+        if(getSectionType() == SectionType.CLASS_ID){
+            SectionList sectionList = getSectionList();
+            if(sectionList != null){
+                sectionList.onClassChanged();
+            }
+        }
     }
     int getDiffCount(Section<T> section){
         return getCount();
@@ -27,6 +27,7 @@ import com.reandroid.arsc.base.OffsetSupplier;
 import com.reandroid.dex.common.FullRefresh;
 import com.reandroid.dex.common.SectionItem;
 import com.reandroid.dex.common.SectionTool;
+import com.reandroid.dex.data.CodeItem;
 import com.reandroid.dex.data.StringData;
 import com.reandroid.dex.header.DexHeader;
 import com.reandroid.dex.id.ClassId;
@@ -58,6 +59,9 @@ public class SectionList extends FixedBlockContainer
     private boolean immediateIdSort;
 
     private boolean mReading;
+    private boolean lazyCode;
+    private boolean mLazyCodePending;
+    private int mCodeModCount;
 
     public SectionList() {
         super(4);
@@ -113,6 +117,7 @@ public class SectionList extends FixedBlockContainer
         refresh();
     }
     public void clearUnused(){
+        decodeLazyCode();
         clearUsageTypes();
         refresh();
         Iterator<Section<?>> iterator = getSections();
@@ -200,6 +205,48 @@ public class SectionList extends FixedBlockContainer
     public boolean isReading(){
         return mReading;
     }
+    public boolean isLazyCode() {
+        return lazyCode;
+    }
+    /**
+     * When enabled before reading, instructions of each code item are kept as raw code
+     * units and decoded on first access, code items never accessed are written back
+     * as they were read.
+     * Raw code units refer ids by index, thus all pending code items are decoded
+     * before any id section is re-ordered or has items removed.
+     * */
+    public void setLazyCode(boolean lazyCode) {
+        this.lazyCode = lazyCode;
+    }
+    public boolean hasLazyCode() {
+        return mLazyCodePending;
+    }
+    public void onLazyCodeRead() {
+        this.mLazyCodePending = true;
+    }
+    /**
+     * Number of instruction edits so far, i.e. instructions added, removed, replaced or
+     * their referenced id changed, indexes over instructions compare it to detect staleness
+     * */
+    public int getCodeModCount() {
+        return mCodeModCount;
+    }
+    public void onCodeChanged() {
+        mCodeModCount ++;
+    }
+    public synchronized void decodeLazyCode() {
+        if(!mLazyCodePending){
+            return;
+        }
+        mLazyCodePending = false;
+        Section<CodeItem> section = getSection(SectionType.CODE);
+        if(section == null){
+            return;
+        }
+        for(CodeItem codeItem : section){
+            codeItem.getInstructionList().decodeLazyCode();
+        }
+    }
     public<T1 extends SectionItem> Section<T1> add(Section<T1> section){
         if(section instanceof IdSection){
             idSectionList.add((IdSection<?>) section);
@@ -405,6 +452,9 @@ public class SectionList extends FixedBlockContainer
             return;
         }
         section.keyChanged(item, oldKey, isImmediateIdSort());
+        if(sectionType == SectionType.TYPE_ID || sectionType == SectionType.CLASS_ID){
+            onClassChanged();
+        }
         if(sectionType == SectionType.TYPE_ID){
             ClassId classId = getLoaded(SectionType.CLASS_ID, oldKey);
             if(classId != null){
@@ -414,6 +464,12 @@ public class SectionList extends FixedBlockContainer
             //TODO: notify to all uses TypeKey
         }
     }
+    void onClassChanged(){
+        DexLayout dexLayout = getParentInstance(DexLayout.class);
+        if(dexLayout != null){
+            dexLayout.onClassChanged();
+        }
+    }
     public Iterator<Section<?>> getSections() {
         return new CombiningIterator<>(getIdSections(), getDataSections());
     }
@@ -16,34 +16,69 @@
 package com.reandroid.dex.smali;
 
 import com.reandroid.dex.key.MethodKey;
+import com.reandroid.dex.key.TypeKey;
+import com.reandroid.dex.model.DexClass;
 import com.reandroid.dex.model.DexClassRepository;
 import com.reandroid.dex.model.DexMethod;
 import com.reandroid.utils.collection.CollectionUtil;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public interface MethodComment {
 
     void writeMethodComment(SmaliWriter writer, MethodKey methodKey) throws IOException;
 
+    /**
+     * Comments the first super type declaring the same method. Super types are
+     * resolved once per class and cached on a concurrent map, thus one instance can
+     * be shared by writers on different threads. The cache is not updated on class
+     * hierarchy edits, use a new instance afterwards.
+     * */
     class MethodHierarchyComment implements MethodComment{
         private final DexClassRepository classRepository;
+        private final Map<TypeKey, DexClass[]> superTypesMap;
         public MethodHierarchyComment(DexClassRepository classRepository){
             this.classRepository = classRepository;
+            this.superTypesMap = new ConcurrentHashMap<>();
         }
         @Override
         public void writeMethodComment(SmaliWriter writer, MethodKey methodKey) throws IOException {
             DexMethod dexMethod = classRepository.getDeclaredMethod(methodKey);
-            if(dexMethod.isConstructor()){
+            if(dexMethod == null || dexMethod.isConstructor()){
                 return;
             }
-            DexMethod superMethod = CollectionUtil.getFirst(dexMethod.getSuperMethods());
-            if(superMethod == null){
+            DexClass superClass = getFirstDeclaring(methodKey);
+            if(superClass == null){
                 return;
             }
             writer.newLine();
             writer.appendComment("@Override: ");
-            writer.appendComment(superMethod.getKey().getDeclaring().getTypeName());
+            writer.appendComment(superClass.getKey().getTypeName());
         }
+        private DexClass getFirstDeclaring(MethodKey methodKey){
+            for(DexClass dexClass : getSuperTypes(methodKey.getDeclaring())){
+                if(dexClass.getDeclaredMethod(methodKey) != null){
+                    return dexClass;
+                }
+            }
+            return null;
+        }
+        private DexClass[] getSuperTypes(TypeKey typeKey){
+            DexClass[] superTypes = superTypesMap.get(typeKey);
+            if(superTypes == null){
+                DexClass dexClass = classRepository.getDexClass(typeKey);
+                if(dexClass == null){
+                    superTypes = EMPTY;
+                }else {
+                    superTypes = CollectionUtil.toList(dexClass.getSuperTypes())
+                            .toArray(EMPTY);
+                }
+                superTypesMap.put(typeKey, superTypes);
+            }
+            return superTypes;
+        }
+        private static final DexClass[] EMPTY = new DexClass[0];
     }
 }
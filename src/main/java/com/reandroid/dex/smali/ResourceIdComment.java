@@ -23,6 +23,8 @@ import com.reandroid.arsc.value.ResValue;
 import com.reandroid.arsc.value.ValueType;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 public interface ResourceIdComment {
@@ -33,10 +35,12 @@ public interface ResourceIdComment {
 
         private final PackageBlock packageBlock;
         private final TableBlock tableBlock;
+        private final Map<Integer, String> commentMap;
 
         public ResourceTableComment(PackageBlock packageBlock){
             this.packageBlock = packageBlock;
             this.tableBlock = packageBlock.getTableBlock();
+            this.commentMap = new ConcurrentHashMap<>();
         }
 
         @Override
@@ -44,11 +48,28 @@ public interface ResourceIdComment {
             if(!PackageBlock.isResourceId(resourceId)){
                 return;
             }
-            String comment = buildComment(resourceId);
-            if(comment != null){
+            String comment = getComment(resourceId);
+            if(comment.length() != 0){
                 writer.appendComment(comment);
             }
         }
+        /**
+         * Comments are built once per resource id while holding the table lock and
+         * cached, thus one instance can be shared by writers on different threads.
+         * */
+        private String getComment(int resourceId){
+            String comment = commentMap.get(resourceId);
+            if(comment == null){
+                synchronized (tableBlock){
+                    comment = buildComment(resourceId);
+                }
+                if(comment == null){
+                    comment = "";
+                }
+                commentMap.put(resourceId, comment);
+            }
+            return comment;
+        }
         private String buildComment(int resourceId){
             ResourceEntry resourceEntry = tableBlock.getResource(resourceId);
             if(resourceEntry == null || !resourceEntry.isDeclared()){
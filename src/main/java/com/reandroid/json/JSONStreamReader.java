@@ -0,0 +1,149 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.json;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Pull reader over JSONTokener, structural tokens are consumed one by one while
+ * values can be read whole (nextValue, nextJSONObject) thus only the current
+ * value is kept in memory.
+ * */
+public class JSONStreamReader implements Closeable {
+    private final JSONTokener tokener;
+    private final Reader reader;
+
+    public JSONStreamReader(Reader reader){
+        if(!(reader instanceof BufferedReader)){
+            reader = new BufferedReader(reader);
+        }
+        this.reader = reader;
+        this.tokener = new JSONTokener(reader);
+    }
+    public JSONStreamReader(InputStream inputStream){
+        this(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+    public JSONStreamReader(File file) throws IOException {
+        this(new FileInputStream(file));
+    }
+
+    public void beginObject() throws JSONException {
+        expect('{');
+    }
+    public void endObject() throws JSONException {
+        expect('}');
+    }
+    public void beginArray() throws JSONException {
+        expect('[');
+    }
+    public void endArray() throws JSONException {
+        expect(']');
+    }
+    /**
+     * Returns true if the current object or array has more members,
+     * consumes separating comma if any
+     * */
+    public boolean hasNext() throws JSONException {
+        char c = tokener.nextClean();
+        if(c == ','){
+            c = tokener.nextClean();
+        }
+        if(c == 0){
+            throw tokener.syntaxError("Unexpected end of input");
+        }
+        tokener.back();
+        return c != '}' && c != ']';
+    }
+    /**
+     * Returns next non-whitespace character without consuming it
+     * */
+    public char peek() throws JSONException {
+        char c = tokener.nextClean();
+        if(c != 0){
+            tokener.back();
+        }
+        return c;
+    }
+    public boolean isNextObject() throws JSONException {
+        return peek() == '{';
+    }
+    public boolean isNextArray() throws JSONException {
+        return peek() == '[';
+    }
+    /**
+     * Reads member name and the following colon, consumes separating comma if
+     * not already consumed by hasNext()
+     * */
+    public String nextName() throws JSONException {
+        char c = tokener.nextClean();
+        if(c == ','){
+            c = tokener.nextClean();
+        }
+        String name;
+        if(c == '"' || c == '\''){
+            name = tokener.nextString(c);
+        }else {
+            tokener.back();
+            name = tokener.nextValue().toString();
+        }
+        expect(':');
+        return name;
+    }
+    public Object nextValue() throws JSONException {
+        return tokener.nextValue();
+    }
+    public JSONObject nextJSONObject() throws JSONException {
+        return new JSONObject(tokener);
+    }
+    public JSONArray nextJSONArray() throws JSONException {
+        return new JSONArray(tokener);
+    }
+    public void skipValue() throws JSONException {
+        tokener.nextValue();
+    }
+    /**
+     * Iterates objects of the current array, the array should be started by
+     * beginArray() and must be ended by endArray() after iteration.
+     * */
+    public Iterator<JSONObject> iterateObjects(){
+        return new Iterator<JSONObject>() {
+            @Override
+            public boolean hasNext() {
+                return JSONStreamReader.this.hasNext();
+            }
+            @Override
+            public JSONObject next() {
+                if(!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                return nextJSONObject();
+            }
+        };
+    }
+    private void expect(char expected) throws JSONException {
+        char c = tokener.nextClean();
+        if(c != expected){
+            throw tokener.syntaxError("Expecting '" + expected + "' but found '" + c + "'");
+        }
+    }
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -5,9 +5,11 @@
 */
 package com.reandroid.json;
 
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public class JSONWriter {
     protected final Appendable writer;
@@ -35,6 +37,31 @@ public class JSONWriter {
         this.indentFactor = indentFactor;
     }
 
+    /**
+     * Opens buffered UTF-8 writer on file and passes JSONWriter to consumer, useful to
+     * stream large models without building the whole JSONObject tree in memory
+     * */
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    public static void write(File file, Consumer<JSONWriter> consumer) throws IOException {
+        File dir = file.getParentFile();
+        if(dir != null && !dir.exists()){
+            dir.mkdirs();
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8));
+        try {
+            consumer.accept(new JSONWriter(writer));
+        }catch (JSONException exception){
+            Throwable cause = exception.getCause();
+            if(cause instanceof IOException){
+                throw (IOException) cause;
+            }
+            throw exception;
+        }finally {
+            writer.close();
+        }
+    }
+
     private JSONWriter append(String string) throws JSONException {
         if (string == null) {
             throw new JSONException("Null pointer");
@@ -58,6 +85,12 @@ public class JSONWriter {
         throw new JSONException("Value out of sequence.");
     }
 
+    /**
+     * Number of currently open objects and arrays, at most MAX_DEPTH
+     * */
+    public int getDepth() {
+        return this.top;
+    }
     public JSONWriter array() throws JSONException {
         writeIndent();
         if (this.mode == 'i' || this.mode == 'o' || this.mode == 'a') {
@@ -230,6 +263,6 @@ public class JSONWriter {
         return JSONObject.quote(value.toString());
     }
 
-    private static final int MAX_DEPTH = 200;
+    public static final int MAX_DEPTH = 200;
     private static final int DEFAULT_INDENT_FACTOR = 1;
 }
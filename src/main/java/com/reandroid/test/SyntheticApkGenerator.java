@@ -0,0 +1,467 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.test;
+
+import com.reandroid.apk.ApkModule;
+import com.reandroid.archive.Archive;
+import com.reandroid.archive.ByteInputSource;
+import com.reandroid.archive.InputSource;
+import com.reandroid.arsc.chunk.PackageBlock;
+import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.arsc.chunk.xml.AndroidManifestBlock;
+import com.reandroid.arsc.chunk.xml.ResXmlAttribute;
+import com.reandroid.arsc.chunk.xml.ResXmlDocument;
+import com.reandroid.arsc.chunk.xml.ResXmlElement;
+import com.reandroid.arsc.value.Entry;
+import com.reandroid.arsc.value.ValueType;
+import com.reandroid.dex.common.AccessFlag;
+import com.reandroid.dex.ins.Opcode;
+import com.reandroid.dex.key.FieldKey;
+import com.reandroid.dex.key.MethodKey;
+import com.reandroid.dex.key.StringKey;
+import com.reandroid.dex.key.TypeKey;
+import com.reandroid.dex.model.DexClass;
+import com.reandroid.dex.model.DexFile;
+import com.reandroid.dex.model.DexInstruction;
+import com.reandroid.dex.model.DexMethod;
+import com.reandroid.dex.model.DexMergePlanner;
+import com.reandroid.dex.sections.Section;
+import com.reandroid.dex.sections.SectionType;
+import com.reandroid.utils.collection.ArrayCollection;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Builds APKs of any size from the library model: resource table of the given types,
+ * entries and configs, binary layouts, dex files of the given classes split to
+ * multidex on id limits and optional asset files generated while being written.
+ * Output depends only on settings and seed. Assets are what make large outputs, e.g.
+ * more than 4 GiB of assets or more than 65535 entries produce a ZIP64 archive
+ * without holding the data in memory.
+ * <pre>
+ *   SyntheticApkGenerator generator = new SyntheticApkGenerator();
+ *   generator.setClassCount(100000);
+ *   generator.setAssets(5000, 1024 * 1024, Archive.STORED);
+ *   generator.generate(new File("large.apk"));
+ * </pre>
+ * */
+public class SyntheticApkGenerator {
+    private String packageName;
+    private long seed;
+    private int typeCount;
+    private int entriesPerType;
+    private int configCount;
+    private int layoutCount;
+    private int viewsPerLayout;
+    private int classCount;
+    private int methodsPerClass;
+    private int dexIdLimit;
+    private int assetCount;
+    private long assetSize;
+    private int assetMethod;
+    private boolean assetCompressible;
+
+    public SyntheticApkGenerator(){
+        this.packageName = DEFAULT_PACKAGE_NAME;
+        this.seed = 1;
+        this.typeCount = 4;
+        this.entriesPerType = 250;
+        this.configCount = 2;
+        this.layoutCount = 20;
+        this.viewsPerLayout = 16;
+        this.classCount = 500;
+        this.methodsPerClass = 4;
+        this.dexIdLimit = DexMergePlanner.DEFAULT_LIMIT;
+        this.assetMethod = Archive.STORED;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+    public void setPackageName(String packageName) {
+        this.packageName = packageName;
+    }
+    public long getSeed() {
+        return seed;
+    }
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+    public int getTypeCount() {
+        return typeCount;
+    }
+    /**
+     * @param typeCount number of resource types, at most the count of known types
+     * */
+    public void setTypeCount(int typeCount) {
+        if(typeCount < 1){
+            typeCount = 1;
+        }else if(typeCount > TYPES.length){
+            typeCount = TYPES.length;
+        }
+        this.typeCount = typeCount;
+    }
+    public int getEntriesPerType() {
+        return entriesPerType;
+    }
+    public void setEntriesPerType(int entriesPerType) {
+        this.entriesPerType = entriesPerType;
+    }
+    public int getConfigCount() {
+        return configCount;
+    }
+    /**
+     * @param configCount number of qualified configs each entry gets besides default
+     * */
+    public void setConfigCount(int configCount) {
+        this.configCount = Math.min(Math.max(configCount, 0), CONFIGS.length);
+    }
+    public int getLayoutCount() {
+        return layoutCount;
+    }
+    public void setLayoutCount(int layoutCount) {
+        this.layoutCount = layoutCount;
+    }
+    public int getViewsPerLayout() {
+        return viewsPerLayout;
+    }
+    public void setViewsPerLayout(int viewsPerLayout) {
+        this.viewsPerLayout = viewsPerLayout;
+    }
+    public int getClassCount() {
+        return classCount;
+    }
+    public void setClassCount(int classCount) {
+        this.classCount = classCount;
+    }
+    public int getMethodsPerClass() {
+        return methodsPerClass;
+    }
+    public void setMethodsPerClass(int methodsPerClass) {
+        this.methodsPerClass = methodsPerClass;
+    }
+    public int getDexIdLimit() {
+        return dexIdLimit;
+    }
+    /**
+     * Classes are put on the next dex once method, field, type or string ids would
+     * exceed this limit, default is DexMergePlanner.DEFAULT_LIMIT
+     * */
+    public void setDexIdLimit(int dexIdLimit) {
+        this.dexIdLimit = dexIdLimit;
+    }
+    public void setAssets(int assetCount, long assetSize, int method){
+        this.assetCount = assetCount;
+        this.assetSize = assetSize;
+        this.assetMethod = method;
+    }
+    public int getAssetCount() {
+        return assetCount;
+    }
+    public long getAssetSize() {
+        return assetSize;
+    }
+    public int getAssetMethod() {
+        return assetMethod;
+    }
+    public boolean isAssetCompressible() {
+        return assetCompressible;
+    }
+    /**
+     * @param assetCompressible true for text like asset data, false for random data
+     *                          that deflate can not shrink (like media files)
+     * */
+    public void setAssetCompressible(boolean assetCompressible) {
+        this.assetCompressible = assetCompressible;
+    }
+
+    public void generate(File file) throws IOException {
+        ApkModule apkModule = createApkModule();
+        apkModule.writeApk(file);
+        apkModule.close();
+    }
+    public ApkModule createApkModule() throws IOException {
+        ApkModule apkModule = new ApkModule();
+        apkModule.setLoadDefaultFramework(false);
+        apkModule.setManifest(createManifest());
+        TableBlock tableBlock = createTableBlock();
+        apkModule.setTableBlock(tableBlock);
+        PackageBlock packageBlock = tableBlock.pickOne();
+        for(int i = 0; i < layoutCount; i++){
+            String path = "res/layout/layout_" + i + ".xml";
+            apkModule.add(new ByteInputSource(createLayout(viewsPerLayout).getBytes(), path));
+            packageBlock.getOrCreate("", "layout", "layout_" + i).setValueAsString(path);
+        }
+        tableBlock.refreshFull();
+        List<DexFile> dexFileList = createDexFiles();
+        int size = dexFileList.size();
+        for(int i = 0; i < size; i++){
+            String name = i == 0 ? "classes.dex" : "classes" + (i + 1) + ".dex";
+            apkModule.add(new ByteInputSource(dexFileList.get(i).getBytes(), name));
+        }
+        for(int i = 0; i < assetCount; i++){
+            SyntheticInputSource source = new SyntheticInputSource("assets/data/" + i + ".bin",
+                    assetSize, seed * 31 + i, assetCompressible);
+            source.setMethod(assetMethod);
+            apkModule.add(source);
+        }
+        return apkModule;
+    }
+    public AndroidManifestBlock createManifest(){
+        AndroidManifestBlock manifestBlock = new AndroidManifestBlock();
+        manifestBlock.setPackageName(packageName);
+        manifestBlock.setVersionCode(1);
+        manifestBlock.setVersionName("1.0");
+        manifestBlock.setMinSdkVersion(21);
+        manifestBlock.setTargetSdkVersion(33);
+        manifestBlock.getOrCreateMainActivity(packageName + ".C0");
+        manifestBlock.refresh();
+        return manifestBlock;
+    }
+    public TableBlock createTableBlock(){
+        TableBlock tableBlock = new TableBlock();
+        PackageBlock packageBlock = tableBlock.newPackage(0x7f, packageName);
+        for(int t = 0; t < typeCount; t++){
+            String type = TYPES[t];
+            for(int i = 0; i < entriesPerType; i++){
+                String name = type + "_" + i;
+                for(int c = 0; c <= configCount; c++){
+                    String qualifiers = c == 0 ? "" : CONFIGS[c - 1];
+                    setValue(packageBlock.getOrCreate(qualifiers, type, name), type, i, c);
+                }
+            }
+        }
+        tableBlock.refreshFull();
+        return tableBlock;
+    }
+    private void setValue(Entry entry, String type, int index, int config){
+        int data = mix(seed, index * 16L + config);
+        if("string".equals(type)){
+            entry.setValueAsString("Text " + index + " for config " + config
+                    + " #" + Integer.toHexString(data));
+        }else if("bool".equals(type)){
+            entry.setValueAsBoolean((data & 1) == 0);
+        }else if("color".equals(type)){
+            entry.setValueAsRaw(ValueType.COLOR_ARGB8, 0xff000000 | data);
+        }else if("dimen".equals(type)){
+            entry.setValueAsRaw(ValueType.DIMENSION, (data & 0xffff) << 8 | 1);
+        }else {
+            entry.setValueAsRaw(ValueType.DEC, data);
+        }
+    }
+    public ResXmlDocument createLayout(int viewCount){
+        ResXmlDocument document = new ResXmlDocument();
+        ResXmlElement root = document.getDocumentElement();
+        root.setName("LinearLayout");
+        setLayoutSize(root, -1, -1);
+        ResXmlAttribute attribute = root.getOrCreateAndroidAttribute("orientation", 0x010100c4);
+        attribute.setTypeAndData(ValueType.DEC, 1);
+        for(int i = 0; i < viewCount; i++){
+            ResXmlElement textView = root.createChildElement("TextView");
+            setLayoutSize(textView, -1, -2);
+            attribute = textView.getOrCreateAndroidAttribute("id", 0x010100d0);
+            attribute.setTypeAndData(ValueType.REFERENCE, 0x7f0a0000 + i);
+            attribute = textView.getOrCreateAndroidAttribute("text", 0x0101014f);
+            attribute.setValueAsString("View " + i);
+        }
+        document.refreshFull();
+        return document;
+    }
+    private static void setLayoutSize(ResXmlElement element, int width, int height){
+        ResXmlAttribute attribute = element.getOrCreateAndroidAttribute("layout_width", 0x010100f4);
+        attribute.setTypeAndData(ValueType.DEC, width);
+        attribute = element.getOrCreateAndroidAttribute("layout_height", 0x010100f5);
+        attribute.setTypeAndData(ValueType.DEC, height);
+    }
+    /**
+     * Each class extends the previous one (every 8th extends Object), has a static field
+     * and methods returning a string, the first method calls the same method of super
+     * class. Classes go to next dex once any id section would pass the limit.
+     * */
+    public List<DexFile> createDexFiles(){
+        List<DexFile> results = new ArrayCollection<>();
+        DexFile dexFile = DexFile.createDefault();
+        results.add(dexFile);
+        String packagePath = "L" + packageName.replace('.', '/') + "/";
+        TypeKey objectKey = TypeKey.create("Ljava/lang/Object;");
+        int idsPerClass = methodsPerClass * 3 + 8;
+        for(int i = 0; i < classCount; i++){
+            if(!hasRoom(dexFile, idsPerClass)){
+                dexFile.refreshFull();
+                dexFile = DexFile.createDefault();
+                results.add(dexFile);
+            }
+            String className = packagePath + "C" + i + ";";
+            DexClass dexClass = dexFile.getOrCreateClass(className);
+            dexClass.addAccessFlag(AccessFlag.PUBLIC);
+            TypeKey superKey;
+            if(i % 8 == 0){
+                superKey = objectKey;
+            }else {
+                superKey = TypeKey.create(packagePath + "C" + (i - 1) + ";");
+            }
+            dexClass.setSuperClass(superKey);
+            dexClass.getOrCreateStaticField(FieldKey.parse(className + "->f" + i + ":Ljava/lang/String;"));
+            for(int m = 0; m < methodsPerClass; m++){
+                addMethod(dexClass, superKey, i, m, superKey != objectKey && m == 0);
+            }
+        }
+        dexFile.refreshFull();
+        return results;
+    }
+    private void addMethod(DexClass dexClass, TypeKey superKey, int classIndex, int methodIndex, boolean callSuper){
+        MethodKey methodKey = MethodKey.parse(dexClass.getKey().getTypeName()
+                + "->m" + methodIndex + "(I)Ljava/lang/String;");
+        DexMethod method = dexClass.getOrCreateVirtualMethod(methodKey);
+        method.addAccessFlag(AccessFlag.PUBLIC);
+        method.setParameterRegistersCount(2);
+        method.setLocalRegistersCount(1);
+        if(callSuper){
+            DexInstruction invokeSuper = method.addInstruction(Opcode.INVOKE_SUPER);
+            invokeSuper.setKey(methodKey.changeDeclaring(superKey));
+            invokeSuper.setRegistersCount(2);
+            invokeSuper.setRegister(0, 1);
+            invokeSuper.setRegister(1, 2);
+        }
+        DexInstruction instruction = method.addInstruction(Opcode.CONST_STRING);
+        instruction.setRegister(0);
+        instruction.setKey(StringKey.create("C" + classIndex + ".m" + methodIndex
+                + "#" + Integer.toHexString(mix(seed, classIndex * 64L + methodIndex))));
+        instruction = method.addInstruction(Opcode.RETURN_OBJECT);
+        instruction.setRegister(0);
+    }
+    private boolean hasRoom(DexFile dexFile, int idsPerClass){
+        int limit = getDexIdLimit() - idsPerClass;
+        for(SectionType<?> sectionType : ID_SECTIONS){
+            Section<?> section = dexFile.getSection(sectionType);
+            if(section != null && section.getCount() > limit){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int mix(long seed, long value){
+        long x = seed * 0x9E3779B97F4A7C15L + value;
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return (int) (x ^ (x >>> 31));
+    }
+
+    /**
+     * Deterministic data of the given length generated on each open, never buffered
+     * */
+    public static class SyntheticInputSource extends InputSource {
+        private final long length;
+        private final long seed;
+        private final boolean compressible;
+
+        public SyntheticInputSource(String name, long length, long seed, boolean compressible){
+            super(name);
+            this.length = length;
+            this.seed = seed;
+            this.compressible = compressible;
+        }
+        @Override
+        public long getLength() {
+            return length;
+        }
+        @Override
+        public InputStream openStream() {
+            return new SyntheticInputStream(length, seed, compressible);
+        }
+    }
+    static class SyntheticInputStream extends InputStream {
+        private final long length;
+        private final boolean compressible;
+        private long position;
+        private long state;
+
+        SyntheticInputStream(long length, long seed, boolean compressible){
+            this.length = length;
+            this.compressible = compressible;
+            this.state = seed | 1;
+        }
+        @Override
+        public int read() {
+            byte[] bytes = new byte[1];
+            if(read(bytes, 0, 1) < 0){
+                return -1;
+            }
+            return bytes[0] & 0xff;
+        }
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            long remaining = this.length - position;
+            if(remaining <= 0){
+                return -1;
+            }
+            if(length > remaining){
+                length = (int) remaining;
+            }
+            if(compressible){
+                fillText(bytes, offset, length);
+            }else {
+                fillRandom(bytes, offset, length);
+            }
+            position += length;
+            return length;
+        }
+        private void fillRandom(byte[] bytes, int offset, int length){
+            long state = this.state;
+            int end = offset + length;
+            for(int i = offset; i < end; i++){
+                state ^= state << 13;
+                state ^= state >>> 7;
+                state ^= state << 17;
+                bytes[i] = (byte) state;
+            }
+            this.state = state;
+        }
+        private void fillText(byte[] bytes, int offset, int length){
+            byte[] text = TEXT;
+            long position = this.position;
+            for(int i = 0; i < length; i++){
+                long index = position + i;
+                byte b = text[(int) (index % text.length)];
+                if(index % 61 == 0){
+                    b = (byte) ('0' + (mix(state, index / 61) & 0x7));
+                }
+                bytes[offset + i] = b;
+            }
+        }
+    }
+
+    public static final String DEFAULT_PACKAGE_NAME = "com.reandroid.synthetic";
+
+    private static final String[] TYPES = new String[]{
+            "string", "integer", "bool", "color", "dimen"
+    };
+    private static final String[] CONFIGS = new String[]{
+            "-de", "-fr", "-ru-rRU", "-v21", "-land", "-night", "-xhdpi", "-sw600dp"
+    };
+    private static final SectionType<?>[] ID_SECTIONS = new SectionType<?>[]{
+            SectionType.STRING_ID,
+            SectionType.TYPE_ID,
+            SectionType.FIELD_ID,
+            SectionType.METHOD_ID
+    };
+    private static final byte[] TEXT = ("The quick brown fox jumps over the lazy dog. "
+            + "Pack my box with five dozen liquor jugs.\n").getBytes();
+}
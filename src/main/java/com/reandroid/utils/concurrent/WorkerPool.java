@@ -0,0 +1,151 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.utils.concurrent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed size pool of daemon worker threads. Results of invokeAll are returned in
+ * the same order as the given tasks regardless of completion order, and when the
+ * pool has a single thread (or a single task) work runs on the calling thread.
+ * */
+public class WorkerPool implements Closeable {
+    private final int threadCount;
+    private ExecutorService executorService;
+
+    public WorkerPool(int threadCount){
+        if(threadCount <= 0){
+            threadCount = defaultThreadCount();
+        }
+        this.threadCount = threadCount;
+    }
+    public WorkerPool(){
+        this(0);
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+    public boolean isSerial(){
+        return threadCount == 1;
+    }
+    public void run(List<? extends Runnable> tasks) throws IOException {
+        List<Callable<Object>> callableList = new ArrayList<>(tasks.size());
+        for(Runnable runnable : tasks){
+            callableList.add(Executors.callable(runnable));
+        }
+        invokeAll(callableList);
+    }
+    public <T> List<T> invokeAll(List<? extends Callable<T>> tasks) throws IOException {
+        int size = tasks.size();
+        List<T> results = new ArrayList<>(size);
+        if(size == 0){
+            return results;
+        }
+        if(isSerial() || size == 1){
+            for(Callable<T> callable : tasks){
+                results.add(call(callable));
+            }
+            return results;
+        }
+        ExecutorService executor = getExecutorService();
+        List<Future<T>> futureList = new ArrayList<>(size);
+        for(Callable<T> callable : tasks){
+            futureList.add(executor.submit(callable));
+        }
+        // first failure is kept and rethrown only after outstanding tasks are cancelled
+        Throwable failure = null;
+        for(Future<T> future : futureList){
+            if(failure != null){
+                future.cancel(true);
+                continue;
+            }
+            try {
+                results.add(future.get());
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                failure = new InterruptedIOException(exception.getMessage());
+            } catch (ExecutionException exception) {
+                failure = exception.getCause();
+            }
+        }
+        if(failure != null){
+            throw toIOException(failure);
+        }
+        return results;
+    }
+    private synchronized ExecutorService getExecutorService(){
+        ExecutorService executor = this.executorService;
+        if(executor == null){
+            executor = Executors.newFixedThreadPool(threadCount, new WorkerThreadFactory());
+            this.executorService = executor;
+        }
+        return executor;
+    }
+    @Override
+    public synchronized void close() {
+        ExecutorService executor = this.executorService;
+        if(executor != null){
+            this.executorService = null;
+            executor.shutdown();
+        }
+    }
+
+    private static <T> T call(Callable<T> callable) throws IOException {
+        try {
+            return callable.call();
+        } catch (Exception exception) {
+            throw toIOException(exception);
+        }
+    }
+    private static IOException toIOException(Throwable throwable){
+        if(throwable instanceof IOException){
+            return (IOException) throwable;
+        }
+        if(throwable instanceof RuntimeException){
+            throw (RuntimeException) throwable;
+        }
+        if(throwable instanceof Error){
+            throw (Error) throwable;
+        }
+        return new IOException(throwable);
+    }
+    public static int defaultThreadCount(){
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    static class WorkerThreadFactory implements ThreadFactory {
+        private static final AtomicInteger POOL_NUMBER = new AtomicInteger(1);
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+        private final String namePrefix;
+
+        WorkerThreadFactory(){
+            this.namePrefix = "arsclib-" + POOL_NUMBER.getAndIncrement() + "-worker-";
+        }
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.utils.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared byte arrays for copy and read buffers. Sizes are rounded up to power of two
+ * classes from 4 KiB to 1 MiB, larger requests are never pooled. Each stripe keeps
+ * about 1 MiB per class at most, so idle memory stays bounded.
+ * <pre>
+ *   byte[] buffer = BufferPool.obtain(BufferPool.COPY_BUFFER_SIZE);
+ *   try {
+ *       ...
+ *   } finally {
+ *       BufferPool.release(buffer);
+ *   }
+ * </pre>
+ * */
+public class BufferPool {
+
+    /**
+     * @return array of at least the given length, contents are undefined
+     * */
+    public static byte[] obtain(int length){
+        int index = classIndex(length);
+        if(index < 0){
+            return new byte[length];
+        }
+        byte[] buffer = POOLS.get(index).poll();
+        if(buffer == null){
+            buffer = new byte[MIN_SIZE << index];
+        }
+        return buffer;
+    }
+    /**
+     * Returns the array to pool, it must not be used after this. Arrays not obtained
+     * from this pool are accepted if their length matches a size class.
+     * */
+    public static void release(byte[] buffer){
+        if(buffer == null){
+            return;
+        }
+        int length = buffer.length;
+        int index = classIndex(length);
+        if(index >= 0 && (MIN_SIZE << index) == length){
+            POOLS.get(index).offer(buffer);
+        }
+    }
+    public static void clear(){
+        for(StripedPool<byte[]> pool : POOLS){
+            pool.clear(null);
+        }
+    }
+    private static int classIndex(int length){
+        if(length > MAX_SIZE){
+            return -1;
+        }
+        int index = 0;
+        int size = MIN_SIZE;
+        while (size < length){
+            size = size << 1;
+            index ++;
+        }
+        return index;
+    }
+    private static List<StripedPool<byte[]>> createPools(){
+        int count = classIndex(MAX_SIZE) + 1;
+        List<StripedPool<byte[]>> pools = new ArrayList<>(count);
+        for(int i = 0; i < count; i++){
+            int perStripe = STRIPE_BYTES_PER_CLASS / (MIN_SIZE << i);
+            if(perStripe > MAX_PER_STRIPE){
+                perStripe = MAX_PER_STRIPE;
+            }else if(perStripe < 1){
+                perStripe = 1;
+            }
+            pools.add(new StripedPool<>(perStripe));
+        }
+        return pools;
+    }
+
+    private static final int MIN_SIZE = 4 * 1024;
+    private static final int MAX_SIZE = 1024 * 1024;
+    private static final int STRIPE_BYTES_PER_CLASS = 1024 * 1024;
+    private static final int MAX_PER_STRIPE = 8;
+    private static final List<StripedPool<byte[]>> POOLS = createPools();
+
+    public static final int COPY_BUFFER_SIZE = 64 * 1024;
+}
@@ -0,0 +1,90 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.utils.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Shared raw (nowrap) inflaters and deflaters. Released ones are reset and kept up to
+ * a small count per stripe, extra ones are ended right away, thus native memory of
+ * zlib streams does not grow with the number of entries or archives processed.
+ * */
+public class CodecPool {
+
+    public static Inflater obtainInflater(){
+        Inflater inflater = INFLATERS.poll();
+        if(inflater == null){
+            inflater = new Inflater(true);
+        }
+        return inflater;
+    }
+    public static void releaseInflater(Inflater inflater){
+        if(inflater == null){
+            return;
+        }
+        inflater.reset();
+        if(!INFLATERS.offer(inflater)){
+            inflater.end();
+        }
+    }
+    /**
+     * @param level compression level, Deflater.DEFAULT_COMPRESSION or 0 to 9
+     * */
+    public static Deflater obtainDeflater(int level){
+        Deflater deflater = deflaterPool(level).poll();
+        if(deflater == null){
+            deflater = new Deflater(level, true);
+        }
+        return deflater;
+    }
+    public static void releaseDeflater(int level, Deflater deflater){
+        if(deflater == null){
+            return;
+        }
+        deflater.reset();
+        if(!deflaterPool(level).offer(deflater)){
+            deflater.end();
+        }
+    }
+    /**
+     * Ends all idle pooled inflaters and deflaters
+     * */
+    public static void clear(){
+        INFLATERS.clear(Inflater::end);
+        for(StripedPool<Deflater> pool : DEFLATERS){
+            pool.clear(Deflater::end);
+        }
+    }
+    private static StripedPool<Deflater> deflaterPool(int level){
+        return DEFLATERS.get(level + 1);
+    }
+    private static List<StripedPool<Deflater>> createDeflaterPools(){
+        // index 0 is Deflater.DEFAULT_COMPRESSION (-1)
+        int count = Deflater.BEST_COMPRESSION + 2;
+        List<StripedPool<Deflater>> pools = new ArrayList<>(count);
+        for(int i = 0; i < count; i++){
+            pools.add(new StripedPool<>(MAX_PER_STRIPE));
+        }
+        return pools;
+    }
+
+    private static final int MAX_PER_STRIPE = 2;
+    private static final StripedPool<Inflater> INFLATERS = new StripedPool<>(MAX_PER_STRIPE);
+    private static final List<StripedPool<Deflater>> DEFLATERS = createDeflaterPools();
+}
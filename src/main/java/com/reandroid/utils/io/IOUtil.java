@@ -20,22 +20,29 @@ import java.io.*;
 public class IOUtil {
 
     public static void writeAll(InputStream inputStream, OutputStream outputStream) throws IOException{
-        int bufferLength = 1024 * 1000;
-        byte[] buffer = new byte[bufferLength];
-        int read;
-        while ((read = inputStream.read(buffer, 0, bufferLength))>0){
-            outputStream.write(buffer, 0, read);
+        byte[] buffer = BufferPool.obtain(BufferPool.COPY_BUFFER_SIZE);
+        try {
+            int read;
+            while ((read = inputStream.read(buffer, 0, buffer.length))>0){
+                outputStream.write(buffer, 0, read);
+            }
+        }finally {
+            BufferPool.release(buffer);
         }
     }
     public static byte[] readFully(File file) throws IOException{
         return readFully(FileUtil.inputStream(file));
     }
     public static byte[] readFully(InputStream inputStream) throws IOException{
-        byte[] buffer = new byte[1024 * 1000];
-        int length;
+        byte[] buffer = BufferPool.obtain(BufferPool.COPY_BUFFER_SIZE);
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        while ((length = inputStream.read(buffer, 0, buffer.length)) > 0){
-            outputStream.write(buffer, 0, length);
+        try {
+            int length;
+            while ((length = inputStream.read(buffer, 0, buffer.length)) > 0){
+                outputStream.write(buffer, 0, length);
+            }
+        }finally {
+            BufferPool.release(buffer);
         }
         outputStream.close();
         inputStream.close();
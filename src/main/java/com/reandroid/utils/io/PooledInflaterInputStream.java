@@ -0,0 +1,58 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.utils.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Inflates raw deflate data with inflater and buffer of the shared pools, both are
+ * returned on close. InflaterInputStream does not end inflaters it did not create,
+ * thus without pooling each stream left its zlib memory to garbage collection.
+ * */
+public class PooledInflaterInputStream extends InflaterInputStream {
+    private boolean mReleased;
+
+    public PooledInflaterInputStream(InputStream inputStream, int bufferSize){
+        super(inputStream, CodecPool.obtainInflater(), 1);
+        this.buf = BufferPool.obtain(bufferSize);
+    }
+    public PooledInflaterInputStream(InputStream inputStream){
+        this(inputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        }finally {
+            release();
+        }
+    }
+    private synchronized void release(){
+        if(mReleased){
+            return;
+        }
+        mReleased = true;
+        CodecPool.releaseInflater(inf);
+        BufferPool.release(buf);
+        buf = EMPTY;
+    }
+
+    private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+    private static final byte[] EMPTY = new byte[0];
+}
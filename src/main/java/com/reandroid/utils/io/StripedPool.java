@@ -0,0 +1,106 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.utils.io;
+
+import java.util.function.Consumer;
+
+/**
+ * Bounded pool split to stripes selected by thread id, threads mostly hit their own
+ * stripe lock. Unlike thread locals, pooled items outlive short lived worker threads,
+ * thus parallel work of a new WorkerPool still reuses them.
+ * */
+public class StripedPool<T> {
+    private final Stripe[] stripes;
+    private final int mask;
+
+    public StripedPool(int maxPerStripe){
+        int count = stripeCount();
+        Stripe[] stripes = new Stripe[count];
+        for(int i = 0; i < count; i++){
+            stripes[i] = new Stripe(maxPerStripe);
+        }
+        this.stripes = stripes;
+        this.mask = count - 1;
+    }
+
+    /**
+     * @return pooled item or null if the stripe of calling thread is empty
+     * */
+    @SuppressWarnings("unchecked")
+    public T poll(){
+        return (T) stripe().poll();
+    }
+    /**
+     * @return false if the stripe is full, the caller then owns the item
+     * */
+    public boolean offer(T item){
+        return stripe().offer(item);
+    }
+    /**
+     * Removes all pooled items, each is passed to the consumer if not null
+     * */
+    @SuppressWarnings("unchecked")
+    public void clear(Consumer<? super T> consumer){
+        for(Stripe stripe : stripes){
+            Object item;
+            while ((item = stripe.poll()) != null){
+                if(consumer != null){
+                    consumer.accept((T) item);
+                }
+            }
+        }
+    }
+    private Stripe stripe(){
+        return stripes[((int) Thread.currentThread().getId()) & mask];
+    }
+
+    private static int stripeCount(){
+        int processors = Runtime.getRuntime().availableProcessors();
+        int count = 1;
+        while (count < processors && count < MAX_STRIPES){
+            count = count << 1;
+        }
+        return count;
+    }
+
+    static class Stripe {
+        private final Object[] items;
+        private int size;
+
+        Stripe(int capacity){
+            this.items = new Object[capacity];
+        }
+        synchronized Object poll(){
+            if(size == 0){
+                return null;
+            }
+            size --;
+            Object item = items[size];
+            items[size] = null;
+            return item;
+        }
+        synchronized boolean offer(Object item){
+            if(size == items.length){
+                return false;
+            }
+            items[size] = item;
+            size ++;
+            return true;
+        }
+    }
+
+    private static final int MAX_STRIPES = 64;
+}
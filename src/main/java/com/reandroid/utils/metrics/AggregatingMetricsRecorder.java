@@ -0,0 +1,125 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.utils.metrics;
+
+import com.reandroid.json.JSONObject;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps totals in memory: per phase count, total and max time and allocated bytes,
+ * per counter sum. Dumps as JSON with names sorted, e.g.
+ * {"phases": {"dex.load": {"count": 2, "total_ms": 41.5, "max_ms": 30.1,
+ * "allocated_bytes": 10485760}}, "counters": {"dex.classes": 5120}}
+ * */
+public class AggregatingMetricsRecorder implements MetricsRecorder {
+    private final Map<String, PhaseStats> phaseMap;
+    private final Map<String, LongAdder> counterMap;
+
+    public AggregatingMetricsRecorder(){
+        this.phaseMap = new ConcurrentHashMap<>();
+        this.counterMap = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public void recordPhase(String phase, long nanos, long allocatedBytes) {
+        phaseMap.computeIfAbsent(phase, key -> new PhaseStats())
+                .add(nanos, allocatedBytes);
+    }
+    @Override
+    public void recordCount(String counter, long amount) {
+        counterMap.computeIfAbsent(counter, key -> new LongAdder()).add(amount);
+    }
+    public long getPhaseCount(String phase){
+        PhaseStats stats = phaseMap.get(phase);
+        if(stats != null){
+            return stats.count.sum();
+        }
+        return 0;
+    }
+    public long getPhaseNanos(String phase){
+        PhaseStats stats = phaseMap.get(phase);
+        if(stats != null){
+            return stats.totalNanos.sum();
+        }
+        return 0;
+    }
+    public long getCount(String counter){
+        LongAdder adder = counterMap.get(counter);
+        if(adder != null){
+            return adder.sum();
+        }
+        return 0;
+    }
+    public void reset(){
+        phaseMap.clear();
+        counterMap.clear();
+    }
+    public JSONObject toJson(){
+        JSONObject phases = new JSONObject();
+        for(Map.Entry<String, PhaseStats> entry : new TreeMap<>(phaseMap).entrySet()){
+            phases.put(entry.getKey(), entry.getValue().toJson());
+        }
+        JSONObject counters = new JSONObject();
+        for(Map.Entry<String, LongAdder> entry : new TreeMap<>(counterMap).entrySet()){
+            counters.put(entry.getKey(), entry.getValue().sum());
+        }
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("phases", phases);
+        jsonObject.put("counters", counters);
+        return jsonObject;
+    }
+    @Override
+    public String toString(){
+        return toJson().toString(2);
+    }
+
+    static class PhaseStats {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        final LongAdder allocatedBytes = new LongAdder();
+        volatile boolean allocationUnknown;
+
+        void add(long nanos, long allocated){
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            if(allocated >= 0){
+                allocatedBytes.add(allocated);
+            }else {
+                allocationUnknown = true;
+            }
+        }
+        JSONObject toJson(){
+            JSONObject jsonObject = new JSONObject();
+            jsonObject.put("count", count.sum());
+            jsonObject.put("total_ms", toMillis(totalNanos.sum()));
+            jsonObject.put("max_ms", toMillis(maxNanos.get()));
+            if(!allocationUnknown){
+                jsonObject.put("allocated_bytes", allocatedBytes.sum());
+            }
+            return jsonObject;
+        }
+        private static double toMillis(long nanos){
+            return Math.round(nanos / 1000.0) / 1000.0;
+        }
+    }
+}
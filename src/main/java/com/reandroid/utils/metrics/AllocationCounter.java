@@ -0,0 +1,59 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.utils.metrics;
+
+import java.lang.reflect.Method;
+
+/**
+ * Bytes allocated by the current thread, from com.sun.management.ThreadMXBean when
+ * present. Looked up reflectively as java.lang.management is missing on Android.
+ * */
+class AllocationCounter {
+    private static final Object sBean;
+    private static final Method sMethod;
+
+    static {
+        Object bean = null;
+        Method method = null;
+        try {
+            Class<?> factory = Class.forName("java.lang.management.ManagementFactory");
+            bean = factory.getMethod("getThreadMXBean").invoke(null);
+            Class<?> beanClass = Class.forName("com.sun.management.ThreadMXBean");
+            if(beanClass.isInstance(bean)){
+                method = beanClass.getMethod("getThreadAllocatedBytes", long.class);
+                beanClass.getMethod("setThreadAllocatedMemoryEnabled", boolean.class)
+                        .invoke(bean, true);
+            }
+        } catch (Throwable ignored) {
+            method = null;
+        }
+        sBean = bean;
+        sMethod = method;
+    }
+
+    static long currentThreadAllocatedBytes(){
+        Method method = sMethod;
+        if(method == null){
+            return -1;
+        }
+        try {
+            Object result = method.invoke(sBean, Thread.currentThread().getId());
+            return (Long) result;
+        } catch (Throwable ignored) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.utils.metrics;
+
+/**
+ * Process wide entry point for performance metrics. Nothing is measured until a
+ * recorder is set, e.g. AggregatingMetricsRecorder, thus instrumented code costs a
+ * field read when disabled.
+ * <pre>
+ *   Metrics.Span span = Metrics.start(Metrics.DEX_LOAD);
+ *   ...
+ *   span.end();
+ * </pre>
+ * */
+public class Metrics {
+    private static volatile MetricsRecorder sRecorder;
+
+    private Metrics(){
+    }
+
+    public static MetricsRecorder getRecorder() {
+        return sRecorder;
+    }
+    /**
+     * @param recorder the recorder, null disables metrics
+     * */
+    public static void setRecorder(MetricsRecorder recorder) {
+        sRecorder = recorder;
+    }
+    public static boolean isEnabled(){
+        return sRecorder != null;
+    }
+    public static Span start(String phase){
+        MetricsRecorder recorder = sRecorder;
+        if(recorder == null){
+            return Span.NO_OP;
+        }
+        return new Span(recorder, phase);
+    }
+    public static void count(String counter, long amount){
+        MetricsRecorder recorder = sRecorder;
+        if(recorder != null){
+            recorder.recordCount(counter, amount);
+        }
+    }
+
+    public static class Span implements AutoCloseable {
+        private final MetricsRecorder recorder;
+        private final String phase;
+        private final long startNanos;
+        private final long startAllocated;
+        private boolean mEnded;
+
+        Span(MetricsRecorder recorder, String phase){
+            this.recorder = recorder;
+            this.phase = phase;
+            this.startAllocated = AllocationCounter.currentThreadAllocatedBytes();
+            this.startNanos = System.nanoTime();
+        }
+        /**
+         * Reports elapsed time once, further calls are ignored
+         * */
+        public void end(){
+            MetricsRecorder recorder = this.recorder;
+            if(recorder == null || mEnded){
+                return;
+            }
+            mEnded = true;
+            long nanos = System.nanoTime() - startNanos;
+            long allocated = -1;
+            if(startAllocated >= 0){
+                long current = AllocationCounter.currentThreadAllocatedBytes();
+                if(current >= startAllocated){
+                    allocated = current - startAllocated;
+                }
+            }
+            recorder.recordPhase(phase, nanos, allocated);
+        }
+        @Override
+        public void close(){
+            end();
+        }
+
+        static final Span NO_OP = new Span();
+
+        private Span(){
+            this.recorder = null;
+            this.phase = null;
+            this.startNanos = 0;
+            this.startAllocated = -1;
+        }
+    }
+
+    public static final String ARCHIVE_OPEN = "archive.open";
+    public static final String TABLE_LOAD = "table.load";
+    public static final String RES_DECODE = "res.decode";
+    public static final String RES_ENCODE = "res.encode";
+    public static final String DEX_LOAD = "dex.load";
+    public static final String DEX_DECODE = "dex.decode";
+    public static final String DEX_ENCODE = "dex.encode";
+    public static final String SMALI_WRITE = "smali.write";
+    public static final String SMALI_PARSE = "smali.parse";
+    public static final String COMPRESS = "compress";
+    public static final String APK_WRITE = "apk.write";
+
+    public static final String ARCHIVE_ENTRIES = "archive.entries";
+    public static final String DEX_BYTES_IN = "dex.bytes_in";
+    public static final String DEX_CLASSES = "dex.classes";
+    public static final String SMALI_CLASSES = "smali.classes";
+    public static final String COMPRESS_ENTRIES = "compress.entries";
+    public static final String COMPRESS_STORED = "compress.stored";
+    public static final String COMPRESS_BYTES_IN = "compress.bytes_in";
+    public static final String COMPRESS_BYTES_OUT = "compress.bytes_out";
+    public static final String WRITE_ENTRIES = "write.entries";
+    public static final String WRITE_BYTES = "write.bytes";
+}
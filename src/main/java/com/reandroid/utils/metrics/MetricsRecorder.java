@@ -0,0 +1,32 @@
+/*
+ *  Copyright (C) 2022 github.com/REAndroid
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.reandroid.utils.metrics;
+
+/**
+ * Receives measurements reported through Metrics by archive, resource, dex and
+ * writer layers. Implementations must be thread safe, phases and counters may be
+ * reported from worker threads concurrently.
+ * */
+public interface MetricsRecorder {
+    /**
+     * @param phase name of phase, see Metrics constants
+     * @param nanos elapsed wall time
+     * @param allocatedBytes bytes allocated by the reporting thread during the phase,
+     *                       or -1 when the runtime does not provide it
+     * */
+    void recordPhase(String phase, long nanos, long allocatedBytes);
+    void recordCount(String counter, long amount);
+}
@@ -0,0 +1,147 @@
+package com.reandroid.apk;
+
+import com.reandroid.TestUtils;
+import com.reandroid.archive.ByteInputSource;
+import com.reandroid.archive.InputSource;
+import com.reandroid.archive.io.ArchiveEntrySource;
+import com.reandroid.json.JSONObject;
+import com.reandroid.utils.io.FileUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class BuildCacheTest {
+
+    @Test
+    public void testReuseUnchanged() throws IOException {
+        File dir = createProject("build_cache_reuse");
+        File first = encode(dir, "first.apk", true);
+        File clean = encode(dir, "clean.apk", false);
+        Assert.assertArrayEquals(readBytes(clean), readBytes(first));
+
+        ApkModuleXmlEncoder encoder = scan(dir, true);
+        Assert.assertTrue(encoder.getBuildCache().isLoaded());
+        assertReused(encoder, LAYOUT, true);
+        assertReused(encoder, TEXT_ASSET, true);
+        assertReused(encoder, DATA_ASSET, true);
+        File second = write(encoder, dir, "second.apk");
+        Assert.assertArrayEquals(readBytes(clean), readBytes(second));
+    }
+    @Test
+    public void testChangedFileNotReused() throws IOException {
+        File dir = createProject("build_cache_changed");
+        encode(dir, "first.apk", true);
+        File file = findFile(dir, "text.txt");
+        Files.write(file.toPath(), "changed text".getBytes(StandardCharsets.UTF_8));
+
+        ApkModuleXmlEncoder encoder = scan(dir, true);
+        assertReused(encoder, TEXT_ASSET, false);
+        assertReused(encoder, DATA_ASSET, true);
+        assertReused(encoder, LAYOUT, true);
+        File second = write(encoder, dir, "second.apk");
+        Assert.assertArrayEquals(readBytes(encode(dir, "clean.apk", false)), readBytes(second));
+    }
+    @Test
+    public void testResourceSignatureChange() throws IOException {
+        File dir = createProject("build_cache_signature");
+        encode(dir, "first.apk", true);
+        File attrs = findFile(dir, "attrs.xml");
+        String xml = new String(readBytes(attrs), StandardCharsets.UTF_8);
+        Assert.assertTrue(xml.contains("reference|color|dimension"));
+        xml = xml.replace("reference|color|dimension", "reference|color");
+        Files.write(attrs.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+
+        // layout file is unchanged but encoded xml depends on attribute definitions
+        ApkModuleXmlEncoder encoder = scan(dir, true);
+        assertReused(encoder, LAYOUT, false);
+        assertReused(encoder, TEXT_ASSET, true);
+        File second = write(encoder, dir, "second.apk");
+        Assert.assertArrayEquals(readBytes(encode(dir, "clean.apk", false)), readBytes(second));
+    }
+    @Test
+    public void testMethodChange() throws IOException {
+        File dir = createProject("build_cache_method");
+        encode(dir, "first.apk", true);
+        File jsonFile = new File(dir, UncompressedFiles.JSON_FILE);
+        JSONObject jsonObject = new JSONObject(jsonFile);
+        jsonObject.getJSONArray("paths").put(DATA_ASSET);
+        jsonObject.write(jsonFile);
+
+        ApkModuleXmlEncoder encoder = scan(dir, true);
+        assertReused(encoder, DATA_ASSET, false);
+        assertReused(encoder, TEXT_ASSET, true);
+        File second = write(encoder, dir, "second.apk");
+        Assert.assertArrayEquals(readBytes(encode(dir, "clean.apk", false)), readBytes(second));
+    }
+
+    private static void assertReused(ApkModuleXmlEncoder encoder, String path, boolean reused){
+        InputSource inputSource = encoder.getApkModule().getInputSource(path);
+        Assert.assertNotNull(path, inputSource);
+        Assert.assertEquals(path, reused, inputSource instanceof ArchiveEntrySource);
+    }
+    private static File encode(File dir, String name, boolean incremental) throws IOException {
+        return write(scan(dir, incremental), dir, name);
+    }
+    private static ApkModuleXmlEncoder scan(File dir, boolean incremental) throws IOException {
+        ApkModuleXmlEncoder encoder = new ApkModuleXmlEncoder();
+        encoder.setIncremental(incremental);
+        encoder.scanDirectory(dir);
+        return encoder;
+    }
+    private static File write(ApkModuleXmlEncoder encoder, File dir, String name) throws IOException {
+        File apk = new File(dir.getParentFile(), dir.getName() + "_" + name);
+        ApkModule apkModule = encoder.getApkModule();
+        apkModule.writeApk(apk);
+        if(encoder.isIncremental()){
+            encoder.saveBuildCache(apk);
+        }
+        apkModule.close();
+        return apk;
+    }
+    private static File createProject(String name) throws IOException {
+        File dir = new File(TestUtils.getTempDir(), name);
+        if(dir.exists()){
+            FileUtil.deleteDirectory(dir);
+        }
+        ApkModule apkModule = new ApkModuleTest().createApkModule();
+        apkModule.add(new ByteInputSource(repeat("text asset ", 2000), TEXT_ASSET));
+        apkModule.add(new ByteInputSource(repeat("data ", 3000), DATA_ASSET));
+        new ApkModuleXmlDecoder(apkModule).decode(dir);
+        return dir;
+    }
+    private static File findFile(File dir, String name){
+        File[] files = dir.listFiles();
+        if(files == null){
+            return null;
+        }
+        for(File file : files){
+            if(file.isDirectory()){
+                File result = findFile(file, name);
+                if(result != null){
+                    return result;
+                }
+            }else if(name.equals(file.getName())){
+                return file;
+            }
+        }
+        return null;
+    }
+    private static byte[] readBytes(File file) throws IOException {
+        return Files.readAllBytes(file.toPath());
+    }
+    private static byte[] repeat(String text, int count){
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < count; i++){
+            builder.append(text).append(i);
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final String LAYOUT = "res/layout/activity_main.xml";
+    private static final String TEXT_ASSET = "assets/text.txt";
+    private static final String DATA_ASSET = "assets/data.bin";
+}
@@ -0,0 +1,41 @@
+package com.reandroid.apk;
+
+import com.reandroid.arsc.chunk.PackageBlock;
+import com.reandroid.arsc.chunk.TableBlock;
+import com.reandroid.arsc.value.Entry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+public class ResFileIndexTest {
+    @Test
+    public void testEditsAreIndexedWithoutInvalidating() throws IOException {
+        ApkModule apkModule = ApkModule.readApkBytes(
+                new ApkModuleTest().createApkModule().writeApkBytes());
+        TableBlock tableBlock = apkModule.getTableBlock();
+        PackageBlock packageBlock = tableBlock.pickOne();
+        String path = "res/layout/activity_main.xml";
+        int stringsCount = tableBlock.getStringPool().countStrings();
+
+        List<Entry> entryList = apkModule.listReferencedEntries(path);
+        Assert.assertEquals(1, entryList.size());
+
+        // points at existing path string, string count stays the same
+        Entry copy = packageBlock.getOrCreate("", "layout", "activity_copy");
+        copy.setValueAsString(path);
+        Assert.assertEquals(stringsCount, tableBlock.getStringPool().countStrings());
+        entryList = apkModule.listReferencedEntries(path);
+        Assert.assertEquals(2, entryList.size());
+        Assert.assertTrue(entryList.contains(copy));
+        Assert.assertEquals(1, apkModule.listResFiles(copy.getResourceId(), null).size());
+
+        copy.setValueAsString("res/layout/activity_other.xml");
+        entryList = apkModule.listReferencedEntries(path);
+        Assert.assertEquals(1, entryList.size());
+        Assert.assertFalse(entryList.contains(copy));
+        Assert.assertEquals(1, apkModule.listReferencedEntries(
+                "res/layout/activity_other.xml").size());
+    }
+}
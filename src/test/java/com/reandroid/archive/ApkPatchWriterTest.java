@@ -0,0 +1,169 @@
+package com.reandroid.archive;
+
+import com.reandroid.TestUtils;
+import com.reandroid.apk.ApkModule;
+import com.reandroid.apk.ApkModuleTest;
+import com.reandroid.archive.writer.ApkPatchWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public class ApkPatchWriterTest {
+
+    @Test
+    public void testPatchManifestOnly() throws IOException {
+        File file = createApkFile("patch_manifest.apk");
+        ApkPatchWriter writer = patchAndCompare(file, apkModule ->
+                apkModule.getAndroidManifest().setVersionCode(2));
+        Assert.assertFalse(writer.isCompacted());
+        Assert.assertEquals(2, readVersionCode(file));
+    }
+    @Test
+    public void testOverwriteBeforeRead() throws IOException {
+        File file = createApkFile("patch_overwrite.apk");
+        // renamed layout is no longer kept in place and is written after the changed
+        // manifest, which lands on the layout data
+        ApkPatchWriter writer = patchAndCompare(file, apkModule -> {
+            ZipEntryMap zipEntryMap = apkModule.getZipEntryMap();
+            InputSource layout = zipEntryMap.remove(LAYOUT);
+            RenamedInputSource<InputSource> renamed =
+                    new RenamedInputSource<>("res/layout/renamed.xml", layout);
+            renamed.setSort(Integer.MAX_VALUE);
+            zipEntryMap.add(renamed);
+            apkModule.getAndroidManifest().setVersionCode(3);
+        });
+        Assert.assertFalse(writer.isCompacted());
+        Map<String, String> entries = readEntries(file);
+        Assert.assertFalse(entries.containsKey(LAYOUT));
+        Assert.assertTrue(entries.containsKey("res/layout/renamed.xml"));
+        Assert.assertEquals(3, readVersionCode(file));
+    }
+    @Test
+    public void testPatchGrow() throws IOException {
+        File file = createApkFile("patch_grow.apk");
+        long length = file.length();
+        patchAndCompare(file, apkModule -> {
+            apkModule.add(new ByteInputSource(randomBytes(200000, 4), "assets/new.bin"));
+            apkModule.getAndroidManifest().setVersionCode(4);
+        });
+        Assert.assertTrue(file.length() > length);
+        Assert.assertTrue(readEntries(file).containsKey("assets/new.bin"));
+    }
+    @Test
+    public void testPatchShrink() throws IOException {
+        File file = createApkFile("patch_shrink.apk");
+        long length = file.length();
+        ApkPatchWriter writer = patchAndCompare(file, apkModule ->
+                apkModule.getZipEntryMap().remove(TEXT_ASSET));
+        Assert.assertTrue(file.length() < length);
+        Assert.assertFalse(readEntries(file).containsKey(TEXT_ASSET));
+        Assert.assertFalse(writer.isCompacted());
+        Assert.assertTrue(writer.getDeadBytes() > 0);
+    }
+    @Test
+    public void testPatchCompact() throws IOException {
+        File file = createApkFile("patch_compact.apk");
+        long length = file.length();
+        ApkPatchWriter writer = patchAndCompare(file, apkModule -> {
+            apkModule.getZipEntryMap().remove(STORED_ASSET);
+            apkModule.getAndroidManifest().setVersionCode(5);
+        }, 1);
+        Assert.assertTrue(writer.isCompacted());
+        Assert.assertEquals(0, writer.getDeadBytes());
+        Assert.assertTrue(file.length() < length);
+        Assert.assertEquals(5, readVersionCode(file));
+    }
+
+    private ApkPatchWriter patchAndCompare(File file, Consumer<ApkModule> edit) throws IOException {
+        return patchAndCompare(file, edit, -1);
+    }
+    /**
+     * Applies the same edit to a fresh copy written by ApkFileWriter and to the file
+     * patched in place, then compares entries of both
+     * */
+    private ApkPatchWriter patchAndCompare(File file, Consumer<ApkModule> edit,
+                                           int maxDeadPercent) throws IOException {
+        File fresh = new File(file.getParentFile(), "fresh_" + file.getName());
+        ApkModule apkModule = ApkModule.loadApkFile(file);
+        edit.accept(apkModule);
+        apkModule.writeApk(fresh);
+        apkModule.close();
+
+        apkModule = ApkModule.loadApkFile(file);
+        edit.accept(apkModule);
+        ApkPatchWriter writer = apkModule.createApkPatchWriter();
+        if(maxDeadPercent >= 0){
+            writer.setMaxDeadPercent(maxDeadPercent);
+        }
+        writer.write();
+        apkModule.close();
+
+        Assert.assertEquals(readEntries(fresh), readEntries(file));
+        return writer;
+    }
+    private static int readVersionCode(File file) throws IOException {
+        ApkModule apkModule = ApkModule.loadApkFile(file);
+        int versionCode = apkModule.getAndroidManifest().getVersionCode();
+        apkModule.close();
+        return versionCode;
+    }
+    /**
+     * @return entry name to method and CRC, CRC is verified against the data
+     * */
+    static Map<String, String> readEntries(File file) throws IOException {
+        Map<String, String> results = new LinkedHashMap<>();
+        ZipFile zipFile = new ZipFile(file);
+        byte[] buffer = new byte[4096];
+        Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
+        while (enumeration.hasMoreElements()){
+            ZipEntry zipEntry = enumeration.nextElement();
+            CRC32 crc32 = new CRC32();
+            InputStream inputStream = zipFile.getInputStream(zipEntry);
+            int read;
+            while ((read = inputStream.read(buffer)) > 0){
+                crc32.update(buffer, 0, read);
+            }
+            inputStream.close();
+            Assert.assertEquals("CRC of " + zipEntry.getName(),
+                    zipEntry.getCrc(), crc32.getValue());
+            results.put(zipEntry.getName(), zipEntry.getMethod() + ":" + crc32.getValue());
+        }
+        zipFile.close();
+        return results;
+    }
+    static File createApkFile(String name) throws IOException {
+        File dir = new File(TestUtils.getTempDir(), "patch_writer");
+        Assert.assertTrue(dir.exists() || dir.mkdirs());
+        File file = new File(dir, name);
+        ApkModule apkModule = new ApkModuleTest().createApkModule();
+        apkModule.add(new ByteInputSource(
+                "text asset text asset text asset".getBytes(), TEXT_ASSET));
+        ByteInputSource stored = new ByteInputSource(randomBytes(100000, 1), STORED_ASSET);
+        apkModule.add(stored);
+        apkModule.getUncompressedFiles().addPath(STORED_ASSET);
+        apkModule.add(new ByteInputSource(randomBytes(150000, 2), DEFLATED_ASSET));
+        apkModule.writeApk(file);
+        return file;
+    }
+    static byte[] randomBytes(int length, long seed){
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static final String TEXT_ASSET = "assets/a.txt";
+    private static final String STORED_ASSET = "assets/stored.bin";
+    private static final String DEFLATED_ASSET = "assets/deflated.bin";
+    private static final String LAYOUT = "res/layout/activity_main.xml";
+}
@@ -0,0 +1,163 @@
+package com.reandroid.archive;
+
+import com.reandroid.apk.ApkModule;
+import com.reandroid.apk.ApkModuleTest;
+import com.reandroid.archive.writer.ApkStreamWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+public class ApkStreamWriterTest {
+
+    @Test
+    public void testStreamingSameAsBuffered() throws IOException {
+        byte[] buffered = write(createApkModule(), false);
+        byte[] streaming = write(createApkModule(), true);
+
+        Map<String, String> expected = readEntries(buffered);
+        Assert.assertEquals(expected, readEntries(streaming));
+        Assert.assertTrue(expected.containsKey(EMPTY_ASSET));
+        Assert.assertTrue(expected.containsKey(NATIVE_LIB));
+
+        ArchiveBytes archive = new ArchiveBytes(streaming);
+        Iterator<ArchiveEntry> iterator = archive.iterator();
+        while (iterator.hasNext()){
+            ArchiveEntry entry = iterator.next();
+            String name = entry.getName();
+            // sizes follow data, thus central directory carries the real ones
+            Assert.assertEquals(name, expected.get(name),
+                    entry.getMethod() + ":" + entry.getCrc() + ":" + entry.getSize());
+            boolean dataDescriptor = entry.getLocalFileHeader().hasDataDescriptor();
+            Assert.assertEquals(name, entry.isCompressed(), dataDescriptor);
+            if(!entry.isCompressed()){
+                Assert.assertEquals(name, 0, entry.getFileOffset() % 4);
+            }
+            Assert.assertArrayEquals(name, readAll(apkModuleSource(name)),
+                    readAll(archive.openInputStream(entry)));
+        }
+        Assert.assertEquals(0, findEntry(archive, NATIVE_LIB).getFileOffset() % 4096);
+        archive.close();
+    }
+    @Test
+    public void testChangedStoredSourceFails() throws IOException {
+        ChangingInputSource inputSource = new ChangingInputSource("assets/changing.bin");
+        inputSource.setMethod(ZipEntry.STORED);
+        ApkStreamWriter writer = new ApkStreamWriter(new ByteArrayOutputStream(),
+                new InputSource[]{inputSource});
+        writer.setStreaming(true);
+        IOException exception = null;
+        try {
+            writer.write();
+        }catch (IOException ex){
+            exception = ex;
+        }
+        Assert.assertNotNull("Missing error for changed input source", exception);
+        Assert.assertTrue(exception.getMessage(),
+                exception.getMessage().contains("assets/changing.bin"));
+    }
+
+    private static byte[] write(ApkModule apkModule, boolean streaming) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ApkStreamWriter writer = apkModule.createApkStreamWriter(outputStream);
+        writer.setStreaming(streaming);
+        Assert.assertEquals(streaming, writer.isStreaming());
+        writer.write();
+        outputStream.close();
+        return outputStream.toByteArray();
+    }
+    /**
+     * @return entry name to method, crc and size, read sequentially as streaming
+     *         readers do, thus data descriptors must be right
+     * */
+    private static Map<String, String> readEntries(byte[] apk) throws IOException {
+        Map<String, String> results = new LinkedHashMap<>();
+        ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(apk));
+        ZipEntry zipEntry;
+        byte[] buffer = new byte[4096];
+        while ((zipEntry = zipInputStream.getNextEntry()) != null){
+            CRC32 crc32 = new CRC32();
+            long size = 0;
+            int read;
+            while ((read = zipInputStream.read(buffer)) > 0){
+                crc32.update(buffer, 0, read);
+                size += read;
+            }
+            results.put(zipEntry.getName(), zipEntry.getMethod() + ":"
+                    + crc32.getValue() + ":" + size);
+        }
+        zipInputStream.close();
+        return results;
+    }
+    private static ArchiveEntry findEntry(Archive<?> archive, String name){
+        Iterator<ArchiveEntry> iterator = archive.iterator();
+        while (iterator.hasNext()){
+            ArchiveEntry entry = iterator.next();
+            if(name.equals(entry.getName())){
+                return entry;
+            }
+        }
+        return null;
+    }
+    private InputStream apkModuleSource(String name) throws IOException {
+        if(sourceModule == null){
+            sourceModule = createApkModule();
+        }
+        return sourceModule.getInputSource(name).openStream();
+    }
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = inputStream.read(buffer)) > 0){
+            outputStream.write(buffer, 0, read);
+        }
+        inputStream.close();
+        return outputStream.toByteArray();
+    }
+    private static ApkModule createApkModule() throws IOException {
+        ApkModule apkModule = new ApkModuleTest().createApkModule();
+        apkModule.add(new ByteInputSource(repeat("text asset ", 5000), "assets/a.txt"));
+        apkModule.add(new ByteInputSource(repeat("stored asset ", 3000), STORED_ASSET));
+        apkModule.getUncompressedFiles().addPath(STORED_ASSET);
+        apkModule.add(new ByteInputSource(new byte[0], EMPTY_ASSET));
+        apkModule.add(new ByteInputSource(repeat("native ", 1000), NATIVE_LIB));
+        apkModule.getUncompressedFiles().addPath(NATIVE_LIB);
+        return apkModule;
+    }
+    private static byte[] repeat(String text, int count){
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < count; i++){
+            builder.append(text).append(i);
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private ApkModule sourceModule;
+
+    static class ChangingInputSource extends InputSource {
+        private int count;
+        ChangingInputSource(String name){
+            super(name);
+        }
+        @Override
+        public InputStream openStream() {
+            count ++;
+            return new ByteArrayInputStream(repeat("pass ", count * 10));
+        }
+    }
+
+    private static final String STORED_ASSET = "assets/stored.bin";
+    private static final String EMPTY_ASSET = "assets/empty.txt";
+    private static final String NATIVE_LIB = "lib/arm64-v8a/libtest.so";
+}
@@ -0,0 +1,205 @@
+package com.reandroid.archive;
+
+import com.reandroid.TestUtils;
+import com.reandroid.archive.block.DataDescriptor;
+import com.reandroid.archive.block.LocalFileHeader;
+import com.reandroid.archive.io.ZipByteInput;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class ArchiveLazyTest {
+
+    @Test
+    public void testLazySameAsEager() throws IOException {
+        byte[] zip = createZip();
+        ArchiveBytes eager = new ArchiveBytes(zip);
+        ArchiveBytes lazy = new ArchiveBytes(new ZipByteInput(zip), true);
+        Assert.assertFalse(eager.isLazyLocalFiles());
+        Assert.assertTrue(lazy.isLazyLocalFiles());
+        Assert.assertEquals(eager.size(), lazy.size());
+        ArchiveEntry[] eagerEntries = toArray(eager);
+        ArchiveEntry[] lazyEntries = toArray(lazy);
+        for(int i = 0; i < lazyEntries.length; i++){
+            ArchiveEntry expected = eagerEntries[i];
+            ArchiveEntry entry = lazyEntries[i];
+            // listing values come from central directory
+            Assert.assertEquals(expected.getName(), entry.getName());
+            Assert.assertEquals(expected.getMethod(), entry.getMethod());
+            Assert.assertEquals(expected.getSize(), entry.getSize());
+            Assert.assertEquals(expected.getCompressedSize(), entry.getCompressedSize());
+            Assert.assertEquals(expected.getCrc(), entry.getCrc());
+            Assert.assertFalse(entry.getName(), entry.isResolved());
+
+            Assert.assertEquals(expected.getFileOffset(), entry.getFileOffset());
+            Assert.assertTrue(entry.isResolved());
+            LocalFileHeader expectedLfh = expected.getLocalFileHeader();
+            LocalFileHeader lfh = entry.getLocalFileHeader();
+            Assert.assertArrayEquals(expectedLfh.getBytes(), lfh.getBytes());
+            DataDescriptor dataDescriptor = expectedLfh.getDataDescriptor();
+            if(dataDescriptor == null){
+                Assert.assertNull(lfh.getDataDescriptor());
+            }else {
+                Assert.assertArrayEquals(dataDescriptor.getBytes(),
+                        lfh.getDataDescriptor().getBytes());
+            }
+            Assert.assertArrayEquals(CONTENTS[i], readAll(lazy.openInputStream(entry)));
+        }
+        eager.close();
+        lazy.close();
+    }
+    @Test
+    public void testPrefetch() throws IOException {
+        byte[] zip = createZip();
+        ArchiveBytes eager = new ArchiveBytes(zip);
+        ArchiveBytes lazy = new ArchiveBytes(new ZipByteInput(zip), true);
+        ArchiveEntry[] lazyEntries = toArray(lazy);
+
+        lazy.prefetchLocalFiles(entry -> entry.getName().endsWith(".dex"));
+        for(ArchiveEntry entry : lazyEntries){
+            Assert.assertEquals(entry.getName(),
+                    entry.getName().endsWith(".dex"), entry.isResolved());
+        }
+        lazy.prefetchLocalFiles();
+        ArchiveEntry[] eagerEntries = toArray(eager);
+        for(int i = 0; i < lazyEntries.length; i++){
+            ArchiveEntry entry = lazyEntries[i];
+            Assert.assertTrue(entry.isResolved());
+            Assert.assertEquals(eagerEntries[i].getFileOffset(), entry.getFileOffset());
+            Assert.assertArrayEquals(eagerEntries[i].getLocalFileHeader().getBytes(),
+                    entry.getLocalFileHeader().getBytes());
+        }
+        eager.close();
+        lazy.close();
+    }
+    @Test
+    public void testResolveWhileReading() throws IOException {
+        File file = new File(TestUtils.getTempDir(), "archive_lazy.zip");
+        FileOutputStream outputStream = new FileOutputStream(file);
+        outputStream.write(createZip());
+        outputStream.close();
+        ArchiveFile archiveFile = new ArchiveFile(file, true);
+        ArchiveEntry[] entries = toArray(archiveFile);
+
+        // resolving other headers must not disturb the open stream
+        InputStream inputStream = archiveFile.openInputStream(entries[3]);
+        byte[] first = new byte[100];
+        Assert.assertEquals(first.length, inputStream.read(first));
+        for(ArchiveEntry entry : entries){
+            Assert.assertTrue(entry.getFileOffset() > 0);
+        }
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        result.write(first);
+        result.write(readAll(inputStream));
+        Assert.assertArrayEquals(CONTENTS[3], result.toByteArray());
+
+        for(InputSource inputSource : archiveFile.getInputSources()){
+            int index = indexOf(inputSource.getAlias());
+            Assert.assertArrayEquals(inputSource.getAlias(), CONTENTS[index],
+                    readAll(inputSource.openStream()));
+        }
+        archiveFile.close();
+    }
+    @Test
+    public void testSetterReadsHeaderFirst() throws IOException {
+        byte[] zip = createZip();
+        ArchiveBytes eager = new ArchiveBytes(zip);
+        ArchiveBytes lazy = new ArchiveBytes(new ZipByteInput(zip), true);
+        ArchiveEntry entry = toArray(lazy)[1];
+        long offset = toArray(eager)[1].getFileOffset();
+        entry.setName("renamed.bin");
+        Assert.assertTrue(entry.isResolved());
+        Assert.assertEquals("renamed.bin", entry.getName());
+        Assert.assertEquals("renamed.bin", entry.getLocalFileHeader().getFileName());
+        Assert.assertEquals("renamed.bin", entry.getCentralEntryHeader().getFileName());
+        Assert.assertEquals(offset, entry.getFileOffset());
+        eager.close();
+        lazy.close();
+    }
+
+    private static ArchiveEntry[] toArray(Archive<?> archive){
+        ArchiveEntry[] results = new ArchiveEntry[archive.size()];
+        int i = 0;
+        Iterator<ArchiveEntry> iterator = archive.iterator();
+        while (iterator.hasNext()){
+            results[i] = iterator.next();
+            i ++;
+        }
+        Assert.assertEquals(results.length, i);
+        return results;
+    }
+    private static int indexOf(String name){
+        for(int i = 0; i < NAMES.length; i++){
+            if(NAMES[i].equals(name)){
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown entry: " + name);
+    }
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = inputStream.read(buffer)) > 0){
+            outputStream.write(buffer, 0, read);
+        }
+        inputStream.close();
+        return outputStream.toByteArray();
+    }
+    static byte[] createZip() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+        for(int i = 0; i < CONTENTS.length; i++){
+            byte[] content = CONTENTS[i];
+            ZipEntry zipEntry = new ZipEntry(NAMES[i]);
+            if((i & 1) == 1){
+                // stored entries have no data descriptor
+                CRC32 crc32 = new CRC32();
+                crc32.update(content);
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setSize(content.length);
+                zipEntry.setCrc(crc32.getValue());
+                zipEntry.setExtra(new byte[]{(byte) 0xfe, (byte) 0xca, 2, 0, 1, 2});
+            }
+            zipOutputStream.putNextEntry(zipEntry);
+            zipOutputStream.write(content);
+            zipOutputStream.closeEntry();
+        }
+        zipOutputStream.close();
+        return outputStream.toByteArray();
+    }
+    private static byte[] repeat(String text, int count){
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < count; i++){
+            builder.append(text).append(i);
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final String[] NAMES = new String[]{
+            "AndroidManifest.xml",
+            "assets/stored.bin",
+            "classes.dex",
+            "classes2.dex",
+            "res/raw/a.txt",
+            "empty.txt"
+    };
+    private static final byte[][] CONTENTS = new byte[][]{
+            repeat("manifest ", 200),
+            repeat("stored data ", 300),
+            repeat("dex ", 5000),
+            repeat("dex2 ", 20000),
+            repeat("text ", 10),
+            new byte[0]
+    };
+}
@@ -0,0 +1,155 @@
+package com.reandroid.archive.io;
+
+import com.reandroid.TestUtils;
+import com.reandroid.apk.ApkModule;
+import com.reandroid.apk.ApkModuleTest;
+import com.reandroid.archive.ByteInputSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public class ZipFileOutputTest {
+
+    @Test
+    public void testTransfer() throws IOException {
+        byte[] source = randomBytes(300000);
+        File sourceFile = writeFile("transfer_source.bin", source);
+        File file = new File(TestUtils.getTempDir(), "transfer_output.bin");
+
+        FileChannel input = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ);
+        input.position(7);
+        ZipFileOutput output = new ZipFileOutput(file);
+        output.getOutputStream().write(new byte[]{1, 2, 3});
+        output.transfer(input, 1000, 200000);
+        // positional, input channel is not moved
+        Assert.assertEquals(7, input.position());
+        Assert.assertEquals(3 + 200000, output.position());
+        output.transfer(input, 0, 10);
+        output.close();
+        input.close();
+
+        byte[] expected = new byte[3 + 200000 + 10];
+        expected[0] = 1;
+        expected[1] = 2;
+        expected[2] = 3;
+        System.arraycopy(source, 1000, expected, 3, 200000);
+        System.arraycopy(source, 0, expected, 3 + 200000, 10);
+        Assert.assertArrayEquals(expected, Files.readAllBytes(file.toPath()));
+    }
+    @Test
+    public void testWriteMovesInput() throws IOException {
+        byte[] source = randomBytes(5000);
+        File sourceFile = writeFile("write_source.bin", source);
+        File file = new File(TestUtils.getTempDir(), "write_output.bin");
+
+        FileChannel input = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ);
+        input.position(100);
+        ZipFileOutput output = new ZipFileOutput(file);
+        output.write(input, 1000);
+        Assert.assertEquals(1100, input.position());
+        output.write(input, 50);
+        Assert.assertEquals(1150, input.position());
+        output.close();
+        input.close();
+        Assert.assertArrayEquals(Arrays.copyOfRange(source, 100, 1150),
+                Files.readAllBytes(file.toPath()));
+    }
+    @Test
+    public void testTransferPastEnd() throws IOException {
+        File sourceFile = writeFile("transfer_short.bin", randomBytes(1000));
+        File file = new File(TestUtils.getTempDir(), "transfer_short_output.bin");
+        FileChannel input = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ);
+        ZipFileOutput output = new ZipFileOutput(file);
+        EOFException exception = null;
+        try {
+            output.transfer(input, 500, 1000);
+        }catch (EOFException ex){
+            exception = ex;
+        }
+        output.close();
+        input.close();
+        Assert.assertNotNull("Missing error for short input", exception);
+    }
+    @Test
+    public void testWriteInputStream() throws IOException {
+        // larger than copy buffer
+        byte[] source = randomBytes(200000);
+        File file = new File(TestUtils.getTempDir(), "stream_output.bin");
+        ZipFileOutput output = new ZipFileOutput(file);
+        output.write(new ByteArrayInputStream(source));
+        Assert.assertEquals(source.length, output.position());
+        output.close();
+        Assert.assertArrayEquals(source, Files.readAllBytes(file.toPath()));
+    }
+    @Test
+    public void testRepackCopiesUnchangedEntries() throws IOException {
+        File dir = TestUtils.getTempDir();
+        File file = new File(dir, "transfer_repack_source.apk");
+        ApkModule apkModule = new ApkModuleTest().createApkModule();
+        apkModule.add(new ByteInputSource(randomBytes(150000), "assets/random.bin"));
+        ByteInputSource stored = new ByteInputSource(randomBytes(70000), "assets/stored.bin");
+        apkModule.add(stored);
+        apkModule.getUncompressedFiles().addPath(stored);
+        apkModule.writeApk(file);
+
+        File repacked = new File(dir, "transfer_repack.apk");
+        apkModule = ApkModule.loadApkFile(file);
+        apkModule.writeApk(repacked);
+        apkModule.close();
+
+        Map<String, byte[]> expected = readEntries(file);
+        Map<String, byte[]> actual = readEntries(repacked);
+        Assert.assertEquals(expected.keySet(), actual.keySet());
+        for(String name : expected.keySet()){
+            Assert.assertArrayEquals(name, expected.get(name), actual.get(name));
+        }
+    }
+
+    private static Map<String, byte[]> readEntries(File file) throws IOException {
+        Map<String, byte[]> results = new LinkedHashMap<>();
+        ZipFile zipFile = new ZipFile(file);
+        Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
+        while (enumeration.hasMoreElements()){
+            ZipEntry zipEntry = enumeration.nextElement();
+            results.put(zipEntry.getName(), readAll(zipFile.getInputStream(zipEntry)));
+        }
+        zipFile.close();
+        return results;
+    }
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = inputStream.read(buffer)) > 0){
+            outputStream.write(buffer, 0, read);
+        }
+        inputStream.close();
+        return outputStream.toByteArray();
+    }
+    private static File writeFile(String name, byte[] bytes) throws IOException {
+        File file = new File(TestUtils.getTempDir(), name);
+        Files.write(file.toPath(), bytes);
+        return file;
+    }
+    private static byte[] randomBytes(int length){
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
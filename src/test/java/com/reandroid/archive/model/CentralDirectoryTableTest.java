@@ -0,0 +1,188 @@
+package com.reandroid.archive.model;
+
+import com.reandroid.TestUtils;
+import com.reandroid.archive.ArchiveException;
+import com.reandroid.archive.block.CentralEntryHeader;
+import com.reandroid.archive.block.LocalFileHeader;
+import com.reandroid.archive.io.ZipByteInput;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+public class CentralDirectoryTableTest {
+
+    @Test
+    public void testSameAsZipFile() throws IOException {
+        byte[] zip = createZip();
+        CentralDirectoryTable table = readTable(zip, 0);
+        Assert.assertEquals(CONTENTS.length, table.size());
+
+        File file = new File(TestUtils.getTempDir(), "central_directory.zip");
+        FileOutputStream outputStream = new FileOutputStream(file);
+        outputStream.write(zip);
+        outputStream.close();
+        ZipFile zipFile = new ZipFile(file);
+        Enumeration<? extends ZipEntry> enumeration = zipFile.entries();
+        int index = 0;
+        while (enumeration.hasMoreElements()){
+            ZipEntry zipEntry = enumeration.nextElement();
+            Assert.assertTrue(table.isPlain(index));
+            Assert.assertEquals(zipEntry.getName(), table.getName(index));
+            Assert.assertEquals(zipEntry.getMethod(), table.getMethod(index));
+            Assert.assertEquals(zipEntry.getCrc(), table.getCrc(index));
+            Assert.assertEquals(zipEntry.getSize(), table.getSize(index));
+            Assert.assertEquals(zipEntry.getCompressedSize(), table.getCompressedSize(index));
+            index ++;
+        }
+        zipFile.close();
+        Assert.assertEquals(CONTENTS.length, index);
+    }
+    @Test
+    public void testSameAsHeaders() throws IOException {
+        CentralDirectoryTable table = readTable(createZip(), 0);
+        for(int i = 0; i < table.size(); i++){
+            CentralEntryHeader ceh = table.createCentralEntryHeader(i);
+            Assert.assertEquals(ceh.getFileName(), table.getName(i));
+            Assert.assertEquals(ceh.getMethod(), table.getMethod(i));
+            Assert.assertEquals(ceh.getCrc(), table.getCrc(i));
+            Assert.assertEquals(ceh.getSize(), table.getSize(i));
+            Assert.assertEquals(ceh.getCompressedSize(), table.getCompressedSize(i));
+            Assert.assertEquals(ceh.getDosTime(), table.getDosTime(i));
+            Assert.assertEquals(ceh.getLocalRelativeOffset(), table.getLocalOffset(i));
+
+            LocalFileHeader lfh = table.createLocalFileHeader(i);
+            Assert.assertEquals(ceh.getFileName(), lfh.getCentralEntryHeader().getFileName());
+            Assert.assertEquals(table.getName(i), lfh.getFileName());
+            Assert.assertEquals(i, lfh.getIndex());
+        }
+    }
+    @Test
+    public void testDataOffsets() throws IOException, DataFormatException {
+        byte[] zip = createZip();
+        CentralDirectoryTable table = readTable(zip, 0);
+        Assert.assertEquals(0, table.getDataOffset(0));
+        table.readDataOffsets(new ZipByteInput(zip));
+        for(int i = 0; i < table.size(); i++){
+            int offset = (int) table.getDataOffset(i);
+            Assert.assertTrue(offset > table.getLocalOffset(i));
+            byte[] raw = Arrays.copyOfRange(zip, offset,
+                    offset + (int) table.getCompressedSize(i));
+            byte[] data;
+            if(table.getMethod(i) == ZipEntry.STORED){
+                data = raw;
+            }else {
+                data = inflate(raw, (int) table.getSize(i));
+            }
+            Assert.assertArrayEquals(table.getName(i), CONTENTS[i], data);
+        }
+    }
+    @Test
+    public void testTruncatedDirectory() throws IOException {
+        byte[] zip = createZip();
+        // last record cut in half
+        CentralDirectoryTable table = readTable(zip, 20);
+        Assert.assertEquals(CONTENTS.length - 1, table.size());
+        Assert.assertEquals(NAMES[CONTENTS.length - 2], table.getName(CONTENTS.length - 2));
+    }
+    @Test
+    public void testBadLocalHeader() throws IOException {
+        byte[] zip = createZip();
+        CentralDirectoryTable table = readTable(zip, 0);
+        int offset = (int) table.getLocalOffset(1);
+        zip[offset] = 0;
+        ArchiveException exception = null;
+        try {
+            table.readDataOffsets(new ZipByteInput(zip));
+        }catch (ArchiveException ex){
+            exception = ex;
+        }
+        Assert.assertNotNull("Missing error for bad local header", exception);
+    }
+
+    private static CentralDirectoryTable readTable(byte[] zip, int cut) throws IOException {
+        int end = zip.length - END_RECORD_LENGTH;
+        while (getInteger(zip, end) != END_RECORD_SIGNATURE){
+            end --;
+        }
+        long length = getInteger(zip, end + 12) & 0xffffffffL;
+        long offset = getInteger(zip, end + 16) & 0xffffffffL;
+        // capacity of one makes the table grow
+        return CentralDirectoryTable.read(new ZipByteInput(zip), offset, length - cut, 1);
+    }
+    private static byte[] createZip() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream, StandardCharsets.UTF_8);
+        for(int i = 0; i < CONTENTS.length; i++){
+            byte[] content = CONTENTS[i];
+            ZipEntry zipEntry = new ZipEntry(NAMES[i]);
+            if((i & 1) == 1){
+                CRC32 crc32 = new CRC32();
+                crc32.update(content);
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setSize(content.length);
+                zipEntry.setCrc(crc32.getValue());
+            }
+            if(i == 2){
+                zipEntry.setExtra(new byte[]{(byte) 0xfe, (byte) 0xca, 2, 0, 1, 2});
+                zipEntry.setComment("entry comment");
+            }
+            zipOutputStream.putNextEntry(zipEntry);
+            zipOutputStream.write(content);
+            zipOutputStream.closeEntry();
+        }
+        zipOutputStream.close();
+        return outputStream.toByteArray();
+    }
+    private static byte[] inflate(byte[] raw, int size) throws DataFormatException {
+        Inflater inflater = new Inflater(true);
+        inflater.setInput(raw);
+        byte[] result = new byte[size];
+        int length = inflater.inflate(result);
+        inflater.end();
+        Assert.assertEquals(size, length);
+        return result;
+    }
+    private static int getInteger(byte[] bytes, int offset){
+        return (bytes[offset] & 0xff)
+                | ((bytes[offset + 1] & 0xff) << 8)
+                | ((bytes[offset + 2] & 0xff) << 16)
+                | ((bytes[offset + 3] & 0xff) << 24);
+    }
+    private static byte[] repeat(String text, int count){
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < count; i++){
+            builder.append(text);
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final String[] NAMES = new String[]{
+            "AndroidManifest.xml",
+            "assets/stored.bin",
+            "res/raw/ünicode_名.txt",
+            "classes.dex",
+            "empty.txt"
+    };
+    private static final byte[][] CONTENTS = new byte[][]{
+            repeat("manifest ", 200),
+            repeat("stored data ", 300),
+            repeat("ünicode ", 50),
+            repeat("dex ", 5000),
+            new byte[0]
+    };
+    private static final int END_RECORD_SIGNATURE = 0x06054b50;
+    private static final int END_RECORD_LENGTH = 22;
+}
@@ -0,0 +1,157 @@
+package com.reandroid.arsc.chunk;
+
+import com.reandroid.apk.ApkModule;
+import com.reandroid.apk.ApkModuleTest;
+import com.reandroid.apk.JsonStringPoolBuilder;
+import com.reandroid.arsc.chunk.xml.AndroidManifestBlock;
+import com.reandroid.arsc.chunk.xml.ResXmlDocument;
+import com.reandroid.arsc.chunk.xml.ResXmlElement;
+import com.reandroid.arsc.container.SpecTypePair;
+import com.reandroid.json.JSONArray;
+import com.reandroid.json.JSONObject;
+import com.reandroid.json.JSONStreamReader;
+import com.reandroid.json.JSONWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Iterator;
+
+public class TableBlockJsonTest {
+
+    @Test
+    public void testWriteJsonSameAsToJson() throws IOException {
+        TableBlock tableBlock = createApkModule().getTableBlock();
+        JSONObject expected = tableBlock.toJson();
+        JSONObject streamed = new JSONObject(writeJson(tableBlock));
+        Assert.assertTrue(streamed.similar(expected));
+        Assert.assertEquals(expected.toString(), streamed.toString());
+    }
+    @Test
+    public void testStreamRoundTrip() throws IOException {
+        TableBlock tableBlock = createApkModule().getTableBlock();
+        String text = writeJson(tableBlock);
+        TableBlock expected = fromJsonObject(text);
+
+        TableBlock streamed = new TableBlock();
+        JsonStringPoolBuilder poolBuilder = new JsonStringPoolBuilder();
+        poolBuilder.build(new JSONStreamReader(new StringReader(text)));
+        poolBuilder.apply(streamed);
+        streamed.fromJson(new JSONStreamReader(new StringReader(text)));
+
+        Assert.assertArrayEquals(expected.getBytes(), streamed.getBytes());
+        Assert.assertTrue(streamed.toJson().similar(tableBlock.toJson()));
+    }
+    @Test
+    public void testTypeBlockEntriesFirst() throws IOException {
+        TableBlock tableBlock = createApkModule().getTableBlock();
+        TypeBlock typeBlock = findLargestTypeBlock(tableBlock);
+        Assert.assertNotNull(typeBlock);
+        JSONObject expected = typeBlock.toJson();
+        TableBlock target = fromJsonObject(writeJson(tableBlock));
+        SpecTypePair specTypePair = target.getPackageArray().get(0)
+                .getSpecTypePair(typeBlock.getId());
+
+        StringWriter writer = new StringWriter();
+        typeBlock.writeJson(new JSONWriter(writer));
+        TypeBlock result = readTypeBlock(writer.toString(), specTypePair);
+        Assert.assertTrue(result.toJson().similar(expected));
+
+        // entries before id and config are buffered
+        JSONArray entries = expected.getJSONArray(TypeBlock.NAME_entries);
+        String text = "{\"" + TypeBlock.NAME_entries + "\":" + entries
+                + ",\"" + TypeBlock.NAME_id + "\":" + typeBlock.getId()
+                + ",\"" + TypeBlock.NAME_name + "\":\"" + typeBlock.getTypeName()
+                + "\",\"" + TypeBlock.NAME_config + "\":"
+                + expected.getJSONObject(TypeBlock.NAME_config) + "}";
+        result = readTypeBlock(text, specTypePair);
+        Assert.assertTrue(result.toJson().similar(expected));
+    }
+    @Test
+    public void testManifestWriteJsonSameAsToJson() throws IOException {
+        AndroidManifestBlock manifestBlock = createApkModule().getAndroidManifest();
+        StringWriter writer = new StringWriter();
+        manifestBlock.writeJson(new JSONWriter(writer));
+        JSONObject expected = manifestBlock.toJson();
+        JSONObject streamed = new JSONObject(writer.toString());
+        Assert.assertTrue(streamed.similar(expected));
+        Assert.assertEquals(expected.toString(), streamed.toString());
+    }
+    @Test
+    public void testDeepXmlWriteJson() {
+        ResXmlDocument document = new ResXmlDocument();
+        ResXmlElement element = document.getOrCreateElement("root");
+        // deeper than writer nesting allows when streaming every element
+        for(int i = 0; i < JSONWriter.MAX_DEPTH; i++){
+            element = element.createChildElement("child" + i);
+        }
+        element.addResXmlText("deepest");
+        document.refresh();
+        StringWriter writer = new StringWriter();
+        document.writeJson(new JSONWriter(writer));
+        JSONObject expected = document.toJson();
+        JSONObject streamed = new JSONObject(writer.toString());
+        Assert.assertTrue(streamed.similar(expected));
+        Assert.assertEquals(expected.toString(), streamed.toString());
+    }
+    @Test
+    public void testStreamReader() {
+        String text = "{\"a\":1,\"skip\":{\"x\":[1,{\"y\":\"}\"}]},\"list\":[{\"k\":\"v1\"},{\"k\":\"v2\"}],\"b\":true}";
+        JSONStreamReader reader = new JSONStreamReader(new StringReader(text));
+        reader.beginObject();
+        Assert.assertEquals("a", reader.nextName());
+        Assert.assertEquals(1, reader.nextValue());
+        Assert.assertEquals("skip", reader.nextName());
+        Assert.assertTrue(reader.isNextObject());
+        reader.skipValue();
+        Assert.assertEquals("list", reader.nextName());
+        Assert.assertTrue(reader.isNextArray());
+        reader.beginArray();
+        Iterator<JSONObject> iterator = reader.iterateObjects();
+        Assert.assertEquals("v1", iterator.next().getString("k"));
+        Assert.assertEquals("v2", iterator.next().getString("k"));
+        Assert.assertFalse(iterator.hasNext());
+        reader.endArray();
+        Assert.assertEquals("b", reader.nextName());
+        Assert.assertEquals(Boolean.TRUE, reader.nextValue());
+        Assert.assertFalse(reader.hasNext());
+        reader.endObject();
+    }
+
+    private static TypeBlock readTypeBlock(String text, SpecTypePair specTypePair){
+        JSONStreamReader reader = new JSONStreamReader(new StringReader(text));
+        return TypeBlock.fromJson(reader, header -> specTypePair.getTypeBlockArray()
+                .createNext(header.optBoolean(TypeBlock.NAME_is_sparse, false)));
+    }
+    private static TableBlock fromJsonObject(String text){
+        JSONObject jsonObject = new JSONObject(text);
+        TableBlock tableBlock = new TableBlock();
+        JsonStringPoolBuilder poolBuilder = new JsonStringPoolBuilder();
+        poolBuilder.build(jsonObject);
+        poolBuilder.apply(tableBlock);
+        tableBlock.fromJson(jsonObject);
+        return tableBlock;
+    }
+    private static String writeJson(TableBlock tableBlock){
+        StringWriter writer = new StringWriter();
+        tableBlock.writeJson(new JSONWriter(writer));
+        return writer.toString();
+    }
+    private static TypeBlock findLargestTypeBlock(TableBlock tableBlock){
+        TypeBlock result = null;
+        for(SpecTypePair specTypePair : tableBlock.getPackageArray().get(0).listSpecTypePairs()){
+            for(TypeBlock typeBlock : specTypePair.listTypeBlocks()){
+                if(result == null || typeBlock.getEntryArray().getCount()
+                        > result.getEntryArray().getCount()){
+                    result = typeBlock;
+                }
+            }
+        }
+        return result;
+    }
+    private static ApkModule createApkModule() throws IOException {
+        return new ApkModuleTest().createApkModule();
+    }
+}
@@ -0,0 +1,120 @@
+package com.reandroid.dex.header;
+
+import com.reandroid.TestUtils;
+import com.reandroid.dex.SampleDexFileCreator;
+import com.reandroid.dex.model.DexFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Adler32;
+
+public class HeaderDigestTest {
+
+    @Test
+    public void testRefreshSameAsGetBytes() throws NoSuchAlgorithmException {
+        DexFile dexFile = createDexFile();
+        byte[] bytes = dexFile.getBytes();
+        Assert.assertEquals(bytes.length, getInteger(bytes, FILE_SIZE_OFFSET));
+        Assert.assertArrayEquals(sha1(bytes, SIGNATURE_END),
+                Arrays.copyOfRange(bytes, CHECKSUM_END, SIGNATURE_END));
+        Assert.assertEquals(adler32(bytes, CHECKSUM_END),
+                getInteger(bytes, CHECKSUM_OFFSET) & 0xffffffffL);
+
+        // refresh of an up to date header changes nothing
+        dexFile.refresh();
+        Assert.assertArrayEquals(bytes, dexFile.getBytes());
+    }
+    @Test
+    public void testWriteSameAsGetBytes() throws IOException {
+        DexFile dexFile = createDexFile();
+        byte[] bytes = dexFile.getBytes();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        dexFile.write(outputStream);
+        Assert.assertArrayEquals(bytes, outputStream.toByteArray());
+
+        File file = new File(TestUtils.getTempDir(), "header_digest.dex");
+        dexFile.write(file);
+        Assert.assertArrayEquals(bytes, Files.readAllBytes(file.toPath()));
+    }
+    @Test
+    public void testDigestStream() throws NoSuchAlgorithmException {
+        byte[] bytes = randomBytes(100000);
+        HeaderDigest digest = new HeaderDigest(CHECKSUM_END, SIGNATURE_END);
+        // single bytes and chunks crossing checksum and signature boundaries
+        digest.write(bytes, 0, 5);
+        for(int i = 5; i < 20; i++){
+            digest.write(bytes[i]);
+        }
+        digest.write(bytes, 20, 30);
+        digest.write(bytes, 50, 0);
+        digest.write(bytes, 50, bytes.length - 50);
+
+        byte[] signature = sha1(bytes, SIGNATURE_END);
+        Assert.assertArrayEquals(signature, digest.getSignature());
+        System.arraycopy(signature, 0, bytes, CHECKSUM_END, signature.length);
+        Assert.assertEquals(adler32(bytes, CHECKSUM_END), digest.getChecksum());
+    }
+    @Test
+    public void testCombine() {
+        Random random = new Random(39);
+        int[] lengths = new int[]{0, 1, 20, 5552, 65521, 65522, 200000};
+        for(int length1 : lengths){
+            for(int length2 : lengths){
+                byte[] part1 = new byte[length1];
+                byte[] part2 = new byte[length2];
+                random.nextBytes(part1);
+                random.nextBytes(part2);
+                Adler32 adler1 = new Adler32();
+                adler1.update(part1, 0, length1);
+                Adler32 adler2 = new Adler32();
+                adler2.update(part2, 0, length2);
+                Adler32 expected = new Adler32();
+                expected.update(part1, 0, length1);
+                expected.update(part2, 0, length2);
+                Assert.assertEquals(length1 + "+" + length2, expected.getValue(),
+                        HeaderDigest.combine(adler1.getValue(), adler2.getValue(), length2));
+            }
+        }
+    }
+
+    private static DexFile createDexFile(){
+        DexFile dexFile = SampleDexFileCreator.createApplicationClass(
+                "com.h.App", "com.h.Main", 0x7f010000);
+        dexFile.refresh();
+        return dexFile;
+    }
+    private static byte[] sha1(byte[] bytes, int offset) throws NoSuchAlgorithmException {
+        MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
+        messageDigest.update(bytes, offset, bytes.length - offset);
+        return messageDigest.digest();
+    }
+    private static long adler32(byte[] bytes, int offset){
+        Adler32 adler32 = new Adler32();
+        adler32.update(bytes, offset, bytes.length - offset);
+        return adler32.getValue();
+    }
+    private static int getInteger(byte[] bytes, int offset){
+        return (bytes[offset] & 0xff)
+                | ((bytes[offset + 1] & 0xff) << 8)
+                | ((bytes[offset + 2] & 0xff) << 16)
+                | ((bytes[offset + 3] & 0xff) << 24);
+    }
+    private static byte[] randomBytes(int length){
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static final int CHECKSUM_OFFSET = 8;
+    private static final int CHECKSUM_END = 12;
+    private static final int SIGNATURE_END = 32;
+    private static final int FILE_SIZE_OFFSET = 32;
+}
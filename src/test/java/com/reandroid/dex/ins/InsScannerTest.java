@@ -0,0 +1,153 @@
+package com.reandroid.dex.ins;
+
+import com.reandroid.arsc.io.BlockReader;
+import com.reandroid.dex.data.CodeItem;
+import com.reandroid.dex.data.InstructionList;
+import com.reandroid.dex.model.DexFile;
+import com.reandroid.dex.sections.SectionType;
+import com.reandroid.dex.smali.SmaliReader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+public class InsScannerTest {
+
+    @Test
+    public void testScannerMatchesDecodedIns() throws IOException {
+        byte[] dexBytes = createDexBytes();
+        DexFile lazy = DexFile.read(new BlockReader(dexBytes), true);
+        DexFile decoded = DexFile.read(new BlockReader(dexBytes), false);
+
+        Iterator<CodeItem> lazyIterator = lazy.getItems(SectionType.CODE);
+        Iterator<CodeItem> decodedIterator = decoded.getItems(SectionType.CODE);
+        InsScanner scanner = new InsScanner();
+        int count = 0;
+        while (lazyIterator.hasNext()){
+            CodeItem codeItem = lazyIterator.next();
+            InstructionList instructionList = decodedIterator.next().getInstructionList();
+            Assert.assertTrue(codeItem.getInstructionList().isLazyCode());
+            scanner.reset(codeItem);
+            Iterator<Ins> insIterator = instructionList.iterator();
+            while (scanner.next()){
+                Assert.assertTrue(insIterator.hasNext());
+                assertSame(scanner, insIterator.next());
+                count ++;
+            }
+            Assert.assertFalse(insIterator.hasNext());
+            Assert.assertTrue("scanning must not decode", codeItem.getInstructionList().isLazyCode());
+        }
+        Assert.assertFalse(decodedIterator.hasNext());
+        Assert.assertEquals(29, count);
+    }
+
+    private static void assertSame(InsScanner scanner, Ins ins){
+        String message = ins.toString();
+        Assert.assertEquals(message, ins.getOpcode(), scanner.getOpcode());
+        Assert.assertEquals(message, ins.getAddress(), scanner.getAddress());
+        Assert.assertEquals(message, ins.getCodeUnits(), scanner.getCodeUnits());
+        if(ins instanceof RegistersSet){
+            RegistersSet registersSet = (RegistersSet) ins;
+            Assert.assertEquals(message, registersSet.getRegistersCount(), scanner.getRegistersCount());
+            Assert.assertEquals(message, registersSet.isRegistersRange(), scanner.isRegistersRange());
+            for(int i = 0; i < scanner.getRegistersCount(); i++){
+                Assert.assertEquals(message, registersSet.getRegister(i), scanner.getRegister(i));
+            }
+        }
+        if(ins instanceof SizeXIns && ((SizeXIns) ins).getSectionType() != null){
+            Assert.assertEquals(message, ((SizeXIns) ins).getSectionIdKey(), scanner.getSectionKey());
+        }
+        if(ins instanceof ConstNumberLong){
+            Assert.assertEquals(message, ((ConstNumberLong) ins).getLong(), scanner.getLiteral());
+        }else if(ins instanceof ConstNumber){
+            Assert.assertEquals(message, ((SizeXIns) ins).getSignedData(), (int) scanner.getLiteral());
+        }
+        int target = -1;
+        if(ins instanceof InsGoto){
+            target = ((InsGoto) ins).getTargetAddress();
+        }else if(ins instanceof Ins21t){
+            target = ((Ins21t) ins).getTargetAddress();
+        }else if(ins instanceof Ins22t){
+            target = ((Ins22t) ins).getTargetAddress();
+        }else if(ins instanceof Ins31t){
+            target = ((Ins31t) ins).getTargetAddress();
+        }
+        if(target != -1){
+            Assert.assertEquals(message, target, scanner.getAddress() + scanner.getBranch());
+        }
+        if(ins instanceof InsArrayData){
+            InsArrayData arrayData = (InsArrayData) ins;
+            Assert.assertEquals(message, arrayData.size(), scanner.getPayloadSize());
+            Assert.assertEquals(message, arrayData.getWidth(), scanner.getPayloadWidth());
+            for(int i = 0; i < arrayData.size(); i++){
+                Assert.assertEquals(message, arrayData.getAsInteger(i), (int) scanner.getArrayElement(i));
+            }
+        }
+    }
+    private static byte[] createDexBytes() throws IOException {
+        DexFile dexFile = DexFile.createDefault();
+        dexFile.fromSmali(SmaliReader.of(SMALI));
+        dexFile.refreshFull();
+        return dexFile.getBytes();
+    }
+
+    private static final String SMALI = "" +
+            ".class public Lcom/example/Scan;\n" +
+            ".super Ljava/lang/Object;\n" +
+            "\n" +
+            ".field public static sField:I\n" +
+            ".field public iField:J\n" +
+            "\n" +
+            ".method public static run(Lcom/example/Scan;IJ)I\n" +
+            "    .locals 8\n" +
+            "    const/4 v0, -0x3\n" +
+            "    const/16 v1, 0x1234\n" +
+            "    const v2, 0x7f010203\n" +
+            "    const/high16 v3, 0x7f010000\n" +
+            "    const-wide v4, 0x123456789abcdefL\n" +
+            "    const-wide/16 v4, -0x10\n" +
+            "    const-wide/high16 v4, 0x4000000000000000L\n" +
+            "    const-string v0, \"text\"\n" +
+            "    const-class v0, Lcom/example/Scan;\n" +
+            "    sget v1, Lcom/example/Scan;->sField:I\n" +
+            "    iget-wide v4, p0, Lcom/example/Scan;->iField:J\n" +
+            "    move v6, v1\n" +
+            "    move/from16 v7, v1\n" +
+            "    add-int v6, v7, v1\n" +
+            "    add-int/lit8 v6, v6, 0x5\n" +
+            "    add-int/lit16 v6, v6, -0x200\n" +
+            "    if-eqz v6, :cond_0\n" +
+            "    if-ne v6, v7, :cond_0\n" +
+            "    invoke-virtual {p0, v6, v7}, Lcom/example/Scan;->other(II)V\n" +
+            "    invoke-static/range {v0 .. v5}, Lcom/example/Scan;->range(Ljava/lang/Object;IIIJ)V\n" +
+            "    new-array v0, v1, [I\n" +
+            "    fill-array-data v0, :array_0\n" +
+            "    packed-switch v1, :pswitch_data_0\n" +
+            "    goto :goto_0\n" +
+            "    :cond_0\n" +
+            "    :goto_0\n" +
+            "    return v6\n" +
+            "    :array_0\n" +
+            "    .array-data 4\n" +
+            "        0x7f010001\n" +
+            "        -0x2\n" +
+            "        0x3\n" +
+            "    .end array-data\n" +
+            "    :pswitch_data_0\n" +
+            "    .packed-switch 0x1\n" +
+            "        :cond_0\n" +
+            "        :goto_0\n" +
+            "    .end packed-switch\n" +
+            ".end method\n" +
+            "\n" +
+            ".method public other(II)V\n" +
+            "    .locals 0\n" +
+            "    return-void\n" +
+            ".end method\n" +
+            "\n" +
+            ".method public static range(Ljava/lang/Object;IIIJ)V\n" +
+            "    .locals 0\n" +
+            "    return-void\n" +
+            ".end method\n";
+}
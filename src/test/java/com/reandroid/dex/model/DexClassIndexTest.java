@@ -0,0 +1,98 @@
+package com.reandroid.dex.model;
+
+import com.reandroid.archive.ByteInputSource;
+import com.reandroid.archive.ZipEntryMap;
+import com.reandroid.dex.SampleDexFileCreator;
+import com.reandroid.dex.id.StringId;
+import com.reandroid.dex.key.StringKey;
+import com.reandroid.dex.key.TypeKey;
+import com.reandroid.dex.sections.SectionType;
+import com.reandroid.utils.collection.CollectionUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+public class DexClassIndexTest {
+
+    @Test
+    public void testKeyChangeWithSameClassCount() throws IOException {
+        DexDirectory dexDirectory = createDirectory();
+        TypeKey mainKey = TypeKey.create("Lcom/a/Main;");
+        TypeKey renamedKey = TypeKey.create("Lcom/b/Renamed;");
+        int count = dexDirectory.getDexClassesCount();
+
+        Assert.assertNotNull(dexDirectory.getDexClass(mainKey));
+        Assert.assertNull(dexDirectory.getDexClass(renamedKey));
+        Assert.assertEquals(1, countPackageClasses(dexDirectory, "Lcom/a/"));
+        Assert.assertTrue(dexDirectory.getClassIndex().isBuilt());
+
+        // renamed behind directory's back, class count stays the same
+        DexFile dexFile = dexDirectory.getDexSourceSet().getDexFile(0);
+        StringId stringId = dexFile.getSection(SectionType.STRING_ID)
+                .get(StringKey.create(mainKey.getTypeName()));
+        stringId.setString(renamedKey.getTypeName());
+        Assert.assertEquals(count, dexDirectory.getDexClassesCount());
+
+        Assert.assertNull(dexDirectory.getDexClass(mainKey));
+        DexClass dexClass = dexDirectory.getDexClass(renamedKey);
+        Assert.assertNotNull(dexClass);
+        Assert.assertEquals(renamedKey, dexClass.getKey());
+        Assert.assertEquals(0, countPackageClasses(dexDirectory, "Lcom/a/"));
+        Assert.assertEquals(1, countPackageClasses(dexDirectory, "Lcom/b/"));
+    }
+    @Test
+    public void testRenameTypesFixesRenamedClass() throws IOException {
+        DexDirectory dexDirectory = createDirectory();
+        TypeKey mainKey = TypeKey.create("Lcom/a/Main;");
+        TypeKey renamedKey = TypeKey.create("Lcom/b/Renamed;");
+        List<StringId> renamed = CollectionUtil.toList(
+                dexDirectory.renameTypes(mainKey, renamedKey));
+        Assert.assertFalse(renamed.isEmpty());
+        Assert.assertNull(dexDirectory.getDexClass(mainKey));
+        Assert.assertNotNull(dexDirectory.getDexClass(renamedKey));
+    }
+
+    @Test
+    public void testMissKeepsIndex() throws IOException {
+        DexDirectory dexDirectory = createDirectory();
+        Assert.assertNull(dexDirectory.getDexClass(TypeKey.create("Ljava/lang/Object;")));
+        Assert.assertTrue(dexDirectory.getClassIndex().isBuilt());
+        Assert.assertNotNull(dexDirectory.getDexClass(TypeKey.create("Lcom/a/Main;")));
+        Assert.assertNull(dexDirectory.getDexClass(TypeKey.create("Ljava/lang/Object;")));
+        Assert.assertTrue(dexDirectory.getClassIndex().isBuilt());
+    }
+    @Test
+    public void testClassKeyChangeAndRemoval() throws IOException {
+        DexDirectory dexDirectory = createDirectory();
+        TypeKey mainKey = TypeKey.create("Lcom/a/Main;");
+        TypeKey renamedKey = TypeKey.create("Lcom/b/Renamed;");
+        DexClass dexClass = dexDirectory.getDexClass(mainKey);
+        Assert.assertTrue(dexDirectory.getClassIndex().isBuilt());
+
+        // class key changed behind directory's back
+        dexClass.getId().setKey(renamedKey);
+        Assert.assertFalse(dexDirectory.getClassIndex().isBuilt());
+        Assert.assertNull(dexDirectory.getDexClass(mainKey));
+        Assert.assertNotNull(dexDirectory.getDexClass(renamedKey));
+
+        // removed behind directory's back
+        DexFile dexFile = dexDirectory.getDexSourceSet().getDexFile(0);
+        Assert.assertTrue(dexFile.removeDexClass(renamedKey));
+        Assert.assertFalse(dexDirectory.getClassIndex().isBuilt());
+        Assert.assertNull(dexDirectory.getDexClass(renamedKey));
+        Assert.assertEquals(0, countPackageClasses(dexDirectory, "Lcom/b/"));
+    }
+
+    private static int countPackageClasses(DexDirectory dexDirectory, String packageName){
+        return CollectionUtil.toList(dexDirectory.getPackageClasses(packageName, false)).size();
+    }
+    private static DexDirectory createDirectory() throws IOException {
+        DexFile sample = SampleDexFileCreator.createApplicationClass(
+                "com.c.App", "com.a.Main", 0x7f010000);
+        ZipEntryMap zipEntryMap = new ZipEntryMap();
+        zipEntryMap.add(new ByteInputSource(sample.getBytes(), "classes.dex"));
+        return DexDirectory.fromZip(zipEntryMap);
+    }
+}
@@ -0,0 +1,180 @@
+package com.reandroid.dex.model;
+
+import com.reandroid.archive.ByteInputSource;
+import com.reandroid.archive.ZipEntryMap;
+import com.reandroid.dex.SampleDexFileCreator;
+import com.reandroid.dex.id.StringId;
+import com.reandroid.dex.key.KeyPair;
+import com.reandroid.dex.key.StringKey;
+import com.reandroid.dex.key.TypeKey;
+import com.reandroid.dex.refactor.TypeRenamer;
+import com.reandroid.dex.sections.SectionType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+public class TypeRenamerTest {
+
+    @Test
+    public void testSameAsPerPairRename() throws IOException {
+        List<KeyPair<TypeKey, TypeKey>> pairs = new ArrayList<>();
+        pairs.add(pair("Lcom/a/Outer;", "Lx/Renamed;"));
+        pairs.add(pair("Lcom/a/Other;", "Lx/Other2;"));
+
+        DexDirectory perPair = createDirectory();
+        Iterator<StringId> iterator = perPair.getClonedItems(SectionType.STRING_ID);
+        while (iterator.hasNext()){
+            perPair.renameTypes(iterator.next(), pairs, true, true);
+        }
+        DexDirectory batch = createDirectory();
+        batch.renameTypes(pairs, true, true);
+
+        Map<String, String> actual = mapStrings(batch);
+        Assert.assertEquals(mapStrings(perPair), actual);
+
+        Assert.assertEquals("Lx/Renamed;", actual.get("Lcom/a/Outer;"));
+        Assert.assertEquals("Lx/Renamed$Inner$Deep;", actual.get("Lcom/a/Outer$Inner$Deep;"));
+        Assert.assertEquals("[[Lx/Renamed$Inner;", actual.get("[[Lcom/a/Outer$Inner;"));
+        Assert.assertEquals("[[[Lx/Renamed;", actual.get("[[[Lcom/a/Outer;"));
+        Assert.assertEquals("x.Renamed", actual.get("com.a.Outer"));
+        Assert.assertEquals("x.Renamed$Inner", actual.get("com.a.Outer$Inner"));
+        Assert.assertEquals("Lcom/a/OuterX;", actual.get("Lcom/a/OuterX;"));
+    }
+    @Test
+    public void testWithoutInnerAndJava() throws IOException {
+        List<KeyPair<TypeKey, TypeKey>> pairs = new ArrayList<>();
+        pairs.add(pair("Lcom/a/Outer;", "Lx/Renamed;"));
+
+        DexDirectory perPair = createDirectory();
+        Iterator<StringId> iterator = perPair.getClonedItems(SectionType.STRING_ID);
+        while (iterator.hasNext()){
+            perPair.renameTypes(iterator.next(), pairs, false, false);
+        }
+        DexDirectory batch = createDirectory();
+        batch.renameTypes(pairs, false, false);
+
+        Map<String, String> actual = mapStrings(batch);
+        Assert.assertEquals(mapStrings(perPair), actual);
+        Assert.assertEquals("Lcom/a/Outer$Inner;", actual.get("Lcom/a/Outer$Inner;"));
+        Assert.assertEquals("com.a.Outer", actual.get("com.a.Outer"));
+    }
+    @Test
+    public void testExactMatchWinsOverPairOrder() throws IOException {
+        List<KeyPair<TypeKey, TypeKey>> pairs = new ArrayList<>();
+        pairs.add(pair("Lcom/a/Outer;", "Lx/Renamed;"));
+        pairs.add(pair("Lcom/a/Outer$Inner;", "Lx/Single;"));
+
+        DexDirectory perPair = createDirectory();
+        Iterator<StringId> iterator = perPair.getClonedItems(SectionType.STRING_ID);
+        while (iterator.hasNext()){
+            perPair.renameTypes(iterator.next(), pairs, true, true);
+        }
+        // per pair rename lets the first pair match by prefix
+        Assert.assertEquals("Lx/Renamed$Inner;", mapStrings(perPair).get("Lcom/a/Outer$Inner;"));
+
+        DexDirectory batch = createDirectory();
+        batch.renameTypes(pairs, true, true);
+        Map<String, String> actual = mapStrings(batch);
+
+        Assert.assertEquals("Lx/Single;", actual.get("Lcom/a/Outer$Inner;"));
+        Assert.assertEquals("[Lx/Single;", actual.get("[Lcom/a/Outer$Inner;"));
+        Assert.assertEquals("Lx/Single$Deep;", actual.get("Lcom/a/Outer$Inner$Deep;"));
+        Assert.assertEquals("Lx/Renamed$1;", actual.get("Lcom/a/Outer$1;"));
+    }
+    @Test
+    public void testNoJavaDotPrefix() throws IOException {
+        List<KeyPair<TypeKey, TypeKey>> pairs = new ArrayList<>();
+        pairs.add(pair("Lcom/a/Outer;", "Lx/Renamed;"));
+
+        DexDirectory perPair = createDirectory();
+        Iterator<StringId> iterator = perPair.getClonedItems(SectionType.STRING_ID);
+        while (iterator.hasNext()){
+            perPair.renameTypes(iterator.next(), pairs, true, true);
+        }
+        // per pair rename looks for "com.a.Outer$." thus never matches
+        Assert.assertEquals("com.a.Outer.Inner", mapStrings(perPair).get("com.a.Outer.Inner"));
+
+        DexDirectory batch = createDirectory();
+        batch.renameTypes(pairs, true, true);
+        Assert.assertEquals("com.a.Outer.Inner", mapStrings(batch).get("com.a.Outer.Inner"));
+    }
+    @Test
+    public void testClassAndPackageSameName() {
+        // obfuscated class La/b; next to package a.b
+        TypeRenamer typeRenamer = new TypeRenamer();
+        typeRenamer.add(TypeKey.create("La/b;"), TypeKey.create("Lx/Renamed;"));
+        Assert.assertEquals("Lx/Renamed;", typeRenamer.rename("La/b;"));
+        Assert.assertEquals("x.Renamed", typeRenamer.rename("a.b"));
+        Assert.assertEquals("x.Renamed$c", typeRenamer.rename("a.b$c"));
+        Assert.assertEquals("Lx/Renamed$c;", typeRenamer.rename("La/b$c;"));
+        Assert.assertNull(typeRenamer.rename("La/b/c;"));
+        Assert.assertNull(typeRenamer.rename("La/b/c$d;"));
+        Assert.assertNull(typeRenamer.rename("a.b.c"));
+        Assert.assertNull(typeRenamer.rename("a.b.c.d"));
+        Assert.assertNull(typeRenamer.rename("a.b.c$d"));
+    }
+    @Test
+    public void testRenameString() {
+        TypeRenamer typeRenamer = new TypeRenamer();
+        typeRenamer.add(TypeKey.create("Lcom/a/Outer;"), TypeKey.create("Lx/Renamed;"));
+        Assert.assertEquals(1, typeRenamer.size());
+        Assert.assertEquals("Lx/Renamed$Inner;", typeRenamer.rename("Lcom/a/Outer$Inner;"));
+        Assert.assertNull(typeRenamer.rename("Lcom/a/OuterX;"));
+        Assert.assertNull(typeRenamer.rename("Lcom/a/Outer"));
+        Assert.assertNull(typeRenamer.rename((String) null));
+    }
+
+    private static Map<String, String> mapStrings(DexDirectory dexDirectory){
+        Map<String, String> results = new HashMap<>();
+        @SuppressWarnings("unchecked")
+        List<StringId> stringIdList = (List<StringId>) dexDirectory.getTag();
+        for(int i = 0; i < STRINGS.length; i++){
+            results.put(STRINGS[i], stringIdList.get(i).getString());
+        }
+        return results;
+    }
+    private static DexDirectory createDirectory() throws IOException {
+        ZipEntryMap zipEntryMap = new ZipEntryMap();
+        DexFile sample = SampleDexFileCreator.createApplicationClass(
+                "com.a.App", "com.a.Main", 0x7f010000);
+        zipEntryMap.add(new ByteInputSource(sample.getBytes(), "classes.dex"));
+        DexDirectory dexDirectory = DexDirectory.fromZip(zipEntryMap);
+        DexFile dexFile = dexDirectory.getDexSourceSet().getDexFile(0);
+        List<StringId> stringIdList = new ArrayList<>();
+        for(String text : STRINGS){
+            stringIdList.add(dexFile.getSection(SectionType.STRING_ID)
+                    .getOrCreate(StringKey.create(text)));
+        }
+        dexDirectory.setTag(stringIdList);
+        dexFile.getOrCreateClass("Lcom/a/Outer;");
+        dexFile.getOrCreateClass("Lcom/a/Outer$Inner;");
+        dexFile.getOrCreateClass("Lcom/a/Other;");
+        return dexDirectory;
+    }
+    private static KeyPair<TypeKey, TypeKey> pair(String search, String replace){
+        return new KeyPair<>(TypeKey.create(search), TypeKey.create(replace));
+    }
+
+    private static final String[] STRINGS = new String[]{
+            "Lcom/a/Outer;",
+            "Lcom/a/Outer$Inner;",
+            "Lcom/a/Outer$Inner$Deep;",
+            "Lcom/a/Outer$1;",
+            "[Lcom/a/Outer;",
+            "[[Lcom/a/Outer;",
+            "[[[Lcom/a/Outer;",
+            "[Lcom/a/Outer$Inner;",
+            "[[Lcom/a/Outer$Inner;",
+            "Lcom/a/Outer<",
+            "com.a.Outer",
+            "com.a.Outer$Inner",
+            "com.a.Outer.Inner",
+            "Lcom/a/OuterX;",
+            "Lcom/a/Other;",
+            "Lcom/a/Other$Inner;",
+            "Lcom/a/Outer",
+            "unrelated"
+    };
+}
@@ -0,0 +1,133 @@
+package com.reandroid.dex.model;
+
+import com.reandroid.archive.ByteInputSource;
+import com.reandroid.archive.ZipEntryMap;
+import com.reandroid.dex.ins.Opcode;
+import com.reandroid.dex.key.MethodKey;
+import com.reandroid.dex.key.StringKey;
+import com.reandroid.dex.key.TypeKey;
+import com.reandroid.dex.smali.SmaliReader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+public class XrefIndexTest {
+
+    private static final MethodKey TARGET = MethodKey.parse("Lcom/x/B;->target()V");
+    private static final MethodKey OTHER = MethodKey.parse("Lcom/x/B;->other()V");
+    private static final MethodKey CALLER1 = MethodKey.parse("Lcom/x/A;->caller1()V");
+    private static final MethodKey CALLER2 = MethodKey.parse("Lcom/x/A;->caller2()V");
+    private static final MethodKey CALLER3 = MethodKey.parse("Lcom/x/C;->caller3()V");
+
+    @Test
+    public void testUserMethodsAreDistinct() throws IOException {
+        XrefIndex xrefIndex = createDirectory().getXrefIndex();
+        Assert.assertEquals(4, xrefIndex.getUsageCount(TARGET));
+        List<MethodKey> users = xrefIndex.getUserMethods(TARGET);
+        Assert.assertEquals(3, users.size());
+        Assert.assertTrue(users.contains(CALLER1));
+        Assert.assertTrue(users.contains(CALLER2));
+        Assert.assertTrue(users.contains(CALLER3));
+        Assert.assertEquals(2, xrefIndex.getUserClasses(TARGET).size());
+        Assert.assertEquals(2, xrefIndex.getUserClasses(StringKey.create("text")).size());
+    }
+    @Test
+    public void testInstructionEditsWithoutUpdate() throws IOException {
+        DexDirectory dexDirectory = createDirectory();
+        XrefIndex xrefIndex = dexDirectory.getXrefIndex();
+        Assert.assertEquals(4, xrefIndex.getUsageCount(TARGET));
+        Assert.assertFalse(xrefIndex.isUsed(OTHER));
+
+        DexMethod caller3 = dexDirectory.getDeclaredMethod(CALLER3);
+        caller3.getInstruction(1).setKey(OTHER);
+        Assert.assertEquals(3, xrefIndex.getUsageCount(TARGET));
+        Assert.assertEquals(CALLER3, xrefIndex.getUserMethods(OTHER).get(0));
+
+        DexMethod caller1 = dexDirectory.getDeclaredMethod(CALLER1);
+        Assert.assertTrue(caller1.getInstruction(0).removeSelf());
+        Assert.assertEquals(2, xrefIndex.getUsageCount(TARGET));
+        Assert.assertEquals(CALLER2, xrefIndex.getUserMethods(TARGET).get(0));
+        Assert.assertEquals(1, xrefIndex.getUserMethods(TARGET).size());
+
+        caller3.getInstruction(0).createNext(Opcode.INVOKE_STATIC).setKey(TARGET);
+        Assert.assertEquals(3, xrefIndex.getUsageCount(TARGET));
+        List<MethodKey> users = xrefIndex.getUserMethods(TARGET);
+        Assert.assertEquals(2, users.size());
+        Assert.assertTrue(users.contains(CALLER3));
+    }
+    @Test
+    public void testUpdateKeepsUsersDistinct() throws IOException {
+        DexDirectory dexDirectory = createDirectory();
+        XrefIndex xrefIndex = dexDirectory.getXrefIndex();
+        Assert.assertEquals(3, xrefIndex.getUserMethods(TARGET).size());
+
+        // sites of re-indexed method move to the end, thus no longer grouped by class
+        DexMethod caller1 = dexDirectory.getDeclaredMethod(CALLER1);
+        caller1.getInstruction(0).createNext(Opcode.INVOKE_STATIC).setKey(TARGET);
+        xrefIndex.update(caller1.getDefinition());
+        Assert.assertTrue(xrefIndex.isBuilt());
+
+        Assert.assertEquals(5, xrefIndex.getUsageCount(TARGET));
+        Assert.assertEquals(3, xrefIndex.getUserMethods(TARGET).size());
+        List<TypeKey> classes = xrefIndex.getUserClasses(TARGET);
+        Assert.assertEquals(2, classes.size());
+        Assert.assertTrue(classes.contains(TypeKey.create("Lcom/x/A;")));
+        Assert.assertTrue(classes.contains(TypeKey.create("Lcom/x/C;")));
+    }
+
+    private static DexDirectory createDirectory() throws IOException {
+        DexFile dexFile = DexFile.createDefault();
+        dexFile.fromSmali(SmaliReader.of(SMALI_A));
+        dexFile.fromSmali(SmaliReader.of(SMALI_B));
+        dexFile.fromSmali(SmaliReader.of(SMALI_C));
+        dexFile.refreshFull();
+        ZipEntryMap zipEntryMap = new ZipEntryMap();
+        zipEntryMap.add(new ByteInputSource(dexFile.getBytes(), "classes.dex"));
+        return DexDirectory.fromZip(zipEntryMap);
+    }
+
+    private static final String SMALI_A = "" +
+            ".class public Lcom/x/A;\n" +
+            ".super Ljava/lang/Object;\n" +
+            "\n" +
+            ".method public static caller1()V\n" +
+            "    .locals 1\n" +
+            "    invoke-static {}, Lcom/x/B;->target()V\n" +
+            "    const-string v0, \"text\"\n" +
+            "    return-void\n" +
+            ".end method\n" +
+            "\n" +
+            ".method public static caller2()V\n" +
+            "    .locals 0\n" +
+            "    invoke-static {}, Lcom/x/B;->target()V\n" +
+            "    invoke-static {}, Lcom/x/B;->target()V\n" +
+            "    return-void\n" +
+            ".end method\n";
+
+    private static final String SMALI_B = "" +
+            ".class public Lcom/x/B;\n" +
+            ".super Ljava/lang/Object;\n" +
+            "\n" +
+            ".method public static target()V\n" +
+            "    .locals 0\n" +
+            "    return-void\n" +
+            ".end method\n" +
+            "\n" +
+            ".method public static other()V\n" +
+            "    .locals 0\n" +
+            "    return-void\n" +
+            ".end method\n";
+
+    private static final String SMALI_C = "" +
+            ".class public Lcom/x/C;\n" +
+            ".super Ljava/lang/Object;\n" +
+            "\n" +
+            ".method public static caller3()V\n" +
+            "    .locals 1\n" +
+            "    const-string v0, \"text\"\n" +
+            "    invoke-static {}, Lcom/x/B;->target()V\n" +
+            "    return-void\n" +
+            ".end method\n";
+}
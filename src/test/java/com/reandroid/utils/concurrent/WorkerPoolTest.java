@@ -0,0 +1,82 @@
+package com.reandroid.utils.concurrent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class WorkerPoolTest {
+
+    @Test
+    public void testResultOrder() throws IOException {
+        WorkerPool workerPool = new WorkerPool(4);
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for(int i = 0; i < 20; i++){
+            final int value = i;
+            tasks.add(() -> {
+                Thread.sleep(20 - value);
+                return value;
+            });
+        }
+        List<Integer> results = workerPool.invokeAll(tasks);
+        workerPool.close();
+        Assert.assertEquals(20, results.size());
+        for(int i = 0; i < 20; i++){
+            Assert.assertEquals(i, results.get(i).intValue());
+        }
+    }
+    @Test
+    public void testFailureCancelsOutstanding() throws InterruptedException {
+        WorkerPool workerPool = new WorkerPool(2);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        List<Callable<Object>> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            started.await();
+            throw new IllegalStateException("task failed");
+        });
+        tasks.add(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(60000);
+            }catch (InterruptedException ex){
+                interrupted.countDown();
+            }
+            return null;
+        });
+        IllegalStateException exception = null;
+        try {
+            workerPool.invokeAll(tasks);
+        }catch (IllegalStateException ex){
+            exception = ex;
+        }catch (IOException ex){
+            Assert.fail(ex.toString());
+        }
+        Assert.assertNotNull("Missing error of failed task", exception);
+        Assert.assertEquals("task failed", exception.getMessage());
+        Assert.assertTrue("Outstanding task not cancelled",
+                interrupted.await(10, TimeUnit.SECONDS));
+        workerPool.close();
+    }
+    @Test
+    public void testSerialFailure() {
+        WorkerPool workerPool = new WorkerPool(1);
+        List<Callable<Object>> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            throw new Exception("checked");
+        });
+        IOException exception = null;
+        try {
+            workerPool.invokeAll(tasks);
+        }catch (IOException ex){
+            exception = ex;
+        }
+        Assert.assertNotNull("Missing error of failed task", exception);
+        Assert.assertEquals("checked", exception.getCause().getMessage());
+    }
+}